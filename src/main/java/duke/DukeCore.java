@@ -1,53 +1,137 @@
 package duke;
 
+import duke.api.ApiServer;
 import duke.command.ObjCommand;
 import duke.command.Parser;
 import duke.data.DukeObject;
+import duke.data.Patient;
 import duke.data.PatientData;
 import duke.data.SearchResults;
+import duke.data.storage.BinaryStorage;
+import duke.data.storage.DischargeArchive;
 import duke.data.storage.GsonStorage;
+import duke.data.storage.MappedStorage;
+import duke.data.storage.Storage;
 import duke.exception.DukeException;
 import duke.exception.DukeFatalException;
 import duke.ui.Ui;
-import duke.ui.UiManager;
 import duke.ui.commons.UiStrings;
 import duke.ui.context.UiContext;
-import javafx.application.Application;
-import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Main class of the application.
- * The core of Dr. Duke, which holds the UI and storage components.
+ * The core of Dr. Duke, which holds the UI and storage components. The core only shows its output through the
+ * {@link Ui} interface, so it can run headless on a terminal, without starting the JavaFX toolkit.
  */
-public class DukeCore extends Application {
+public class DukeCore {
     public static final Logger logger = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+
+    /**
+     * the system property that, when true, opens the binary snapshot read-only, as set by {@link Launcher}.
+     */
+    public static final String VIEWER_PROPERTY = "duke.viewer";
     private static final String storagePath = "data" + File.separator + "patients.json";
+    private static final String binaryStoragePath = "data" + File.separator + "patients.bin";
+    private static final String archivePath = "data" + File.separator + "archive";
     public Ui ui;
     public UiContext uiContext;
-    public GsonStorage storage;
+    public Storage storage;
     public PatientData patientData;
+    public DischargeArchive archive;
     public ObjCommand queuedCmd;
+    private boolean isBatching = false;
+    private boolean isSaveDue = false;
+    private ApiServer api = null;
+    private List<FileWrite> deferredWrites = null;
+    private final List<UiContext> otherContexts = new ArrayList<>();
+    private UiContext shownContext = null;
+
+    /**
+     * Writes a file recording what a command did outside the patients, such as a report or a discharge archive entry.
+     */
+    public interface FileWrite {
+        void write() throws DukeFatalException;
+    }
+
+    /**
+     * Runs commands in a context other than the one shown by the UI.
+     */
+    public interface ContextTask {
+        void run() throws DukeException;
+    }
 
     /**
      * Creates a new DukeCore, constructing a storage class to store the app's data in the default data folder
-     * ([folder]/data, where [folder] is the folder from which Duke is run.
+     * ([folder]/data, where [folder] is the folder from which Duke is run. The binary snapshot is used if the data has
+     * been converted to one with {@link duke.data.storage.StorageConverter}, and the JSON storage otherwise. In viewer
+     * mode, the binary snapshot is memory-mapped read-only instead, and commands that change patients are refused.
+     * Discharged patients are kept in a {@link DischargeArchive} beside the patients, so they can be restored.
+     *
+     * @param uiFactory creates the UI that the core shows its output on, given the core
      */
-    public DukeCore() {
-        ui = new UiManager(this);
+    public DukeCore(Function<DukeCore, Ui> uiFactory) {
         uiContext = new UiContext();
+        ui = uiFactory.apply(this);
 
         try {
-            storage = new GsonStorage(storagePath);
+            if (Boolean.getBoolean(VIEWER_PROPERTY)) {
+                storage = new MappedStorage(binaryStoragePath);
+            } else if (new File(binaryStoragePath).exists()) {
+                storage = new BinaryStorage(binaryStoragePath);
+            } else {
+                storage = new GsonStorage(storagePath);
+            }
+            storage.setFailureListener(excp -> ui.runLater(() -> ui.showMessage(excp.getMessage())));
             patientData = new PatientData(storage);
+            archive = new DischargeArchive(archivePath);
             setupLoggers();
         } catch (DukeFatalException e) {
             ui.showErrorDialogAndShutdown(UiStrings.MESSAGE_ERROR_LAUNCH, e);
+            return;
+        }
+
+        Integer apiPort = Integer.getInteger(ApiServer.PORT_PROPERTY);
+        if (apiPort != null) {
+            try {
+                startApi(apiPort);
+            } catch (IOException excp) {
+                logger.severe("Unable to serve the HTTP API on port " + apiPort + ": " + excp.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts serving the patients, and running commands, over the HTTP API on localhost. Must be called on the thread
+     * running commands.
+     *
+     * @param port the port to serve the API on, or 0 to use any free port
+     * @return the server started
+     * @throws IOException If the server cannot listen on the port.
+     */
+    public ApiServer startApi(int port) throws IOException {
+        stopApi();
+        api = new ApiServer(this, port);
+        api.start();
+        return api;
+    }
+
+    /**
+     * Stops serving the HTTP API, if it is being served.
+     */
+    public void stopApi() {
+        if (api != null) {
+            api.stop();
+            api = null;
         }
     }
 
@@ -79,38 +163,178 @@ public class DukeCore extends Application {
     }
 
     /**
-     * Writes JSON file using patientData HashMap.
+     * Saves the changes made by a command to storage. Only the patients that have been changed since the last save are
+     * written out, and this is done in the background, so that commands do not wait for the disk. While a batch of
+     * commands is running, the changes are only saved once the batch has finished. The changes are published to the
+     * HTTP API, if it is being served, at the same time.
      *
      * @throws DukeFatalException If the file writer cannot be setup.
      */
     public void writeJsonFile() throws DukeFatalException {
-        storage.writeJsonFile(patientData.getPatientList());
+        if (isBatching) {
+            isSaveDue = true;
+            return;
+        }
+        if (api != null) {
+            api.publish(patientData);
+        }
+        storage.save(patientData);
     }
 
     /**
-     * Update UI to reflect current state of data.
+     * Starts running a batch of commands, such as a script. Until {@link #finishBatch()} is called, the changes made
+     * by the commands are not saved, and the UI is not refreshed, after each of them.
+     *
+     * @throws DukeException If a batch is already running.
      */
-    public void updateUi(String message) throws DukeFatalException {
-        if (uiContext.getObject() != null) {
-            uiContext.getObject().update();
+    public void startBatch() throws DukeException {
+        if (isBatching) {
+            throw new DukeException("Scripts can only be run on their own!");
         }
+        isBatching = true;
+        isSaveDue = false;
+    }
 
-        ui.updateUi(message);
+    /**
+     * Finishes running a batch of commands, saving the changes made by any of them.
+     *
+     * @throws DukeFatalException If the file writer cannot be setup.
+     */
+    public void finishBatch() throws DukeFatalException {
+        isBatching = false;
+        if (isSaveDue) {
+            isSaveDue = false;
+            writeJsonFile();
+        }
     }
 
     /**
-     * {@inheritDoc}
+     * Writes a file recording what a command did outside the patients, or, while a line of several commands is
+     * running, holds it back until every command in the line has succeeded, so that files are never written for
+     * changes that are rolled back. Anything the file records must be captured before this is called.
+     *
+     * @param write writes the file
+     * @throws DukeFatalException If the file cannot be written.
      */
-    @Override
-    public void start(Stage primaryStage) {
-        ui.start(primaryStage);
+    public void writeFile(FileWrite write) throws DukeFatalException {
+        if (deferredWrites != null) {
+            deferredWrites.add(write);
+        } else {
+            write.write();
+        }
     }
 
     /**
-     * {@inheritDoc}
+     * Holds back the files written by {@link #writeFile(FileWrite)} until {@link #finishFileWrites(boolean)} is
+     * called.
+     */
+    public void deferFileWrites() {
+        assert (deferredWrites == null);
+        deferredWrites = new ArrayList<>();
+    }
+
+    /**
+     * Stops holding back the files written by {@link #writeFile(FileWrite)}, writing those held back, in the order
+     * they were given, if the commands that gave them are kept, or discarding them otherwise.
+     *
+     * @param isKept whether the changes made by the commands are kept
+     * @throws DukeFatalException If a file cannot be written.
+     */
+    public void finishFileWrites(boolean isKept) throws DukeFatalException {
+        List<FileWrite> writes = deferredWrites;
+        deferredWrites = null;
+        if (isKept && writes != null) {
+            for (FileWrite write : writes) {
+                write.write();
+            }
+        }
+    }
+
+    /**
+     * Runs commands in a context of their own, such as that of an HTTP API client, rather than the one shown by the
+     * UI. While the task runs, {@link #uiContext} is that context, so the context shown by the UI is neither moved nor
+     * rolled back by the commands, and their messages are not shown. The UI is refreshed afterwards, to show any
+     * changes they made to the patients. The patients in use by the context stay loaded until it is released by
+     * {@link #releaseContext(UiContext)}. Must be called on the thread running commands.
+     *
+     * @param context the context to run the commands in
+     * @param task runs the commands
+     * @throws DukeException If the commands fail.
+     */
+    public void runInContext(UiContext context, ContextTask task) throws DukeException {
+        assert (shownContext == null);
+        if (!otherContexts.contains(context)) {
+            otherContexts.add(context);
+        }
+        shownContext = uiContext;
+        uiContext = context;
+        try {
+            task.run();
+        } finally {
+            uiContext = shownContext;
+            shownContext = null;
+        }
+        updateUi(null);
+    }
+
+    /**
+     * Stops keeping the patients in use by a context that commands were run in by
+     * {@link #runInContext(UiContext, ContextTask)} loaded.
+     */
+    public void releaseContext(UiContext context) {
+        otherContexts.remove(context);
+    }
+
+    /**
+     * Unloads the impressions of patients that have not been used recently, if they take up more than the heap budget.
+     * Patients in use by the current context, or by contexts that can be moved back to, stay loaded, as do those in use
+     * by the contexts that commands have been run in other than the one shown by the UI.
+     */
+    public void evictUnusedPatients() {
+        if (patientData == null) {
+            return;
+        }
+        Set<Patient> patientsInUse = new LinkedHashSet<>(uiContext.getPatientsInUse());
+        if (shownContext != null) {
+            patientsInUse.addAll(shownContext.getPatientsInUse());
+        }
+        for (UiContext context : otherContexts) {
+            patientsInUse.addAll(context.getPatientsInUse());
+        }
+        patientData.evictUnused(patientsInUse);
+    }
+
+    /**
+     * Update UI to reflect current state of data. While a batch of commands is running, or commands are running in a
+     * context other than the one shown by the UI, the UI is only updated once they have finished.
+     *
+     * @param message the message to show, or null to only update the UI
+     */
+    public void updateUi(String message) throws DukeFatalException {
+        if (isBatching || shownContext != null) {
+            return;
+        }
+        if (uiContext.getObject() != null) {
+            uiContext.getObject().update();
+        }
+
+        ui.updateUi(message);
+    }
+
+    /**
+     * Saves any changes held back by a running batch of commands, and waits for any changes still being saved in the
+     * background to be written, then stops the HTTP API, if it is being served, and the UI.
      */
-    @Override
     public void stop() {
+        if (storage != null) {
+            try {
+                finishBatch();
+                storage.flush();
+            } catch (DukeFatalException excp) {
+                ui.showMessage(excp.getMessage());
+            }
+        }
+        stopApi();
         ui.stop();
     }
 
@@ -1,17 +1,41 @@
 package duke;
 
-import javafx.application.Application;
+import duke.api.ApiServer;
+import duke.ui.DukeApplication;
+import duke.ui.TerminalUi;
+
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Launcher class to launch the application.
  */
 public class Launcher {
+    private static final String VIEWER_ARG = "--view";
+    private static final String TERMINAL_ARG = "--terminal";
+    private static final String API_ARG = "--api";
+
     /**
-     * Entry point into the application.
+     * Entry point into the application. Launching with {@code --view} opens the patients read-only, for browsing them
+     * on a shared terminal. Launching with {@code --terminal} runs Dr. Duke headless, reading commands from standard
+     * input, one per line, without starting the JavaFX toolkit. Launching with {@code --api} also serves the patients
+     * over HTTP on localhost, on the port given by the {@code duke.apiPort} property, or
+     * {@value ApiServer#DEFAULT_PORT} by default.
      *
      * @param args Command-line arguments.
      */
     public static void main(String[] args) {
-        Application.launch(DukeCore.class, args);
+        List<String> argList = Arrays.asList(args);
+        if (argList.contains(VIEWER_ARG)) {
+            System.setProperty(DukeCore.VIEWER_PROPERTY, "true");
+        }
+        if (argList.contains(API_ARG) && System.getProperty(ApiServer.PORT_PROPERTY) == null) {
+            System.setProperty(ApiServer.PORT_PROPERTY, String.valueOf(ApiServer.DEFAULT_PORT));
+        }
+        if (argList.contains(TERMINAL_ARG)) {
+            TerminalUi.launch();
+        } else {
+            DukeApplication.launch(args);
+        }
     }
 }
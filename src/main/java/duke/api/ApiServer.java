@@ -0,0 +1,346 @@
+package duke.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import duke.DukeCore;
+import duke.command.Executor;
+import duke.command.Parser;
+import duke.data.DukeObject;
+import duke.data.Impression;
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.exception.DukeException;
+import duke.ui.context.UiContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import static duke.DukeCore.logger;
+
+/**
+ * Serves the patients in the ward over HTTP, as JSON, and runs commands sent to it, so that dashboards and bedside
+ * scripts can use the live data. The server only listens on the loopback address. It serves the following:
+ *
+ * <ul>
+ *     <li>{@code GET /api/patients}: the summaries of the patients in the ward, in bed order</li>
+ *     <li>{@code GET /api/patients/<bed>}: a patient, with its impressions, evidences and treatments</li>
+ *     <li>{@code GET /api/patients/<bed>/impressions/<uid or name>}: an impression of a patient</li>
+ *     <li>{@code GET /api/search?q=<term>}: the patients and impressions containing a search term</li>
+ *     <li>{@code POST /api/commands}: runs the commands in the request body, as if they had been entered in the
+ *     command window, returning the context afterwards, or the error of the command that failed. The commands are
+ *     run in a context of the API's own, which moves independently of the one shown by the UI</li>
+ *     <li>{@code GET /api/events}: a stream of server-sent events, as patients are admitted and discharged, and the
+ *     priorities and statuses of their evidences and treatments are changed, see {@link ChangeFeed}</li>
+ * </ul>
+ *
+ * <p>The ward is listed from a {@link WardSnapshot} of the details shown on the patients' cards, which the thread
+ * running commands publishes whenever it saves the patients, creating views only of the patients changed since the last
+ * snapshot, so listing the ward never waits for, or locks out, the thread running commands. Patients, impressions and
+ * search results, which may need the impressions of patients to be read back from storage, and commands, are passed
+ * to that thread through {@link duke.ui.Ui#runLater(Runnable)}, and serialised on request, so the impressions of
+ * patients are only loaded when asked for, and are unloaded again within the same heap budget as any others.
+ */
+public class ApiServer {
+    /**
+     * the system property giving the port to serve the API on, as set by {@link duke.Launcher}.
+     */
+    public static final String PORT_PROPERTY = "duke.apiPort";
+    public static final int DEFAULT_PORT = 8642;
+    private static final String API_PATH = "/api/";
+    private static final int THREAD_COUNT = 4;
+    private static final long COMMAND_TIMEOUT_SECONDS = 30;
+
+    private final DukeCore core;
+    private final HttpServer server;
+    private final ExecutorService threadPool;
+    private final UiContext context = new UiContext();
+    private final Parser parser;
+    private final Executor executor;
+    private final ChangeFeed feed = new ChangeFeed();
+
+    /**
+     * the view of each patient in the last snapshot, only used by the thread running commands.
+     */
+    private final Map<Patient, PatientView> views = new IdentityHashMap<>();
+    private volatile WardSnapshot snapshot = WardSnapshot.EMPTY;
+    private PatientData watchedPatientData;
+
+    /**
+     * Creates a server for the API, which is not started until {@link #start()} is called.
+     *
+     * @param core the core of Dr. Duke, whose patients are served
+     * @param port the port to listen on, or 0 to use any free port
+     * @throws IOException If the server cannot listen on the port.
+     */
+    public ApiServer(DukeCore core, int port) throws IOException {
+        this.core = core;
+        parser = new Parser(context);
+        executor = new Executor(core);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(API_PATH, this::handle);
+        AtomicInteger threadCount = new AtomicInteger();
+        threadPool = Executors.newFixedThreadPool(THREAD_COUNT, task -> {
+            Thread thread = new Thread(task, "api-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(threadPool);
+    }
+
+    /**
+     * Publishes the first snapshot of the patients, and starts serving requests. Must be called on the thread running
+     * commands.
+     */
+    public void start() {
+        publish(core.patientData);
+        server.start();
+    }
+
+    /**
+     * Stops serving requests, abandoning those in progress, and disconnects the clients of the event stream.
+     */
+    public void stop() {
+        server.stop(0);
+        threadPool.shutdownNow();
+        core.releaseContext(context);
+        if (watchedPatientData != null) {
+            watchedPatientData.setChangeListener(null);
+        }
+        feed.stop();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Publishes a snapshot of the details of the patients, to be served until the next one is published. Must be called
+     * on the thread running commands, before the changes to the patients are saved, as only the views of the patients
+     * still marked dirty are created again. The changes made since the last snapshot are then sent to the clients of the
+     * event stream.
+     *
+     * @param patientData the patients to take a snapshot of
+     */
+    public void publish(PatientData patientData) {
+        if (watchedPatientData != patientData) {
+            if (watchedPatientData != null) {
+                watchedPatientData.setChangeListener(null);
+            }
+            patientData.setChangeListener(feed);
+            watchedPatientData = patientData;
+        }
+
+        List<PatientView> patientViews = new ArrayList<>();
+        Map<Patient, PatientView> newViews = new IdentityHashMap<>();
+        for (Patient patient : patientData.getPatientsByBed()) {
+            PatientView view = views.get(patient);
+            if (view == null || patient.isDirty()) {
+                view = new PatientView(patient);
+            }
+            patientViews.add(view);
+            newViews.put(patient, view);
+        }
+        views.clear();
+        views.putAll(newViews);
+        snapshot = new WardSnapshot(patientViews);
+        feed.flush();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if ("/api/events".equals(exchange.getRequestURI().getPath()) && "GET".equals(exchange.getRequestMethod())) {
+            feed.serve(exchange);
+            return;
+        }
+
+        try {
+            String[] path = exchange.getRequestURI().getPath().substring(API_PATH.length()).split("/");
+            boolean isGet = "GET".equals(exchange.getRequestMethod());
+            if (path.length == 1 && "patients".equals(path[0]) && isGet) {
+                send(exchange, 200, snapshot.getWard());
+            } else if (path.length == 2 && "patients".equals(path[0]) && isGet) {
+                sendFromCommandThread(exchange, () -> getPatient(path[1]), "I don't have a patient in that bed!");
+            } else if (path.length == 4 && "patients".equals(path[0]) && "impressions".equals(path[2]) && isGet) {
+                sendFromCommandThread(exchange, () -> getImpression(path[1], path[3]),
+                        "I don't have an impression called that!");
+            } else if (path.length == 1 && "search".equals(path[0]) && isGet) {
+                String searchTerm = getQueryParam(exchange.getRequestURI().getRawQuery(), "q");
+                if (searchTerm == null || searchTerm.isBlank()) {
+                    sendError(exchange, 400, "Please give a search term with ?q=<term>!");
+                } else {
+                    sendFromCommandThread(exchange, () -> search(searchTerm), null);
+                }
+            } else if (path.length == 1 && "commands".equals(path[0])
+                    && "POST".equals(exchange.getRequestMethod())) {
+                String line = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                sendFromCommandThread(exchange, () -> executeLine(line), null);
+            } else {
+                sendError(exchange, 404, "There is nothing at " + exchange.getRequestURI().getPath() + " to "
+                        + exchange.getRequestMethod() + "!");
+            }
+        } catch (RuntimeException excp) {
+            logger.log(Level.SEVERE, "Unable to serve API request", excp);
+            sendError(exchange, 500, "Unable to serve the request, see the log for details.");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Runs a task on the thread running commands, waiting for it to finish, and sends its result, with an error status
+     * if the result holds an error.
+     *
+     * @param task the task, which returns null if there is nothing to send
+     * @param notFoundMessage the error to send if there is nothing to send
+     */
+    private void sendFromCommandThread(HttpExchange exchange, Supplier<JsonElement> task, String notFoundMessage)
+            throws IOException {
+        CompletableFuture<JsonElement> result = new CompletableFuture<>();
+        core.ui.runLater(() -> {
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException excp) {
+                result.completeExceptionally(excp);
+            }
+        });
+
+        try {
+            JsonElement response = result.get(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (response == null) {
+                sendError(exchange, 404, notFoundMessage);
+            } else {
+                boolean isError = response.isJsonObject() && response.getAsJsonObject().has("error");
+                send(exchange, isError ? 400 : 200, response);
+            }
+        } catch (TimeoutException excp) {
+            sendError(exchange, 503, "The request is taking too long to run, it may still finish later.");
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Interrupted while waiting for the request to run.");
+        } catch (ExecutionException excp) {
+            logger.log(Level.SEVERE, "Unable to run API request", excp.getCause());
+            sendError(exchange, 500, "Unable to run the request, see the log for details.");
+        }
+    }
+
+    /**
+     * Serialises the patient in a bed in full, reading its impressions back from storage if they are not loaded. They
+     * are unloaded again as usual, if the patients loaded take up more than the heap budget. Must be called on the
+     * thread running commands.
+     */
+    private JsonObject getPatient(String bedNo) {
+        Patient patient = core.patientData.getPatientByBed(bedNo);
+        if (patient == null) {
+            return null;
+        }
+        JsonObject json = PatientView.serialise(patient);
+        core.evictUnusedPatients();
+        return json;
+    }
+
+    private JsonObject getImpression(String bedNo, String keyIdentifier) {
+        JsonObject patient = getPatient(bedNo);
+        return (patient == null) ? null : PatientView.findImpression(patient, keyIdentifier);
+    }
+
+    /**
+     * Finds the patients and impressions containing a search term, with the search index, which only reads back the
+     * impressions of patients that can match. Must be called on the thread running commands.
+     *
+     * @return an object holding the summaries of the matching patients, and the matching impressions, each with the
+     *     bed of the patient it belongs to
+     */
+    private JsonObject search(String searchTerm) {
+        JsonObject results = new JsonObject();
+        results.addProperty("searchTerm", searchTerm);
+        JsonArray matchingPatients = new JsonArray();
+        JsonArray matchingImpressions = new JsonArray();
+        try {
+            for (DukeObject obj : core.patientData.searchAll(searchTerm).getSearchList()) {
+                if (obj instanceof Patient) {
+                    matchingPatients.add(new PatientView((Patient) obj).getSummary());
+                } else if (obj instanceof Impression) {
+                    JsonObject match = new JsonObject();
+                    match.addProperty("bedNo", ((Impression) obj).getParent().getBedNo());
+                    match.addProperty("uid", obj.getUid());
+                    match.addProperty("name", obj.getName());
+                    matchingImpressions.add(match);
+                }
+            }
+        } catch (DukeException excp) {
+            results.addProperty("error", excp.getMessage());
+        }
+        core.evictUnusedPatients();
+        results.add("patients", matchingPatients);
+        results.add("impressions", matchingImpressions);
+        return results;
+    }
+
+    /**
+     * Runs a line of commands in the context of the API, which is kept apart from the one shown by the UI, returning
+     * the context of the API afterwards, or the error of the command that failed. Must be called on the thread running
+     * commands.
+     */
+    private JsonObject executeLine(String line) {
+        JsonObject response = new JsonObject();
+        try {
+            core.runInContext(context, () -> executor.executeLine(parser, line));
+        } catch (DukeException excp) {
+            response.addProperty("error", excp.getMessage());
+        }
+        response.addProperty("context", context.getContext().toString());
+        DukeObject obj = context.getObject();
+        if (obj != null) {
+            response.addProperty("uid", obj.getUid());
+            response.addProperty("name", obj.getName());
+        }
+        return response;
+    }
+
+    private static String getQueryParam(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String param : rawQuery.split("&")) {
+            int eqIdx = param.indexOf('=');
+            if (eqIdx > 0 && name.equals(param.substring(0, eqIdx))) {
+                return URLDecoder.decode(param.substring(eqIdx + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        JsonObject body = new JsonObject();
+        body.addProperty("error", message);
+        send(exchange, status, body);
+    }
+
+    private static void send(HttpExchange exchange, int status, JsonElement body) throws IOException {
+        byte[] bytes = PatientView.GSON.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package duke.api;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import duke.data.ChangeListener;
+import duke.data.DukeData;
+import duke.data.Impression;
+import duke.data.Patient;
+import duke.data.Treatment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import static duke.DukeCore.logger;
+
+/**
+ * Pushes the changes to the ward that dashboards follow to the clients of {@code GET /api/events}, as server-sent
+ * events: patients admitted and discharged, and the priorities of evidences and treatments, and the statuses of
+ * treatments, being changed.
+ *
+ * <p>Changes are noted down as commands make them, and only sent once they are saved, with the snapshot showing them,
+ * so that the changes made by a line of commands that is rolled back are never sent. Each client has its own bounded
+ * buffer of events, filled by the thread running commands, which never waits for a client, and emptied by a thread
+ * writing to that client alone. If a client falls so far behind that its buffer fills up, the events in it are
+ * dropped, and it is sent a {@code resync} event instead, telling it to fetch the ward again. Clients reconnecting with
+ * the id of an event other than the last one sent are also told to resync, as past events are not kept.
+ */
+class ChangeFeed implements ChangeListener {
+    static final int CLIENT_BUFFER_SIZE = 256;
+    static final int MAX_CLIENTS = 16;
+    private static final long KEEP_ALIVE_SECONDS = 15;
+
+    private final List<Event> pendingEvents = new ArrayList<>();
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final AtomicInteger clientCount = new AtomicInteger();
+    private volatile long lastEventId = 0;
+
+    /**
+     * A change to send to the clients.
+     */
+    private static class Event {
+        private final String type;
+        private final JsonObject data;
+        private long id;
+
+        private Event(String type, JsonObject data) {
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    @Override
+    public void patientAdmitted(Patient patient) {
+        pendingEvents.add(new Event("admitted", describePatient(patient)));
+    }
+
+    @Override
+    public void patientDischarged(Patient patient) {
+        pendingEvents.add(new Event("discharged", describePatient(patient)));
+    }
+
+    @Override
+    public void priorityChanged(DukeData data, int oldPriority) {
+        JsonObject description = describeData(data);
+        description.addProperty("oldPriority", oldPriority);
+        pendingEvents.add(new Event("priorityChanged", description));
+    }
+
+    @Override
+    public void statusChanged(Treatment treatment, int oldStatusIdx) {
+        JsonObject description = describeData(treatment);
+        description.addProperty("oldStatus", treatment.getStatusArr().get(oldStatusIdx));
+        description.addProperty("status", treatment.getStatusStr());
+        pendingEvents.add(new Event("statusChanged", description));
+    }
+
+    @Override
+    public void changesRolledBack() {
+        pendingEvents.clear();
+    }
+
+    private static JsonObject describePatient(Patient patient) {
+        JsonObject description = new JsonObject();
+        description.addProperty("uid", patient.getUid());
+        description.addProperty("bedNo", patient.getBedNo());
+        description.addProperty("name", patient.getName());
+        return description;
+    }
+
+    private static JsonObject describeData(DukeData data) {
+        Impression impression = data.getParent();
+        Patient patient = impression.getParent();
+        JsonObject description = new JsonObject();
+        description.addProperty("uid", data.getUid());
+        description.addProperty("name", data.getName());
+        description.addProperty("priority", data.getPriority());
+        description.addProperty("impressionUid", impression.getUid());
+        description.addProperty("patientUid", patient.getUid());
+        description.addProperty("bedNo", patient.getBedNo());
+        return description;
+    }
+
+    /**
+     * Sends the changes noted down since the last call to every client. Must be called on the thread running commands,
+     * once the snapshot showing the changes has been published.
+     */
+    void flush() {
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+        for (Event event : pendingEvents) {
+            event.id = lastEventId + 1;
+            lastEventId = event.id;
+            for (Client client : clients) {
+                client.offer(event);
+            }
+        }
+        pendingEvents.clear();
+    }
+
+    /**
+     * Starts streaming events to a client, on a thread of its own, leaving the exchange open once this returns.
+     *
+     * @param exchange the request for the event stream
+     * @throws IOException If the response cannot be started.
+     */
+    void serve(HttpExchange exchange) throws IOException {
+        if (clients.size() >= MAX_CLIENTS) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        String lastIdHeader = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        Client client = new Client(exchange, lastIdHeader != null && !lastIdHeader.equals(String.valueOf(lastEventId)));
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        Thread thread = new Thread(client, "api-events-" + clientCount.incrementAndGet());
+        thread.setDaemon(true);
+        client.thread = thread;
+        clients.add(client);
+        thread.start();
+    }
+
+    /**
+     * Disconnects every client.
+     */
+    void stop() {
+        for (Client client : clients) {
+            client.thread.interrupt();
+        }
+    }
+
+    /**
+     * A client of the event stream, with its buffer of events still to be written to it.
+     */
+    private class Client implements Runnable {
+        private final HttpExchange exchange;
+        private final BlockingQueue<Event> buffer = new ArrayBlockingQueue<>(CLIENT_BUFFER_SIZE);
+        private volatile boolean isOverflowed;
+        private Thread thread;
+
+        private Client(HttpExchange exchange, boolean isOverflowed) {
+            this.exchange = exchange;
+            this.isOverflowed = isOverflowed;
+        }
+
+        /**
+         * Adds an event to the buffer, without waiting. If the buffer is full, the client is behind, and must resync.
+         */
+        private void offer(Event event) {
+            if (!buffer.offer(event)) {
+                isOverflowed = true;
+                buffer.clear();
+            }
+        }
+
+        @Override
+        public void run() {
+            try (OutputStream out = exchange.getResponseBody()) {
+                while (!Thread.currentThread().isInterrupted()) {
+                    if (isOverflowed) {
+                        isOverflowed = false;
+                        buffer.clear();
+                        write(out, "id: " + lastEventId + "\nevent: resync\ndata: {}\n\n");
+                        continue;
+                    }
+                    Event event = buffer.poll(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+                    if (event == null) {
+                        write(out, ": keep-alive\n\n");
+                    } else {
+                        write(out, "id: " + event.id + "\nevent: " + event.type + "\ndata: "
+                                + PatientView.GSON.toJson(event.data) + "\n\n");
+                    }
+                }
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            } catch (IOException excp) {
+                logger.log(Level.FINE, "Event stream client disconnected", excp);
+            } finally {
+                clients.remove(this);
+                exchange.close();
+            }
+        }
+
+        private void write(OutputStream out, String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package duke.api;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import duke.data.Patient;
+import duke.data.storage.PatientAdaptor;
+
+/**
+ * The details of a patient shown on its card, as JSON, as they were when the view was created. Views never read the
+ * impressions of a patient, so the whole ward can be listed without loading the patients whose impressions are not
+ * loaded. Views are only created on the thread running commands, and are not changed afterwards, so they can be read
+ * from any thread.
+ */
+final class PatientView {
+    static final Gson GSON = new GsonBuilder().registerTypeAdapter(Patient.class, new PatientAdaptor()).create();
+
+    private final JsonObject summary = new JsonObject();
+
+    /**
+     * Creates a view of the details of a patient.
+     *
+     * @param patient the patient to show
+     */
+    PatientView(Patient patient) {
+        summary.addProperty("uid", patient.getUid());
+        summary.addProperty("bedNo", patient.getBedNo());
+        summary.addProperty("name", patient.getName());
+        summary.addProperty("allergies", patient.getAllergies());
+        summary.addProperty("age", patient.getAge());
+        summary.addProperty("primaryDiagnosis", patient.getPrimaryDiagnosisName());
+    }
+
+    JsonObject getSummary() {
+        return summary;
+    }
+
+    /**
+     * Serialises a patient in full, with its impressions, evidences and treatments, in the format used by the JSON
+     * storage, reading its impressions back from storage if they are not loaded. Must be called on the thread running
+     * commands.
+     *
+     * @param patient the patient to serialise
+     * @return the patient, as JSON
+     */
+    static JsonObject serialise(Patient patient) {
+        return GSON.toJsonTree(patient, Patient.class).getAsJsonObject();
+    }
+
+    /**
+     * Finds an impression of a serialised patient by its uid, or by its name, ignoring case.
+     *
+     * @param patient the patient, as serialised by {@link #serialise(Patient)}
+     * @param keyIdentifier the uid or name of the impression
+     * @return the impression, or null if the patient has no impression with that uid or name
+     */
+    static JsonObject findImpression(JsonObject patient, String keyIdentifier) {
+        JsonElement impressionList = patient.get("impressionList");
+        if (impressionList == null || !impressionList.isJsonArray()) {
+            return null;
+        }
+        for (JsonElement impression : (JsonArray) impressionList) {
+            JsonObject impressionObj = impression.getAsJsonObject();
+            if (keyIdentifier.equals(getString(impressionObj, "uid"))
+                    || keyIdentifier.equalsIgnoreCase(getString(impressionObj, "name"))) {
+                return impressionObj;
+            }
+        }
+        return null;
+    }
+
+    private static String getString(JsonObject obj, String field) {
+        JsonElement value = obj.get(field);
+        return (value != null && value.isJsonPrimitive()) ? value.getAsString() : null;
+    }
+}
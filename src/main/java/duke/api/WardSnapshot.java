@@ -0,0 +1,37 @@
+package duke.api;
+
+import com.google.gson.JsonArray;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The details of the patients in the ward shown on their cards, as they were when the snapshot was taken, so that the
+ * ward can be listed by the threads serving the HTTP API while commands change the patients themselves. A snapshot is
+ * never changed once it has been published, so it can be read without locking.
+ */
+final class WardSnapshot {
+    static final WardSnapshot EMPTY = new WardSnapshot(Collections.emptyList());
+
+    private final List<PatientView> patients;
+
+    /**
+     * Creates a snapshot of the patients given.
+     *
+     * @param patients the views of the patients in the ward, in bed order, which must not be changed afterwards
+     */
+    WardSnapshot(List<PatientView> patients) {
+        this.patients = Collections.unmodifiableList(patients);
+    }
+
+    /**
+     * Returns the summaries of the patients in the ward, in bed order.
+     */
+    JsonArray getWard() {
+        JsonArray ward = new JsonArray();
+        for (PatientView patient : patients) {
+            ward.add(patient.getSummary());
+        }
+        return ward;
+    }
+}
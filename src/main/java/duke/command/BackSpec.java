@@ -15,4 +15,9 @@ public class BackSpec extends CommandSpec {
     protected void execute(DukeCore core) throws DukeException {
         core.ui.showMessage(core.uiContext.moveBackOneContext());
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
@@ -16,4 +16,9 @@ public class ByeSpec extends CommandSpec {
         core.writeJsonFile();
         core.stop();
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
@@ -25,6 +25,15 @@ public class Command {
         spec.execute(core, this);
     }
 
+    /**
+     * Checks if this command only views the patients without changing them.
+     *
+     * @return true if this command never changes the patients
+     */
+    public boolean isReadOnly() {
+        return spec.isReadOnly();
+    }
+
     //TODO: replace with abstract function that actually prints excerpts from the user guide
     public String getHelp() {
         return spec.getHelp();
@@ -25,6 +25,16 @@ public abstract class CommandSpec {
 
     protected abstract void execute(DukeCore core) throws DukeException;
 
+    /**
+     * Checks if this command only views the patients without changing them, so that it can still be used when they
+     * are open read-only. Commands change the patients unless they say otherwise.
+     *
+     * @return true if this command never changes the patients
+     */
+    public boolean isReadOnly() {
+        return false;
+    }
+
     /**
      * Returns a string describing the operation and effect of this command.
      * @return The help string for this command, typically an excerpt of the user guide.
@@ -5,11 +5,13 @@ import duke.command.dukedata.MedicineEditSpec;
 import duke.command.dukedata.ObservationEditSpec;
 import duke.command.dukedata.PlanEditSpec;
 import duke.command.dukedata.ResultEditSpec;
+import duke.command.home.HomeArchiveSpec;
 import duke.command.home.HomeDischargeSpec;
 import duke.command.home.HomeFindSpec;
 import duke.command.home.HomeNewSpec;
 import duke.command.home.HomeOpenSpec;
 import duke.command.home.HomeReportSpec;
+import duke.command.home.HomeRestoreSpec;
 import duke.command.impression.ImpressionDeleteSpec;
 import duke.command.impression.ImpressionEditSpec;
 import duke.command.impression.ImpressionFindSpec;
@@ -43,7 +45,9 @@ public class Commands {
      * @return The newly constructed command without any parameters loaded.
      */
     public Command getCommand(String cmdStr, Context context) {
-        if (context == Context.SEARCH) {
+        if ("run".equals(cmdStr)) {
+            return new ArgCommand(RunSpec.getSpec());
+        } else if (context == Context.SEARCH) {
             return new Command(SearchSpec.getSpec(cmdStr));
         }
 
@@ -72,6 +76,10 @@ public class Commands {
                 return new ObjCommand(HomeReportSpec.getSpec());
             case "discharge":
                 return new ObjCommand(HomeDischargeSpec.getSpec());
+            case "archive":
+                return new ArgCommand(HomeArchiveSpec.getSpec());
+            case "restore":
+                return new ArgCommand(HomeRestoreSpec.getSpec());
             default:
                 return null;
             }
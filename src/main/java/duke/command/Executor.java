@@ -1,7 +1,13 @@
 package duke.command;
 
 import duke.DukeCore;
+import duke.data.DukeObject;
+import duke.data.PatientData;
 import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
+
+import java.io.UncheckedIOException;
+import java.util.List;
 
 /**
  * Class responsible for executing user commands.
@@ -19,12 +25,91 @@ public class Executor {
     }
 
     /**
-     * Executes the specified command.
+     * Executes the specified command, unless it would change patients that are open read-only. Once it is done,
+     * patients that have not been used recently are unloaded if they take up too much memory, as no command is holding
+     * onto their impressions any more.
      *
      * @param command Command object.
      * @throws DukeException If there is an error executing the command.
      */
     public void execute(Command command) throws DukeException {
-        command.execute(core);
+        if (core.storage.isReadOnly() && !command.isReadOnly()) {
+            throw new DukeException("The patients are open read-only, so they cannot be changed!");
+        }
+
+        try {
+            command.execute(core);
+        } catch (UncheckedIOException excp) {
+            throw new DukeFatalException("Unable to read data files, they may have been corrupted!");
+        } finally {
+            core.evictUnusedPatients();
+        }
+    }
+
+    /**
+     * Executes a line of input holding one or more commands, separated by semicolons, as a single transaction. Either
+     * every command succeeds, and their changes are saved once at the end, or the patients, and the context shown,
+     * are rolled back to how they were before the line and the error of the command that failed is thrown. Each
+     * command is only parsed once the commands before it have run, as they may change the context it is parsed in.
+     * Reports and discharge archive entries are only written once every command has succeeded, before the changes are
+     * saved, so none are left behind for changes that are rolled back.
+     *
+     * @param parser the parser for the commands, which parses them in the current context
+     * @param inputStr the line of input
+     * @throws DukeException If any of the commands cannot be parsed or executed.
+     */
+    public void executeLine(Parser parser, String inputStr) throws DukeException {
+        List<String> commandStrs = parser.splitCommands(inputStr);
+        if (commandStrs.size() == 1) {
+            execute(parser.parse(commandStrs.get(0)));
+            return;
+        }
+
+        // save first, so that the stored copy of every patient is its state before the line, to roll back to
+        core.writeJsonFile();
+        core.startBatch();
+        PatientData patientData = core.patientData;
+        DukeObject shownObj = core.uiContext.getObject();
+        int historySize = core.uiContext.getHistorySize();
+        patientData.beginTransaction();
+        core.deferFileWrites();
+        int failedIdx = 0;
+        DukeException failure = null;
+        boolean isKept = false;
+        try {
+            for (int i = 0; i < commandStrs.size() && failure == null; ++i) {
+                try {
+                    execute(parser.parse(commandStrs.get(i)));
+                } catch (DukeFatalException excp) {
+                    throw excp;
+                } catch (DukeException excp) {
+                    failedIdx = i;
+                    failure = excp;
+                }
+            }
+            if (failure == null) {
+                core.finishFileWrites(true);
+                isKept = true;
+            }
+        } catch (UncheckedIOException excp) {
+            throw new DukeFatalException("Unable to read data files, they may have been corrupted!");
+        } finally {
+            // files are never written for, and fatal errors never save, changes that are not kept
+            core.finishFileWrites(false);
+            if (!isKept) {
+                patientData.rollBack(core.storage);
+                core.uiContext.rollBack(historySize, shownObj, obj -> patientData.getObject(obj.getUid()));
+            }
+            patientData.endTransaction();
+            core.finishBatch();
+        }
+
+        if (failure == null) {
+            core.updateUi("Ran " + commandStrs.size() + " commands.");
+        } else {
+            core.updateUi("Command " + (failedIdx + 1) + " of " + commandStrs.size() + " failed, so the changes made by"
+                    + " the commands before it were undone:");
+            throw failure;
+        }
     }
 }
@@ -2,9 +2,15 @@ package duke.command;
 
 import duke.DukeCore;
 import duke.data.DukeObject;
+import duke.data.Evidence;
+import duke.data.Impression;
+import duke.data.Patient;
 import duke.data.SearchResults;
+import duke.data.Treatment;
 import duke.exception.DukeException;
 
+import java.util.ArrayList;
+
 public abstract class ObjSpec extends ArgSpec {
 
     protected ObjCommand cmd;
@@ -46,6 +52,29 @@ public abstract class ObjSpec extends ArgSpec {
         }
     }
 
+    /**
+     * Keeps only the search results whose types have their switches ("patient", "impression", "evidence" or
+     * "treatment") set, in the order they were found, or all of them if none of these switches are set.
+     */
+    protected SearchResults filterResultsByType(SearchResults results) {
+        boolean hasPatients = cmd.isSwitchSet("patient");
+        boolean hasImpressions = cmd.isSwitchSet("impression");
+        boolean hasEvidences = cmd.isSwitchSet("evidence");
+        boolean hasTreatments = cmd.isSwitchSet("treatment");
+        if (!hasPatients && !hasImpressions && !hasEvidences && !hasTreatments) {
+            return results;
+        }
+
+        ArrayList<DukeObject> resultList = new ArrayList<>();
+        for (DukeObject obj : results.getSearchList()) {
+            if ((obj instanceof Patient && hasPatients) || (obj instanceof Impression && hasImpressions)
+                    || (obj instanceof Evidence && hasEvidences) || (obj instanceof Treatment && hasTreatments)) {
+                resultList.add(obj);
+            }
+        }
+        return new SearchResults(results.getName(), resultList, results.getParent());
+    }
+
     @Override
     protected ArgCommand getCmd() {
         return cmd;
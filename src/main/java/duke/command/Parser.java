@@ -5,6 +5,8 @@ import duke.exception.DukeHelpException;
 import duke.exception.DukeUtilException;
 import duke.ui.context.UiContext;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 import static java.lang.Math.min;
@@ -17,6 +19,7 @@ import static java.lang.Math.min;
 public class Parser {
 
     public static final Logger parserLogger = Logger.getLogger("parser");
+    private static final char COMMAND_SEPARATOR = ';';
     private final Commands commands;
     private final UiContext uiContext;
     private final ArgParser argParser;
@@ -79,4 +82,48 @@ public class Parser {
         }
         return command;
     }
+
+    /**
+     * Splits a line of input into the commands on it, which are separated by semicolons. Semicolons in strings are
+     * left as they are, and those escaped with a backslash outside strings are unescaped, without separating commands.
+     * Blank commands are skipped, unless there are no other commands on the line.
+     *
+     * @param inputStr The input to the command line
+     * @return the commands on the line, in the order they were entered
+     */
+    public List<String> splitCommands(String inputStr) {
+        List<String> commandStrs = new ArrayList<>();
+        StringBuilder commandBuilder = new StringBuilder();
+        boolean isInString = false;
+        for (int i = 0; i < inputStr.length(); ++i) {
+            char curr = inputStr.charAt(i);
+            if (curr == '\\' && i + 1 < inputStr.length()) {
+                char next = inputStr.charAt(++i);
+                if (isInString || next != COMMAND_SEPARATOR) {
+                    commandBuilder.append(curr);
+                }
+                commandBuilder.append(next);
+            } else if (curr == COMMAND_SEPARATOR && !isInString) {
+                addCommand(commandStrs, commandBuilder);
+            } else {
+                if (curr == '"') {
+                    isInString = !isInString;
+                }
+                commandBuilder.append(curr);
+            }
+        }
+        addCommand(commandStrs, commandBuilder);
+
+        if (commandStrs.isEmpty()) {
+            commandStrs.add(inputStr);
+        }
+        return commandStrs;
+    }
+
+    private static void addCommand(List<String> commandStrs, StringBuilder commandBuilder) {
+        if (!commandBuilder.toString().isBlank()) {
+            commandStrs.add(commandBuilder.toString());
+        }
+        commandBuilder.setLength(0);
+    }
 }
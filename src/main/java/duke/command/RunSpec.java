@@ -0,0 +1,87 @@
+package duke.command;
+
+import duke.DukeCore;
+import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Runs the commands in a script file, one per line, as if they had been entered one after another, skipping blank
+ * lines and lines starting with {@code #}. The changes made by the script are saved, and the UI refreshed, once it
+ * has finished, instead of after every command. The script stops at the first command that fails, keeping the changes
+ * made by the commands before it.
+ */
+public class RunSpec extends ArgSpec {
+    private static final RunSpec spec = new RunSpec();
+    private static final String COMMENT_PREFIX = "#";
+
+    public static RunSpec getSpec() {
+        return spec;
+    }
+
+    private RunSpec() {
+        cmdArgLevel = ArgLevel.REQUIRED;
+        initSwitches();
+    }
+
+    @Override
+    protected void execute(DukeCore core) throws DukeException {
+        super.execute(core);
+        String path = cmd.getArg();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        } catch (IOException | InvalidPathException excp) {
+            throw new DukeException("I couldn't read the script '" + path + "'!");
+        }
+
+        Parser parser = new Parser(core.uiContext);
+        Executor executor = new Executor(core);
+        int commandCount = 0;
+        int failedLine = 0;
+        DukeException failure = null;
+        core.startBatch();
+        try {
+            for (int i = 0; i < lines.size() && failure == null; ++i) {
+                String line = lines.get(i).strip();
+                if (line.isEmpty() || line.startsWith(COMMENT_PREFIX)) {
+                    continue;
+                }
+                try {
+                    executor.execute(parser.parse(line));
+                    ++commandCount;
+                } catch (DukeFatalException excp) {
+                    throw excp;
+                } catch (DukeException excp) {
+                    failedLine = i + 1;
+                    failure = excp;
+                }
+            }
+        } finally {
+            core.finishBatch();
+        }
+
+        if (failure == null) {
+            core.updateUi("Ran " + commandCount + " commands from '" + path + "'.");
+        } else {
+            core.updateUi("Ran " + commandCount + " commands from '" + path + "' before line " + failedLine
+                    + " failed:");
+            throw failure;
+        }
+    }
+
+    /**
+     * Allows scripts to be run while the patients are open read-only, since each command in the script is checked
+     * before it is run.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
@@ -36,4 +36,9 @@ public class SearchSpec extends CommandSpec {
         DukeObject result = results.getResult(idx);
         core.executeQueuedCmd(result);
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
@@ -15,4 +15,9 @@ public class UpSpec extends CommandSpec {
     protected void execute(DukeCore core) throws DukeException {
         core.ui.showMessage(core.uiContext.moveUpOneContext());
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
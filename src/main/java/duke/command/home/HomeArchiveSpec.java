@@ -0,0 +1,44 @@
+package duke.command.home;
+
+import duke.DukeCore;
+import duke.command.ArgLevel;
+import duke.command.ArgSpec;
+import duke.data.storage.ArchiveEntry;
+import duke.exception.DukeException;
+
+import java.util.List;
+
+public class HomeArchiveSpec extends ArgSpec {
+    private static final HomeArchiveSpec spec = new HomeArchiveSpec();
+
+    public static HomeArchiveSpec getSpec() {
+        return spec;
+    }
+
+    private HomeArchiveSpec() {
+        cmdArgLevel = ArgLevel.OPTIONAL;
+        initSwitches();
+    }
+
+    @Override
+    protected void execute(DukeCore core) throws DukeException {
+        super.execute(core);
+        String searchTerm = cmd.getArg();
+        List<ArchiveEntry> entries = (searchTerm == null) ? core.archive.getEntries()
+                : core.archive.find(searchTerm);
+        if (entries.isEmpty()) {
+            throw new DukeException("There are no discharged patients matching that!");
+        }
+
+        StringBuilder message = new StringBuilder("Here are the discharged patients, most recent first:");
+        for (ArchiveEntry entry : entries) {
+            message.append(System.lineSeparator()).append(entry);
+        }
+        core.ui.showMessage(message.toString());
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
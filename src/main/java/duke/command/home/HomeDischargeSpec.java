@@ -7,14 +7,17 @@ import duke.command.ArgLevel;
 import duke.command.Switch;
 import duke.data.DukeObject;
 import duke.data.Patient;
+import duke.data.storage.DischargeArchive;
 import duke.exception.DukeException;
 
+import java.time.LocalDate;
+
 public class HomeDischargeSpec extends HomeObjSpec {
     private static final HomeDischargeSpec spec = new HomeDischargeSpec();
     private static final String header = "DISCHARGED PATIENT REPORT";
     private static final String explanation = "This report shows all the data that was stored about a patient at the "
             + "time the report was created.";
-    private static final String result = "Patient discharged. A discharge report has been created.";
+    private static final String result = "Patient discharged and archived. A discharge report has been created.";
 
     public static HomeDischargeSpec getSpec() {
         return spec;
@@ -31,7 +34,9 @@ public class HomeDischargeSpec extends HomeObjSpec {
     @Override
     protected void executeWithObj(DukeCore core, DukeObject obj) throws DukeException {
         Patient patient = (Patient) obj;
-        HomeReportSpec.createReport(patient, header, explanation, cmd.getSwitchVal("summary"));
+        HomeReportSpec.createReport(core, patient, header, explanation, cmd.getSwitchVal("summary"));
+        DischargeArchive.PendingEntry archived = DischargeArchive.prepare(patient, LocalDate.now());
+        core.writeFile(() -> core.archive.archive(archived));
         core.patientData.deletePatient(patient.getBedNo());
         core.writeJsonFile();
         core.updateUi(result);
@@ -44,10 +44,8 @@ public class HomeNewSpec extends ArgSpec {
         String address = cmd.getSwitchVal("address");
         String history = cmd.getSwitchVal("history");
         // TODO: format checks for bed number?
-        for (Patient patient : core.patientData.getPatientList()) {
-            if (patient.getBedNo().equals(bed)) {
-                throw new DukeException("There is already a patient at that bed!");
-            }
+        if (core.patientData.getPatientByBed(bed) != null) {
+            throw new DukeException("There is already a patient at that bed!");
         }
 
         Patient patient = new Patient(cmd.getSwitchVal("name"), bed,
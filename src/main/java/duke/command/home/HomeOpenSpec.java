@@ -43,4 +43,9 @@ public class HomeOpenSpec extends HomeObjSpec {
             core.ui.showMessage("Accessing details of " + patient.getName());
         }
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
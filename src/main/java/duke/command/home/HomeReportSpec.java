@@ -37,31 +37,43 @@ public class HomeReportSpec extends HomeObjSpec {
                 + " created.";
         Patient patient = (Patient) obj;
 
-        createReport(patient, header, explanation, cmd.getSwitchVal("summary"));
+        createReport(core, patient, header, explanation, cmd.getSwitchVal("summary"));
         core.updateUi("Patient report created for " + patient.getName());
     }
 
     /**
-     * Creates a report file for a patient.
+     * Creates a report file for a patient. The report shows the patient as it is now, but, while a line of several
+     * commands is running, it is only written once every command in the line has succeeded.
+     * @param core The core of Dr. Duke, which writes the report.
      * @param patient The patient that the report will be created for.
      * @param header The header of the report.
      * @param explanation An explanation that describes what the report will contain.
      * @param summary A summary that the doctor can write for the report, for example why the report is written.
      */
-    public static void createReport(Patient patient, String header, String explanation, String summary)
+    public static void createReport(DukeCore core, Patient patient, String header, String explanation, String summary)
             throws DukeFatalException {
+        String path = "data/reports" + File.separator + patient.getName() + "-" + patient.getBedNo() + ".txt";
+        StringBuilder report = new StringBuilder(header + "\n\n" + explanation + "\n\n");
+        if (summary != null) {
+            report.append("Report Summary: ").append(summary).append("\n\n");
+        }
+        report.append("Patient Data;\n");
+        report.append(patient.toReportString());
+        core.writeFile(() -> writeReport(path, report.toString()));
+    }
+
+    private static void writeReport(String path, String report) throws DukeFatalException {
         try {
-            FileWriter fileWriter = new FileWriter("data/reports" + File.separator + patient.getName() + "-"
-                    + patient.getBedNo() + ".txt");
-            fileWriter.write(header + "\n\n" + explanation + "\n\n");
-            if (summary != null) {
-                fileWriter.write("Report Summary: " + summary + "\n\n");
-            }
-            fileWriter.write("Patient Data;\n");
-            fileWriter.write(patient.toReportString());
+            FileWriter fileWriter = new FileWriter(path);
+            fileWriter.write(report);
             fileWriter.close();
         } catch (IOException e) {
             throw new DukeFatalException("Unable to create report! Some data may have been lost,");
         }
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
@@ -0,0 +1,53 @@
+package duke.command.home;
+
+import duke.DukeCore;
+import duke.command.ArgLevel;
+import duke.command.ArgSpec;
+import duke.command.Switch;
+import duke.data.Patient;
+import duke.data.storage.ArchiveEntry;
+import duke.exception.DukeException;
+
+import java.util.List;
+
+public class HomeRestoreSpec extends ArgSpec {
+    private static final HomeRestoreSpec spec = new HomeRestoreSpec();
+
+    public static HomeRestoreSpec getSpec() {
+        return spec;
+    }
+
+    private HomeRestoreSpec() {
+        cmdArgLevel = ArgLevel.REQUIRED;
+        initSwitches(
+                new Switch("bed", String.class, true, ArgLevel.REQUIRED, "b"),
+                new Switch("go", String.class, true, ArgLevel.NONE, "g")
+        );
+    }
+
+    /**
+     * Restores the most recently discharged patient who was in the bed given, or whose name contains it, placing the
+     * patient in a new bed if one is given.
+     */
+    @Override
+    protected void execute(DukeCore core) throws DukeException {
+        super.execute(core);
+        List<ArchiveEntry> entries = core.archive.find(cmd.getArg());
+        if (entries.isEmpty()) {
+            throw new DukeException("There is no discharged patient matching that!");
+        }
+
+        Patient patient = core.archive.restore(entries.get(0));
+        String bed = cmd.getSwitchVal("bed");
+        if (bed != null) {
+            patient.setBedNo(bed);
+        }
+        core.patientData.addPatient(patient);
+        core.writeJsonFile();
+        core.updateUi("Patient restored from the archive.");
+
+        if (cmd.isSwitchSet("go")) {
+            core.uiContext.open(patient);
+        }
+    }
+}
@@ -36,7 +36,7 @@ public class HomeUtils {
 
         int index = CommandUtils.idxFromString(nameOrIdx);
         if (index != -1) {
-            List<Patient> patientList = core.patientData.getPatientList();
+            List<Patient> patientList = core.patientData.getPatientsByBed();
             int count = patientList.size();
             if (index >= count) {
                 throw new DukeException("I have only " + ((count == 1) ? ("1 patient") : (count + " patients")) + " in "
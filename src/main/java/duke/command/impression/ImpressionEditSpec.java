@@ -67,10 +67,15 @@ public class ImpressionEditSpec extends ImpressionObjSpec {
         ImpressionUtils.editData(core, cmd, (DukeData) obj);
     }
 
-    private void editImpression(Impression impression, boolean isAppending) {
+    private void editImpression(Impression impression, boolean isAppending) throws DukeException {
         String newName = cmd.getSwitchVal("name");
         if (newName != null) {
-            impression.setName((isAppending) ? impression.getName() + " " + newName : newName);
+            String name = (isAppending) ? impression.getName() + " " + newName : newName;
+            Impression namesake = impression.getParent().getImpression(name);
+            if (namesake != null && namesake != impression) {
+                throw new DukeException("Impression already exists!");
+            }
+            impression.setName(name);
         }
 
         String newDesc = cmd.getSwitchVal("description");
@@ -9,8 +9,6 @@ import duke.data.Impression;
 import duke.data.SearchResults;
 import duke.exception.DukeException;
 
-import java.util.ArrayList;
-
 public class ImpressionFindSpec extends ObjSpec {
 
     private static final ImpressionFindSpec spec = new ImpressionFindSpec();
@@ -23,7 +21,8 @@ public class ImpressionFindSpec extends ObjSpec {
         cmdArgLevel = ArgLevel.REQUIRED;
         initSwitches(
                 new Switch("evidence", String.class, true, ArgLevel.NONE, "e"),
-                new Switch("treatment", String.class, true, ArgLevel.NONE, "t")
+                new Switch("treatment", String.class, true, ArgLevel.NONE, "t"),
+                new Switch("fuzzy", String.class, true, ArgLevel.NONE, "f")
         );
     }
 
@@ -31,25 +30,19 @@ public class ImpressionFindSpec extends ObjSpec {
     protected void execute(DukeCore core) throws DukeException {
         super.execute(core);
         String searchTerm = cmd.getArg();
-        ArrayList<DukeObject> searchResult = new ArrayList<>();
         Impression impression = (Impression) core.uiContext.getObject();
-        SearchResults results = new SearchResults(searchTerm, new ArrayList<DukeObject>(), impression);
-        if (cmd.getSwitchVals().isEmpty()) {
-            results = impression.searchAll(searchTerm);
-        } else {
-            if (cmd.getSwitchVals().containsKey("evidence")) {
-                results.addAll(impression.findEvidences(searchTerm));
-            }
-            if (cmd.getSwitchVals().containsKey("treatment")) {
-                results.addAll(impression.findTreatments(searchTerm));
-            }
-        }
-
-        processResults(core, results);
+        SearchResults results = (cmd.isSwitchSet("fuzzy")) ? impression.fuzzySearchAll(searchTerm)
+                : impression.searchAll(searchTerm);
+        processResults(core, filterResultsByType(results));
     }
 
     @Override
     protected void executeWithObj(DukeCore core, DukeObject obj) {
         core.uiContext.open(obj);
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
@@ -13,6 +13,7 @@ import duke.data.SearchResults;
 import duke.data.Treatment;
 import duke.exception.DukeException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class ImpressionMoveSpec extends ObjSpec {
@@ -106,10 +107,9 @@ public class ImpressionMoveSpec extends ObjSpec {
             results = patient.findImpressionsByName(targetImpressionName);
         }
 
-        List<DukeObject> resultList = results.getSearchList();
-        int currImpIdx = resultList.indexOf(currImpression);
-        if (currImpIdx != -1) { // remove this impression from the list if present
-            resultList.remove(currImpIdx);
+        if (results.hasResult(currImpression)) { // remove this impression from the list if present
+            List<DukeObject> resultList = new ArrayList<>(results.getSearchList());
+            resultList.remove(currImpression);
             results = new SearchResults(results.getName(), resultList, results.getParent());
         }
         return results;
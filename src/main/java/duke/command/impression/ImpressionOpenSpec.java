@@ -27,4 +27,9 @@ public class ImpressionOpenSpec extends ImpressionObjSpec {
         core.uiContext.open(obj);
         core.updateUi("Accessing " + obj.getClass().getSimpleName() + " '" + obj.getName() + "'");
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
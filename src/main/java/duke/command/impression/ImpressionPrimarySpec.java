@@ -17,7 +17,7 @@ public class ImpressionPrimarySpec extends CommandSpec {
     protected void execute(DukeCore core) throws DukeException {
         Impression impression = ImpressionUtils.getImpression(core);
         Patient patient = impression.getParent();
-        patient.setPrimaryDiagnosis(impression.getName());
+        patient.setPrimaryDiagnosis(impression);
         core.writeJsonFile();
         core.updateUi("Updated " + patient.getName() + "'s primary diagnosis to '" + impression.getName() + "'!");
     }
@@ -7,14 +7,17 @@ import duke.command.ArgLevel;
 import duke.command.ArgSpec;
 import duke.command.home.HomeReportSpec;
 import duke.data.Patient;
+import duke.data.storage.DischargeArchive;
 import duke.exception.DukeException;
 
+import java.time.LocalDate;
+
 public class PatientDischargeSpec extends ArgSpec {
     private static final PatientDischargeSpec spec = new PatientDischargeSpec();
     private static final String header = "DISCHARGED PATIENT REPORT";
     private static final String explanation = "This report shows all the data that was stored about a patient at the "
             + "time the report was created.";
-    private static final String result = "Patient discharged. A discharge report have been created.";
+    private static final String result = "Patient discharged and archived. A discharge report have been created.";
 
     public static PatientDischargeSpec getSpec() {
         return spec;
@@ -30,7 +33,9 @@ public class PatientDischargeSpec extends ArgSpec {
         super.execute(core);
         String arg = (cmd.getArg() == null) ? "" : cmd.getArg();
         Patient patient = (Patient) core.uiContext.getObject();
-        HomeReportSpec.createReport(patient, header, explanation, arg);
+        HomeReportSpec.createReport(core, patient, header, explanation, arg);
+        DischargeArchive.PendingEntry archived = DischargeArchive.prepare(patient, LocalDate.now());
+        core.writeFile(() -> core.archive.archive(archived));
         core.patientData.deletePatient(patient.getBedNo());
         core.uiContext.moveBackOneContext();
         core.writeJsonFile();
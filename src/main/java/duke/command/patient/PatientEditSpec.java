@@ -46,10 +46,7 @@ public class PatientEditSpec extends ArgSpec {
         String bedNo = cmd.getSwitchVal("bed");
         if (bedNo != null) {
             String newBed = (append) ? (patient.getBedNo() + " " + bedNo) : bedNo;
-            if (core.patientData.getPatientByBed(newBed) != null) {
-                throw new DukeException("There is already a patient at that bed!");
-            }
-            patient.setBedNo(newBed);
+            core.patientData.moveToBed(patient, newBed);
         }
 
         int height = cmd.switchToInt("height");
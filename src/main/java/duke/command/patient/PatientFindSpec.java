@@ -5,13 +5,10 @@ import duke.command.ArgLevel;
 import duke.command.ObjSpec;
 import duke.command.Switch;
 import duke.data.DukeObject;
-import duke.data.Impression;
 import duke.data.Patient;
 import duke.data.SearchResults;
 import duke.exception.DukeException;
 
-import java.util.ArrayList;
-
 public class PatientFindSpec extends ObjSpec {
 
     private static final PatientFindSpec spec = new PatientFindSpec();
@@ -25,7 +22,8 @@ public class PatientFindSpec extends ObjSpec {
         initSwitches(
                 new Switch("impression", String.class, true, ArgLevel.NONE, "i"),
                 new Switch("evidence", String.class, true, ArgLevel.NONE, "e"),
-                new Switch("treatment", String.class, true, ArgLevel.NONE, "t")
+                new Switch("treatment", String.class, true, ArgLevel.NONE, "t"),
+                new Switch("fuzzy", String.class, true, ArgLevel.NONE, "f")
         );
     }
 
@@ -34,28 +32,18 @@ public class PatientFindSpec extends ObjSpec {
         super.execute(core);
         String searchTerm = cmd.getArg();
         Patient patient = (Patient) core.uiContext.getObject();
-        SearchResults results = new SearchResults(searchTerm, new ArrayList<DukeObject>(), patient);
-        if (cmd.hasNoSwitches()) {
-            results = patient.searchAll(searchTerm);
-        } else {
-            if (cmd.isSwitchSet("impression")) {
-                results.addAll(patient.findImpressions(searchTerm));
-            }
-            ArrayList<Impression> impressionResult = patient.getImpressionList();
-            for (Impression imp : impressionResult) {
-                if (cmd.isSwitchSet("evidence")) {
-                    results.addAll(imp.findEvidences(searchTerm));
-                }
-                if (cmd.isSwitchSet("treatment")) {
-                    results.addAll(imp.findTreatments(searchTerm));
-                }
-            }
-        }
-        processResults(core, results);
+        SearchResults results = (cmd.isSwitchSet("fuzzy")) ? patient.fuzzySearchAll(searchTerm)
+                : patient.searchAll(searchTerm);
+        processResults(core, filterResultsByType(results));
     }
 
     @Override
     protected void executeWithObj(DukeCore core, DukeObject obj) {
         core.uiContext.open(obj);
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
@@ -28,4 +28,9 @@ public class PatientOpenSpec extends PatientObjSpec {
         core.updateUi("Accessing " + obj.getParent().getName() + "'s " + obj.getClass().getSimpleName() + " '"
                 + obj.getName() + "'");
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
@@ -38,7 +38,7 @@ public class PatientPrimarySpec extends ObjSpec {
     @Override
     protected void executeWithObj(DukeCore core, DukeObject obj) throws DukeException {
         assert (obj.getClass() == Impression.class);
-        PatientUtils.getPatient(core).setPrimaryDiagnosis(obj.getName());
+        PatientUtils.getPatient(core).setPrimaryDiagnosis((Impression) obj);
         core.writeJsonFile();
         core.updateUi("Primary diagnosis set!");
     }
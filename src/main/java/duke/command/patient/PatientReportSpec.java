@@ -25,7 +25,12 @@ public class PatientReportSpec extends ArgSpec {
     protected void execute(DukeCore core) throws DukeException {
         super.execute(core);
         DukeObject patient = core.uiContext.getObject();
-        HomeReportSpec.createReport((Patient) patient, header, explanation, null);
+        HomeReportSpec.createReport(core, (Patient) patient, header, explanation, null);
         core.updateUi("Patient report created for " + patient.getName());
     }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
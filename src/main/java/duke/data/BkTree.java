@@ -0,0 +1,158 @@
+package duke.data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A BK-tree of words, finding the words within an edit distance of a misspelled word without comparing it to every
+ * word. Each child of a node is keyed by its Levenshtein distance from the node, so by the triangle inequality, only
+ * the children whose key is within the edit distance of the distance from the node to the word can lead to a match.
+ *
+ * <p>Words cannot be taken out of a BK-tree without rebuilding the subtree below them, so removed words are only
+ * marked as such, and the tree is rebuilt once they make up half of it.
+ */
+class BkTree {
+
+    private static class Node {
+        private final String word;
+        private final Map<Integer, Node> children = new HashMap<>();
+        private boolean isRemoved = false;
+
+        private Node(String word) {
+            this.word = word;
+        }
+    }
+
+    private Node root = null;
+    private final Map<String, Node> nodes = new HashMap<>();
+    private int removedCount = 0;
+
+    /**
+     * Adds a word to the tree, if it is not already in it.
+     */
+    void add(String word) {
+        Node existing = nodes.get(word);
+        if (existing != null) {
+            if (existing.isRemoved) {
+                existing.isRemoved = false;
+                --removedCount;
+            }
+            return;
+        }
+
+        Node node = new Node(word);
+        nodes.put(word, node);
+        if (root == null) {
+            root = node;
+            return;
+        }
+        Node parent = root;
+        while (true) {
+            int distance = distance(word, parent.word, Integer.MAX_VALUE);
+            Node child = parent.children.get(distance);
+            if (child == null) {
+                parent.children.put(distance, node);
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    /**
+     * Removes a word from the tree, rebuilding it if too many of its words have been removed.
+     */
+    void remove(String word) {
+        Node node = nodes.get(word);
+        if (node == null || node.isRemoved) {
+            return;
+        }
+        node.isRemoved = true;
+        ++removedCount;
+        if (removedCount * 2 > nodes.size()) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        List<String> words = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (!node.isRemoved) {
+                words.add(node.word);
+            }
+        }
+        root = null;
+        nodes.clear();
+        removedCount = 0;
+        for (String word : words) {
+            add(word);
+        }
+    }
+
+    /**
+     * Finds the words in the tree within an edit distance of a word.
+     *
+     * @param word the word to look for
+     * @param maxDistance the greatest number of insertions, deletions and substitutions allowed
+     * @return the words found, each with its distance from the word
+     */
+    Map<String, Integer> search(String word, int maxDistance) {
+        Map<String, Integer> matches = new HashMap<>();
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(word, node.word, Integer.MAX_VALUE);
+            if (distance <= maxDistance && !node.isRemoved) {
+                matches.put(node.word, distance);
+            }
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Computes the Levenshtein distance between two words, giving up once it exceeds a limit.
+     *
+     * @param first the first word
+     * @param second the second word
+     * @param limit the distance beyond which the exact distance is not needed
+     * @return the distance, or a number greater than the limit if the distance exceeds it
+     */
+    static int distance(String first, String second, int limit) {
+        if (Math.abs(first.length() - second.length()) > limit) {
+            return limit + 1;
+        }
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); ++j) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length(); ++i) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= second.length(); ++j) {
+                int cost = (first.charAt(i - 1) == second.charAt(j - 1)) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+}
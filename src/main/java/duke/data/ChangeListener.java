@@ -0,0 +1,41 @@
+package duke.data;
+
+/**
+ * Is told about the changes to the ward that dashboards follow, as they are made to the patients in a
+ * {@link PatientData}. Listeners are called on the thread running commands, while the command making the change is
+ * still running, so they should only note the change down. Changes made by a line of commands that is rolled back are
+ * followed by {@link #changesRolledBack()}, and should be forgotten.
+ */
+public interface ChangeListener {
+
+    /**
+     * Called when a patient has been admitted to the ward, whether new or restored from the discharge archive.
+     */
+    void patientAdmitted(Patient patient);
+
+    /**
+     * Called when a patient has been discharged, and removed from the ward.
+     */
+    void patientDischarged(Patient patient);
+
+    /**
+     * Called when the priority of an evidence or treatment of a patient in the ward has been changed.
+     *
+     * @param data the evidence or treatment, with its new priority
+     * @param oldPriority the priority it had before
+     */
+    void priorityChanged(DukeData data, int oldPriority);
+
+    /**
+     * Called when the status of a treatment of a patient in the ward has been changed.
+     *
+     * @param treatment the treatment, with its new status
+     * @param oldStatusIdx the index of the status it had before
+     */
+    void statusChanged(Treatment treatment, int oldStatusIdx);
+
+    /**
+     * Called when the changes made since the patients were last saved have been rolled back.
+     */
+    void changesRolledBack();
+}
@@ -15,6 +15,7 @@ public abstract class DukeData extends DukeObject {
     public static final int PRIORITY_NONE = 0;
     private Integer priority;
     private transient Impression parent;
+    private transient boolean isCharted = false;
 
     /**
      * Abstraction of the evidence or treatment data of a patient.
@@ -42,8 +43,13 @@ public abstract class DukeData extends DukeObject {
         return parent;
     }
 
+    @Override
     public void setName(String name) {
+        String oldName = getName();
         super.setName(name);
+        if (isCharted && parent != null) {
+            parent.dataRenamed(this, oldName);
+        }
     }
 
     public Integer getPriority() {
@@ -64,10 +70,52 @@ public abstract class DukeData extends DukeObject {
         if (priority < 0 || priority > DukeData.PRIORITY_MAX) {
             throw new DukeException("Priority must be between 0 and " + DukeData.PRIORITY_MAX + "!");
         }
+        Integer oldPriority = this.priority;
         this.priority = priority;
+        markDirty();
+        chartChanged();
+        ChangeListener changeListener = getChangeListener();
+        if (changeListener != null && oldPriority != null && !oldPriority.equals(priority)) {
+            changeListener.priorityChanged(this, oldPriority);
+        }
         return getPriority();
     }
 
+    /**
+     * Checks if this data has been added to its impression, rather than only being created for it.
+     */
+    boolean isCharted() {
+        return isCharted;
+    }
+
+    void setCharted(boolean isCharted) {
+        this.isCharted = isCharted;
+    }
+
+    /**
+     * Returns the listener to tell about changes to this data, which is that of its patient once it has been charted.
+     */
+    ChangeListener getChangeListener() {
+        if (!isCharted || parent == null || parent.getParent() == null) {
+            return null;
+        }
+        return parent.getParent().getChangeListener();
+    }
+
+    /**
+     * Tells the impression and patient this data is charted under that its priority or status has changed, so that
+     * the impression can keep its data in display order and the patient can update its critical and follow-up lists.
+     */
+    void chartChanged() {
+        if (!isCharted || parent == null) {
+            return;
+        }
+        parent.reorder(this);
+        if (parent.getParent() != null) {
+            parent.getParent().updateCharted(this);
+        }
+    }
+
     @Override
     public String toString() {
         String informationString;
@@ -102,7 +150,12 @@ public abstract class DukeData extends DukeObject {
                      boolean isAppending)
             throws DukeException {
         if (newName != null) {
-            setName((isAppending) ? getName() + " " + newName : newName);
+            String name = (isAppending) ? getName() + " " + newName : newName;
+            if (isCharted && parent != null && parent.isNameTaken(this, name)) {
+                throw new DukeException("I already have " + ((this instanceof Evidence) ? "an evidence" : "a treatment")
+                        + " named that!");
+            }
+            setName(name);
         }
         if (newPriority != -1) {
             setPriority(newPriority);
@@ -2,10 +2,10 @@
 
 package duke.data;
 
-import duke.exception.DukeFatalException;
-import duke.ui.card.UiCard;
 import duke.ui.context.Context;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Highest level of abstraction for all DukeObjects storing Patient related Data
  * A Duke object has a relevant name specifying what it is.
@@ -14,12 +14,30 @@ import duke.ui.context.Context;
  */
 public abstract class DukeObject {
 
+    /**
+     * the greatest uid given to, or read back for, any object, so that new objects are never given the uid of one
+     * that has been stored.
+     */
+    private static final AtomicInteger lastUid = new AtomicInteger();
+
+    private int uid;
     private String name;
     private transient DukeObject parent;
+    private transient boolean isDirty;
+    private transient String[] searchKeys;
+    private transient String[][] searchKeyWords;
 
+    /**
+     * Creates a DukeObject. Objects created this way have never been saved, so they start out dirty, unlike those
+     * read back from storage.
+     *
+     * @param name the name of the object
+     * @param parent the object containing this one
+     */
     public DukeObject(String name, DukeObject parent) {
         this.name = name;
         this.parent = parent;
+        this.isDirty = true;
     }
 
     /**
@@ -40,12 +58,46 @@ public abstract class DukeObject {
      */
     public abstract String toReportString();
 
+    /**
+     * Returns the uid of this object, which identifies it among every object in the ward across renames, moves and
+     * restarts. Objects are given their uid the first time it is needed, unless storage has already set the uid it
+     * was saved with.
+     *
+     * @return the uid of this object, which is always positive
+     */
+    public int getUid() {
+        if (uid == 0) {
+            uid = lastUid.incrementAndGet();
+        }
+        return uid;
+    }
+
+    /**
+     * Sets the uid of an object read back from storage to the one it was saved with.
+     *
+     * @param uid the stored uid, which must be positive
+     */
+    public void setUid(int uid) {
+        assert (uid > 0);
+        this.uid = uid;
+        reserveUid(uid);
+    }
+
+    /**
+     * Makes sure that no object is given a uid read back from storage, even if the object stored with it has not been
+     * read back yet.
+     */
+    public static void reserveUid(int uid) {
+        lastUid.accumulateAndGet(uid, Math::max);
+    }
+
     public String getName() {
         return this.name;
     }
 
     public void setName(String name) {
         this.name = name;
+        markDirty();
     }
 
     public void setParent(DukeObject parent) {
@@ -56,12 +108,117 @@ public abstract class DukeObject {
         return parent;
     }
 
-    public abstract UiCard toCard() throws DukeFatalException;
+    /**
+     * Marks this object as changed since it was last saved, along with every object containing it, so that a save only
+     * needs to write out the patients that have changed. An object is never clean while one of its children is dirty,
+     * so marking stops at the first object that is already dirty. The cached search keys of this object are dropped,
+     * as it is only marked when it changes.
+     */
+    public void markDirty() {
+        searchKeys = null;
+        searchKeyWords = null;
+        DukeObject obj = this;
+        while (obj != null && !obj.isDirty) {
+            obj.isDirty = true;
+            obj = obj.getParent();
+        }
+
+        DukeObject root = this;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        root.contentChanged();
+    }
+
+    /**
+     * Called on the outermost object containing an object that has just been changed, or on the object itself if it
+     * is not contained in any other, such as a patient, so that anything derived from its contents can be updated.
+     */
+    protected void contentChanged() {
+        // for subclasses that keep track of changes to their contents
+    }
+
+    public boolean isDirty() {
+        return isDirty;
+    }
+
+    /**
+     * Marks this object as saved. Subclasses holding other DukeObjects clear them as well.
+     */
+    public void clearDirty() {
+        isDirty = false;
+    }
 
     public abstract Context toContext();
 
+    /**
+     * Checks if any of the fields of this object that are searched contain a search term, ignoring case.
+     *
+     * @param searchTerm the substring to be checked
+     * @return true if it is contained
+     */
     public boolean contains(String searchTerm) {
-        return name.toLowerCase().contains(searchTerm.toLowerCase());
+        return containsFolded(searchTerm.toLowerCase());
+    }
+
+    /**
+     * Checks if any of the fields of this object that are searched contain a search term already in lower case, so
+     * that many objects can be checked against one search term without converting anything for each of them.
+     */
+    boolean containsFolded(String lowerSearchTerm) {
+        for (String key : getSearchKeys()) {
+            if (key.contains(lowerSearchTerm)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the name of this object contains a search term already in lower case.
+     */
+    boolean nameContainsFolded(String lowerSearchTerm) {
+        return getSearchKeys()[0].contains(lowerSearchTerm);
+    }
+
+    /**
+     * Returns the text fields of this object that searches look in, starting with its name. Subclasses with more text
+     * than their name add their other fields after it.
+     */
+    protected String[] getSearchFields() {
+        return new String[] {name};
+    }
+
+    /**
+     * Returns the fields from {@link #getSearchFields()} in lower case, with missing fields as empty strings. They are
+     * computed when first needed and kept until this object is next changed.
+     */
+    final String[] getSearchKeys() {
+        if (searchKeys == null) {
+            String[] fields = getSearchFields();
+            String[] keys = new String[fields.length];
+            for (int i = 0; i < fields.length; ++i) {
+                keys[i] = (fields[i] == null) ? "" : fields[i].toLowerCase();
+            }
+            searchKeys = keys;
+        }
+        return searchKeys;
+    }
+
+    /**
+     * Returns the words of each of the fields from {@link #getSearchKeys()}, computed when first needed and kept until
+     * this object is next changed.
+     */
+    final String[][] getSearchKeyWords() {
+        if (searchKeyWords == null) {
+            String[] keys = getSearchKeys();
+            String[][] words = new String[keys.length][];
+            for (int i = 0; i < keys.length; ++i) {
+                words[i] = SearchIndex.splitWords(keys[i]);
+            }
+            searchKeyWords = words;
+        }
+        return searchKeyWords;
     }
 
     public void update() {
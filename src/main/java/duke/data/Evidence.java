@@ -1,8 +1,6 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.exception.DukeFatalException;
-import duke.ui.card.EvidenceCard;
 
 import java.util.Map;
 
@@ -33,11 +31,9 @@ public abstract class Evidence extends DukeData {
 
     public void setSummary(String summary) {
         this.summary = summary;
+        markDirty();
     }
 
-    @Override
-    public abstract EvidenceCard toCard() throws DukeFatalException;
-
     @Override
     public String toString() {
         String informationString;
@@ -64,7 +60,7 @@ public abstract class Evidence extends DukeData {
     }
 
     @Override
-    public boolean contains(String searchTerm) {
-        return super.contains(searchTerm) || summary.toLowerCase().contains(searchTerm.toLowerCase());
+    protected String[] getSearchFields() {
+        return new String[] {getName(), summary};
     }
 }
@@ -0,0 +1,95 @@
+package duke.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Matches objects against a search term that may be misspelled. Each word of the search term must be contained in,
+ * or be within a few edits of, a word in one of the searched fields of an object. Objects are ranked by the total
+ * number of edits needed to match every word, and then by where the words were matched, with matches in the name
+ * ranked above matches in the other fields. Objects ranked equally keep the order they are given in.
+ */
+class FuzzyMatcher {
+
+    /**
+     * the score added for every edit needed to match a word of the search term.
+     */
+    private static final int EDIT_WEIGHT = 2;
+
+    /**
+     * the score added for a word of the search term that is only matched outside the name of an object.
+     */
+    private static final int FIELD_WEIGHT = 1;
+
+    /**
+     * Returns the number of edits allowed when matching a word of a search term: none for words of up to two
+     * letters, which would otherwise match nearly every short word, one for words of up to five, and two otherwise.
+     */
+    static int getMaxDistance(String searchWord) {
+        if (searchWord.length() <= 2) {
+            return 0;
+        }
+        return (searchWord.length() <= 5) ? 1 : 2;
+    }
+
+    /**
+     * Finds the objects matching every word of a search term, best match first.
+     *
+     * @param objects the objects to match
+     * @param searchWords the words of the search term, in lower case
+     * @return the matching objects, ranked
+     */
+    static List<DukeObject> rank(Collection<? extends DukeObject> objects, String[] searchWords) {
+        List<DukeObject> matches = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        for (DukeObject obj : objects) {
+            int score = score(obj, searchWords);
+            if (score >= 0) {
+                matches.add(obj);
+                scores.add(score);
+            }
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < matches.size(); ++i) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(scores::get));
+        List<DukeObject> ranked = new ArrayList<>();
+        for (int idx : order) {
+            ranked.add(matches.get(idx));
+        }
+        return ranked;
+    }
+
+    /**
+     * Scores how well an object matches a search term, the lower the better.
+     *
+     * @return the score, or -1 if a word of the search term matches no word of the object
+     */
+    private static int score(DukeObject obj, String[] searchWords) {
+        String[][] fieldWords = obj.getSearchKeyWords();
+        int total = 0;
+        for (String searchWord : searchWords) {
+            int maxDistance = getMaxDistance(searchWord);
+            int best = -1;
+            for (int i = 0; i < fieldWords.length; ++i) {
+                int fieldScore = (i == 0) ? 0 : FIELD_WEIGHT;
+                for (String word : fieldWords[i]) {
+                    int distance = word.contains(searchWord) ? 0 : BkTree.distance(searchWord, word, maxDistance);
+                    if (distance <= maxDistance) {
+                        int wordScore = distance * EDIT_WEIGHT + fieldScore;
+                        best = (best == -1) ? wordScore : Math.min(best, wordScore);
+                    }
+                }
+            }
+            if (best == -1) {
+                return -1;
+            }
+            total += best;
+        }
+        return total;
+    }
+}
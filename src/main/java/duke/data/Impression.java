@@ -1,19 +1,31 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.exception.DukeFatalException;
-import duke.ui.card.ImpressionCard;
 import duke.ui.context.Context;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 public class Impression extends DukeObject {
 
+    /**
+     * Orders evidences and treatments by priority, with critical items first and items with no priority last.
+     */
+    private static final Comparator<DukeData> PRIORITY_ORDER = Comparator.comparingInt(Impression::getRank);
+
+    /**
+     * Orders treatments by priority, as for evidences, and then by status.
+     */
+    private static final Comparator<Treatment> TREATMENT_ORDER = Comparator.<Treatment>comparingInt(Impression::getRank)
+            .thenComparing(Treatment::getStatusIdx);
+
     private String description;
     private ArrayList<Evidence> evidences;
     private ArrayList<Treatment> treatments;
     private transient Patient parent;
+    private final transient NameIndex<Evidence> evidenceNames = new NameIndex<>();
+    private final transient NameIndex<Treatment> treatmentNames = new NameIndex<>();
 
     // TODO: integrate finding with autocorrect?
 
@@ -66,40 +78,62 @@ public class Impression extends DukeObject {
         return results;
     }
 
-    private void sortEvidences() {
-        evidences.sort(((Comparator<Evidence>) (a1, a2) -> {
-            int a1Priority = a1.getPriority();
-            int a2Priority = a2.getPriority();
-            if (a1Priority != 0 && a2Priority != 0) {
-                if (a1Priority == a2Priority) {
-                    return 0;
-                }
-                return (a1Priority < a2Priority) ? -1 : 1;
-            } else if (a1Priority == 0 && a2Priority == 0) {
-                return 0;
+    private static int getRank(DukeData data) {
+        return (data.getPriority() == DukeData.PRIORITY_NONE) ? Integer.MAX_VALUE : data.getPriority();
+    }
+
+    /**
+     * Inserts an item into a list kept in order, after any items that it is ordered equally with, finding where it
+     * goes by binary search.
+     */
+    private static <T> void insertSorted(List<T> list, T item, Comparator<? super T> order) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.compare(list.get(mid), item) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        list.add(low, item);
+    }
+
+    /**
+     * Removes an item from a list kept in order, searching only the items ordered equally with it, which are found by
+     * binary search. Items whose order has changed since they were inserted are looked for in the whole list.
+     *
+     * @return true if the item was in the list
+     */
+    private static <T> boolean removeSorted(List<T> list, T item, Comparator<? super T> order) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.compare(list.get(mid), item) < 0) {
+                low = mid + 1;
             } else {
-                return (a1Priority == 0) ? 1 : -1;
+                high = mid;
+            }
+        }
+        for (int idx = low; idx < list.size() && order.compare(list.get(idx), item) == 0; ++idx) {
+            if (list.get(idx) == item) {
+                list.remove(idx);
+                return true;
             }
         }
-            ));
+        return removeIdentical(list, item);
     }
 
-    private void sortTreatments() {
-        treatments.sort(((Comparator<Treatment>) (a1, a2) -> {
-                    int a1Priority = a1.getPriority();
-                    int a2Priority = a2.getPriority();
-                    if (a1Priority != 0 && a2Priority != 0) {
-                        if (a1Priority == a2Priority) {
-                            return 0;
-                        }
-                        return (a1Priority < a2Priority) ? -1 : 1;
-                    } else if (a1Priority == 0 && a2Priority == 0) {
-                        return 0;
-                    } else {
-                        return (a1Priority == 0) ? 1 : -1;
-                    }
-                }
-            ).thenComparing(Treatment::getStatusIdx));
+    private static <T> boolean removeIdentical(List<T> list, T item) {
+        for (int idx = 0; idx < list.size(); ++idx) {
+            if (list.get(idx) == item) {
+                list.remove(idx);
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -110,8 +144,10 @@ public class Impression extends DukeObject {
      */
     public Evidence addNewEvidence(Evidence newEvidence) throws DukeException {
         if (getEvidence(newEvidence.getName()) == null) {
-            evidences.add(newEvidence);
-            sortEvidences();
+            insertSorted(evidences, newEvidence, PRIORITY_ORDER);
+            evidenceNames.add(newEvidence);
+            chart(newEvidence);
+            markDirty();
             return newEvidence;
         }
         throw new DukeException("I already have an Evidence named that!");
@@ -126,8 +162,10 @@ public class Impression extends DukeObject {
     public Evidence deleteEvidence(String keyIdentifier) throws DukeException {
         Evidence deletedEvidence = getEvidence(keyIdentifier);
         if (deletedEvidence != null) {
-            evidences.remove(deletedEvidence);
-            sortEvidences();
+            removeSorted(evidences, deletedEvidence, PRIORITY_ORDER);
+            evidenceNames.remove(deletedEvidence);
+            unchart(deletedEvidence);
+            markDirty();
             return deletedEvidence;
         } else {
             throw new DukeException("I don't have an evidence named that!");
@@ -141,14 +179,7 @@ public class Impression extends DukeObject {
      * @return the evidence specified by the index
      */
     public Evidence getEvidence(String keyIdentifier) {
-        String lowerKey = keyIdentifier.toLowerCase();
-        for (Evidence evidence : evidences) {
-            String dataName = evidence.getName().toLowerCase();
-            if (dataName.equals(lowerKey)) {
-                return evidence;
-            }
-        }
-        return null;
+        return evidenceNames.get(keyIdentifier);
     }
 
     /**
@@ -159,8 +190,10 @@ public class Impression extends DukeObject {
      */
     public Treatment addNewTreatment(Treatment newTreatment) throws DukeException {
         if (getTreatment(newTreatment.getName()) == null) {
-            treatments.add(newTreatment);
-            sortTreatments();
+            insertSorted(treatments, newTreatment, TREATMENT_ORDER);
+            treatmentNames.add(newTreatment);
+            chart(newTreatment);
+            markDirty();
             return newTreatment;
         }
         throw new DukeException("I already have a treatment named that.");
@@ -189,13 +222,40 @@ public class Impression extends DukeObject {
     public Treatment deleteTreatment(String keyIdentifier) throws DukeException {
         Treatment deletedTreatment = getTreatment(keyIdentifier);
         if (deletedTreatment != null) {
-            treatments.remove(deletedTreatment);
-            sortEvidences();
+            removeSorted(treatments, deletedTreatment, TREATMENT_ORDER);
+            treatmentNames.remove(deletedTreatment);
+            unchart(deletedTreatment);
+            markDirty();
             return deletedTreatment;
         }
         throw new DukeException("I don't have a treatment named that!");
     }
 
+    /**
+     * Makes an evidence or treatment just added to this impression belong to it, and tells the patient, so that it can
+     * be listed as critical or for follow-up.
+     */
+    private void chart(DukeData data) {
+        data.setParent(this);
+        data.setCharted(true);
+        if (parent != null) {
+            parent.updateCharted(data);
+        }
+    }
+
+    /**
+     * Tells the patient that an evidence or treatment has been taken out of this impression. Data that has been moved
+     * to another impression already belongs to it, and stays charted there.
+     */
+    private void unchart(DukeData data) {
+        if (data.getParent() == this) {
+            data.setCharted(false);
+        }
+        if (parent != null) {
+            parent.updateCharted(data);
+        }
+    }
+
     /**
      * This getTreatment function returns the treatment from the treatment list at the specified index.
      *
@@ -203,14 +263,36 @@ public class Impression extends DukeObject {
      * @return the treatment specified by the index
      */
     public Treatment getTreatment(String keyIdentifier) {
-        String lowerKey = keyIdentifier.toLowerCase();
-        for (Treatment treatment : treatments) {
-            String dataName = treatment.getName().toLowerCase();
-            if (dataName.equals(lowerKey)) {
-                return treatment;
-            }
+        return treatmentNames.get(keyIdentifier);
+    }
+
+    /**
+     * Checks if another evidence or treatment of the same kind as some data in this impression already has a name,
+     * ignoring case, so that the data cannot be renamed to it.
+     */
+    boolean isNameTaken(DukeData data, String name) {
+        DukeData namesake = (data instanceof Evidence) ? getEvidence(name) : getTreatment(name);
+        return namesake != null && namesake != data;
+    }
+
+    /**
+     * Indexes an evidence or treatment of this impression that has just been renamed under its new name.
+     */
+    void dataRenamed(DukeData data, String oldName) {
+        if (data instanceof Evidence) {
+            evidenceNames.rename((Evidence) data, oldName);
+        } else if (data instanceof Treatment) {
+            treatmentNames.rename((Treatment) data, oldName);
+        }
+    }
+
+    @Override
+    public void setName(String name) {
+        String oldName = getName();
+        super.setName(name);
+        if (parent != null) {
+            parent.impressionRenamed(this, oldName);
         }
-        return null;
     }
 
     @Override
@@ -248,6 +330,7 @@ public class Impression extends DukeObject {
 
     public void setDescription(String description) {
         this.description = description;
+        markDirty();
     }
 
     public ArrayList<Evidence> getEvidences() {
@@ -259,15 +342,75 @@ public class Impression extends DukeObject {
     }
 
     /**
-     * This function initialises the parent of each evidence and treatment held to this Impression.
+     * Returns the evidences of this impression followed by its treatments.
+     */
+    List<DukeData> getDataList() {
+        List<DukeData> dataList = new ArrayList<>(evidences);
+        dataList.addAll(treatments);
+        return dataList;
+    }
+
+    /**
+     * Returns the position of an evidence or treatment of this impression in the list returned by
+     * {@link #getDataList()}, or -1 if it is not in this impression.
+     */
+    int getChartPosition(DukeData data) {
+        if (data instanceof Evidence) {
+            return indexOfIdentical(evidences, data);
+        }
+        int treatmentIdx = indexOfIdentical(treatments, data);
+        return (treatmentIdx == -1) ? -1 : evidences.size() + treatmentIdx;
+    }
+
+    private static int indexOfIdentical(List<? extends DukeData> list, DukeData item) {
+        for (int idx = 0; idx < list.size(); ++idx) {
+            if (list.get(idx) == item) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves an evidence or treatment of this impression whose priority or status has changed to its new place in
+     * the display order.
+     */
+    void reorder(DukeData data) {
+        if (data instanceof Evidence && removeIdentical(evidences, (Evidence) data)) {
+            insertSorted(evidences, (Evidence) data, PRIORITY_ORDER);
+        } else if (data instanceof Treatment && removeIdentical(treatments, (Treatment) data)) {
+            insertSorted(treatments, (Treatment) data, TREATMENT_ORDER);
+        }
+    }
+
+    /**
+     * This function initialises the parent of each evidence and treatment held to this Impression, once they have
+     * been read back from storage, puts them in display order if they were not stored in it, and indexes them by name.
      */
     public void initChildren() {
+        evidences.sort(PRIORITY_ORDER);
+        treatments.sort(TREATMENT_ORDER);
+        evidenceNames.reindex(evidences);
+        treatmentNames.reindex(treatments);
         for (Evidence evidence : evidences) {
             evidence.setParent(this);
+            evidence.setCharted(true);
         }
 
         for (Treatment treatment : treatments) {
             treatment.setParent(this);
+            treatment.setCharted(true);
+        }
+    }
+
+    @Override
+    public void clearDirty() {
+        super.clearDirty();
+        for (Evidence evidence : evidences) {
+            evidence.clearDirty();
+        }
+        for (Treatment treatment : treatments) {
+            treatment.clearDirty();
         }
     }
 
@@ -328,12 +471,9 @@ public class Impression extends DukeObject {
                 && getParent() == impression.getParent();
     }
 
-    public ImpressionCard toCard() throws DukeFatalException {
-        return new ImpressionCard(this);
-    }
-
-    public boolean contains(String searchTerm) {
-        return super.contains(searchTerm) || description.toLowerCase().contains(searchTerm.toLowerCase());
+    @Override
+    protected String[] getSearchFields() {
+        return new String[] {getName(), description};
     }
 
     @Override
@@ -381,7 +521,7 @@ public class Impression extends DukeObject {
         ArrayList<Treatment> treatmentList = new ArrayList<>();
         String lowerSearchTerm = searchTerm.toLowerCase();
         for (Treatment treatment : treatments) {
-            if (treatment.contains(lowerSearchTerm)) {
+            if (treatment.containsFolded(lowerSearchTerm)) {
                 treatmentList.add(treatment);
             }
         }
@@ -400,7 +540,7 @@ public class Impression extends DukeObject {
         ArrayList<Evidence> evidenceList = new ArrayList<>();
         String lowerSearchTerm = searchTerm.toLowerCase();
         for (Evidence evidence : evidences) {
-            if (evidence.contains(lowerSearchTerm)) {
+            if (evidence.containsFolded(lowerSearchTerm)) {
                 evidenceList.add(evidence);
             }
         }
@@ -422,6 +562,22 @@ public class Impression extends DukeObject {
         return results;
     }
 
+    /**
+     * Finds the DukeData associated with this impression matching every word of the search term, allowing for
+     * misspellings, best match first, with equally good matches in the order {@link #searchAll(String)} finds them.
+     *
+     * @param searchTerm String to be used to filter the DukeData
+     * @return the matching DukeData, ranked
+     */
+    public SearchResults fuzzySearchAll(String searchTerm) {
+        if (searchTerm.isBlank()) {
+            return searchAll(searchTerm);
+        }
+        ArrayList<DukeObject> objects = new ArrayList<>(getEvidences());
+        objects.addAll(getTreatments());
+        return new SearchResults(searchTerm, FuzzyMatcher.rank(objects, SearchIndex.splitWords(searchTerm)), this);
+    }
+
     /* @@author JeremyKwok */
     
     /**
@@ -434,7 +590,7 @@ public class Impression extends DukeObject {
         ArrayList<Treatment> treatmentList = new ArrayList<>();
         String lowerSearchTerm = searchTerm.toLowerCase();
         for (Treatment entry : treatments) {
-            if (entry.getName().toLowerCase().contains(lowerSearchTerm)) {
+            if (entry.nameContainsFolded(lowerSearchTerm)) {
                 treatmentList.add(entry);
             }
         }
@@ -453,7 +609,7 @@ public class Impression extends DukeObject {
         ArrayList<Evidence> evidenceList = new ArrayList<>();
         String lowerSearchTerm = searchTerm.toLowerCase();
         for (Evidence entry : evidences) {
-            if (entry.getName().toLowerCase().contains(lowerSearchTerm)) {
+            if (entry.nameContainsFolded(lowerSearchTerm)) {
                 evidenceList.add(entry);
             }
         }
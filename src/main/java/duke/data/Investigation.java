@@ -1,8 +1,6 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.exception.DukeFatalException;
-import duke.ui.card.InvestigationCard;
 import duke.ui.context.Context;
 
 import java.util.Arrays;
@@ -57,11 +55,6 @@ public class Investigation extends SummaryTreatment {
         return Collections.unmodifiableList(statusArr);
     }
 
-    @Override
-    public InvestigationCard toCard() throws DukeFatalException {
-        return new InvestigationCard(this);
-    }
-
     @Override
     public Context toContext() {
         return Context.INVESTIGATION;
@@ -1,8 +1,6 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.exception.DukeFatalException;
-import duke.ui.card.MedicineCard;
 import duke.ui.context.Context;
 
 import java.util.Arrays;
@@ -61,6 +59,7 @@ public class Medicine extends Treatment {
 
     public void setDose(String dose) {
         this.dose = dose;
+        markDirty();
     }
 
     public String getDuration() {
@@ -69,6 +68,7 @@ public class Medicine extends Treatment {
 
     public void setDuration(String duration) {
         this.duration = duration;
+        markDirty();
     }
 
     public String getStartDate() {
@@ -77,6 +77,7 @@ public class Medicine extends Treatment {
 
     public void setStartDate(String startDate) {
         this.startDate = startDate;
+        markDirty();
     }
 
     public String getStatusStr() {
@@ -122,21 +123,14 @@ public class Medicine extends Treatment {
         }
     }
 
-    public MedicineCard toCard() throws DukeFatalException {
-        return new MedicineCard(this);
-    }
-
     @Override
     public Context toContext() {
         return Context.MEDICINE;
     }
 
     @Override
-    public boolean contains(String searchTerm) {
-        String lowerSearchTerm = searchTerm.toLowerCase();
-        return super.contains(searchTerm) || duration.toLowerCase().contains(lowerSearchTerm)
-                || startDate.toLowerCase().contains(lowerSearchTerm)
-                || dose.toLowerCase().contains(lowerSearchTerm);
+    protected String[] getSearchFields() {
+        return new String[] {getName(), duration, startDate, dose};
     }
 
     @Override
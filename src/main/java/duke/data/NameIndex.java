@@ -0,0 +1,90 @@
+package duke.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the objects in a list by name, ignoring case, without comparing the name against every object in it. Names
+ * are expected to be unique within the list, which the lists of a patient and an impression check before adding or
+ * renaming an object, but data saved before that was checked may have two objects sharing a name, so every object is
+ * indexed under its name, and the one indexed first is found.
+ *
+ * <p>The index is kept up to date as objects are added, removed and renamed. Storage fills the lists of objects it
+ * reads back directly, so the patient or impression holding a list indexes it again once storage has filled it.
+ *
+ * @param <T> the type of the objects in the list
+ */
+class NameIndex<T extends DukeObject> {
+
+    private final Map<String, List<T>> objects = new HashMap<>();
+
+    /**
+     * Finds the object in the list with a name, ignoring case.
+     *
+     * @param name the name to look for
+     * @return the first object indexed with that name, or null if there is none
+     */
+    T get(String name) {
+        List<T> namesakes = objects.get(toKey(name));
+        return (namesakes == null) ? null : namesakes.get(0);
+    }
+
+    /**
+     * Indexes an object just added to the list.
+     */
+    void add(T obj) {
+        objects.computeIfAbsent(toKey(obj.getName()), key -> new ArrayList<>(1)).add(obj);
+    }
+
+    /**
+     * Removes an object just removed from the list from the index.
+     */
+    void remove(T obj) {
+        remove(obj, toKey(obj.getName()));
+    }
+
+    /**
+     * Indexes an object in the list under its new name, if it was indexed under its old one.
+     */
+    void rename(T obj, String oldName) {
+        if (remove(obj, toKey(oldName))) {
+            add(obj);
+        }
+    }
+
+    /**
+     * Empties the index, and indexes the objects in a list that has been filled or replaced.
+     *
+     * @param list the list that this index is kept for
+     */
+    void reindex(List<? extends T> list) {
+        clear();
+        for (T obj : list) {
+            add(obj);
+        }
+    }
+
+    /**
+     * Empties the index, for a list that has been removed.
+     */
+    void clear() {
+        objects.clear();
+    }
+
+    private boolean remove(T obj, String key) {
+        List<T> namesakes = objects.get(key);
+        if (namesakes == null || !namesakes.remove(obj)) {
+            return false;
+        }
+        if (namesakes.isEmpty()) {
+            objects.remove(key);
+        }
+        return true;
+    }
+
+    private static String toKey(String name) {
+        return (name == null) ? "" : name.toLowerCase();
+    }
+}
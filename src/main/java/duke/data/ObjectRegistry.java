@@ -0,0 +1,152 @@
+package duke.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the patients in the ward, and their impressions, evidences and treatments, by {@link DukeObject#getUid() uid},
+ * so that an object can be referred to by its uid wherever it is, whatever it has been renamed to.
+ *
+ * <p>Like the {@link SearchIndex}, the registry is kept up to date a patient at a time: a patient is marked stale
+ * whenever it or anything in it is changed, loaded or unloaded, and the contents of stale patients are registered
+ * again before the next lookup. The uids of unloaded impressions and their contents, whether they have been unloaded
+ * or were never read, as storage gives the uids of the contents of the patients it loads with only the details shown on
+ * their cards, are kept with the patient they belong to, which is loaded if one of them is looked up. Uids that belong
+ * to no object are therefore answered without loading anything.
+ */
+class ObjectRegistry {
+
+    private final Map<Integer, DukeObject> objects = new HashMap<>();
+    private final Map<Integer, Patient> unloadedOwners = new HashMap<>();
+    private final Map<Patient, List<DukeObject>> patientContents = new HashMap<>();
+    private final Map<Patient, List<Integer>> unloadedUids = new HashMap<>();
+    private final Set<Patient> stalePatients = new LinkedHashSet<>();
+
+    /**
+     * Adds a patient, and everything in it, to the registry.
+     */
+    void add(Patient patient) {
+        patient.setRegistry(this);
+        objects.put(patient.getUid(), patient);
+        if (patient.isLoaded()) {
+            stalePatients.add(patient);
+        } else {
+            registerUnloaded(patient, patient.getUnloadedUids());
+        }
+    }
+
+    /**
+     * Removes a patient, and everything in it, from the registry.
+     */
+    void remove(Patient patient) {
+        patient.setRegistry(null);
+        objects.remove(patient.getUid(), patient);
+        unregisterContents(patient);
+        stalePatients.remove(patient);
+    }
+
+    /**
+     * Marks a patient to have its contents registered again before the next lookup, as it or something in it has been
+     * changed, loaded or unloaded.
+     */
+    void markStale(Patient patient) {
+        stalePatients.add(patient);
+    }
+
+    /**
+     * Keeps the uids of the contents of a patient that is about to unload its impressions, so that it can be loaded
+     * again if one of them is looked up. Must be called while the impressions are still loaded.
+     */
+    void unload(Patient patient) {
+        if (stalePatients.remove(patient)) {
+            registerContents(patient);
+        }
+        List<DukeObject> contents = patientContents.remove(patient);
+        if (contents == null) {
+            return;
+        }
+        List<Integer> uids = new ArrayList<>();
+        for (DukeObject obj : contents) {
+            objects.remove(obj.getUid(), obj);
+            uids.add(obj.getUid());
+        }
+        patient.setUnloadedUids(uids);
+        registerUnloaded(patient, uids);
+    }
+
+    private void registerUnloaded(Patient patient, List<Integer> uids) {
+        if (uids == null) {
+            return;
+        }
+        for (int uid : uids) {
+            unloadedOwners.put(uid, patient);
+        }
+        unloadedUids.put(patient, uids);
+    }
+
+    /**
+     * Finds the object with a uid, loading the impressions of the patient it belongs to if needed.
+     *
+     * @param uid the uid of the object
+     * @return the object, or null if there is no object in the ward with that uid
+     */
+    DukeObject find(int uid) {
+        refresh();
+        DukeObject obj = objects.get(uid);
+        if (obj != null) {
+            return obj;
+        }
+
+        Patient owner = unloadedOwners.get(uid);
+        if (owner != null) {
+            owner.getImpressionList();
+            refresh();
+            obj = objects.get(uid);
+        }
+        return obj;
+    }
+
+    private void refresh() {
+        for (Patient patient : stalePatients) {
+            registerContents(patient);
+        }
+        stalePatients.clear();
+    }
+
+    private void registerContents(Patient patient) {
+        unregisterContents(patient);
+        if (!patient.isLoaded()) {
+            registerUnloaded(patient, patient.getUnloadedUids());
+            return;
+        }
+
+        List<DukeObject> contents = new ArrayList<>();
+        for (Impression impression : patient.getImpressionList()) {
+            contents.add(impression);
+            contents.addAll(impression.getDataList());
+        }
+        for (DukeObject obj : contents) {
+            objects.put(obj.getUid(), obj);
+        }
+        patientContents.put(patient, contents);
+    }
+
+    private void unregisterContents(Patient patient) {
+        List<DukeObject> contents = patientContents.remove(patient);
+        if (contents != null) {
+            for (DukeObject obj : contents) {
+                objects.remove(obj.getUid(), obj);
+            }
+        }
+        List<Integer> uids = unloadedUids.remove(patient);
+        if (uids != null) {
+            for (int uid : uids) {
+                unloadedOwners.remove(uid, patient);
+            }
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.exception.DukeFatalException;
-import duke.ui.card.ObservationCard;
 import duke.ui.context.Context;
 
 import java.util.Map;
@@ -64,11 +62,7 @@ public class Observation extends Evidence {
 
     public void setObjective(boolean objective) {
         isObjective = objective;
-    }
-
-    @Override
-    public ObservationCard toCard() throws DukeFatalException {
-        return new ObservationCard(this);
+        markDirty();
     }
 
     @Override
@@ -1,17 +1,33 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.exception.DukeFatalException;
-import duke.ui.card.PatientCard;
 import duke.ui.context.Context;
 
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class Patient extends DukeObject {
+
+    /**
+     * The position of the allergies in the search fields of a patient.
+     */
+    private static final int ALLERGIES_KEY = 1;
+
     private String bedNo;
     private String allergies;
     private Impression primaryDiagnosis;
     private ArrayList<Impression> impressionList;
+    private transient LinkedHashSet<Treatment> followUpSet;
+    private transient LinkedHashSet<DukeData> criticalSet;
     private transient ArrayList<Treatment> followUpList;
     private transient ArrayList<DukeData> criticalList;
     private Integer height;
@@ -20,6 +36,23 @@ public class Patient extends DukeObject {
     private Integer number;
     private String address;
     private String history;
+    private transient String id;
+
+    /**
+     * reads back the impressions of a patient loaded from storage. While they are not loaded, the impression list,
+     * primary diagnosis and critical and follow-up lists are null, and the primary diagnosis name and critical count
+     * stand in for them on the patient's card.
+     */
+    private transient PatientLoader loader;
+    private transient String primaryDiagnosisName;
+    private transient int criticalCount;
+    private transient List<Integer> unloadedUids;
+    private transient Set<String> unloadedSearchWords;
+    private transient SearchIndex searchIndex;
+    private transient ObjectRegistry registry;
+    private transient ChangeListener changeListener;
+    private transient Set<Patient> dirtyPatients;
+    private final transient NameIndex<Impression> impressionNames = new NameIndex<>();
 
     /**
      * Represents the patient.
@@ -42,8 +75,6 @@ public class Patient extends DukeObject {
     public Patient(String name, String bedNo, String allergies, Integer height, Integer weight,
                    Integer age, Integer number, String address, String history) {
         super(name, null);
-        this.criticalList = new ArrayList<DukeData>();
-        this.followUpList = new ArrayList<Treatment>();
         this.bedNo = bedNo;
         setAllergies(allergies);
         this.impressionList = new ArrayList<>();
@@ -64,6 +95,7 @@ public class Patient extends DukeObject {
      */
 
     public Impression addNewImpression(Impression newImpression) throws DukeException {
+        loadImpressions();
         if (isDuplicate(newImpression)) {
             throw new DukeException("Impression already exists!");
         }
@@ -72,6 +104,14 @@ public class Patient extends DukeObject {
             primaryDiagnosis = newImpression;
         }
         impressionList.add(newImpression);
+        impressionNames.add(newImpression);
+        if (criticalSet != null) {
+            for (DukeData data : newImpression.getDataList()) {
+                data.setCharted(true);
+                updateCharted(data);
+            }
+        }
+        markDirty();
 
         return newImpression;
     }
@@ -88,6 +128,7 @@ public class Patient extends DukeObject {
 
         if (deletedImpression != null) {
             impressionList.remove(deletedImpression);
+            impressionNames.remove(deletedImpression);
 
             if (deletedImpression.equals(primaryDiagnosis)) {
                 primaryDiagnosis = null;
@@ -96,6 +137,13 @@ public class Patient extends DukeObject {
             if (impressionList.size() == 1) {
                 primaryDiagnosis = impressionList.get(0);
             }
+            if (criticalSet != null) {
+                for (DukeData data : deletedImpression.getDataList()) {
+                    data.setCharted(false);
+                    updateCharted(data);
+                }
+            }
+            markDirty();
             return deletedImpression;
         }
 
@@ -111,14 +159,23 @@ public class Patient extends DukeObject {
      * @return Impression the impression specified by the index
      */
     public Impression getImpression(String keyIdentifier) {
-        String id = keyIdentifier.toLowerCase();
-        for (Impression imp : impressionList) {
-            String impName = imp.getName().toLowerCase();
-            if (id.equals(impName)) {
-                return imp;
-            }
-        }
-        return null;
+        loadImpressions();
+        return impressionNames.get(keyIdentifier);
+    }
+
+    /**
+     * Indexes the impressions of this patient by name, once they have been read back from storage into its impression
+     * list.
+     */
+    public void initImpressions() {
+        impressionNames.reindex(impressionList);
+    }
+
+    /**
+     * Indexes an impression of this patient that has just been renamed under its new name.
+     */
+    void impressionRenamed(Impression impression, String oldName) {
+        impressionNames.rename(impression, oldName);
     }
 
     /**
@@ -128,10 +185,11 @@ public class Patient extends DukeObject {
      * @return the list of impressions
      */
     public SearchResults findImpressionsByName(String searchTerm) {
+        loadImpressions();
         ArrayList<Impression> resultList = new ArrayList<>();
         String lowerSearchTerm = searchTerm.toLowerCase();
         for (Impression entry : impressionList) {
-            if (entry.getName().toLowerCase().contains(lowerSearchTerm)) {
+            if (entry.nameContainsFolded(lowerSearchTerm)) {
                 resultList.add(entry);
             }
         }
@@ -145,11 +203,12 @@ public class Patient extends DukeObject {
      * @return the list of critical items
      */
     public SearchResults findCriticalsByName(String searchTerm) {
+        loadImpressions();
         ArrayList<DukeData> resultList = new ArrayList<>();
         String lowerSearchTerm = searchTerm.toLowerCase();
 
-        for (DukeData data : criticalList) {
-            if (data.getName().toLowerCase().contains(lowerSearchTerm)) {
+        for (DukeData data : getCriticalList()) {
+            if (data.nameContainsFolded(lowerSearchTerm)) {
                 resultList.add(data);
             }
         }
@@ -163,10 +222,11 @@ public class Patient extends DukeObject {
      * @return the list of follow-up items
      */
     public SearchResults findFollowUpsByName(String searchTerm) {
+        loadImpressions();
         ArrayList<DukeData> resultList = new ArrayList<>();
         String lowerSearchTerm = searchTerm.toLowerCase();
-        for (Treatment treatment : followUpList) {
-            if (treatment.getName().toLowerCase().contains(lowerSearchTerm)) {
+        for (Treatment treatment : getFollowUpList()) {
+            if (treatment.nameContainsFolded(lowerSearchTerm)) {
                 resultList.add(treatment);
             }
         }
@@ -180,10 +240,11 @@ public class Patient extends DukeObject {
      * @return the list of impressions
      */
     public SearchResults findImpressions(String searchTerm) {
+        loadImpressions();
         ArrayList<Impression> resultList = new ArrayList<>();
         String lowerSearchTerm = searchTerm.toLowerCase();
         for (Impression impression : impressionList) {
-            if (impression.contains(lowerSearchTerm)) {
+            if (impression.containsFolded(lowerSearchTerm)) {
                 resultList.add(impression);
             }
         }
@@ -206,6 +267,26 @@ public class Patient extends DukeObject {
         return results;
     }
 
+    /**
+     * Finds the objects in this patient matching every word of the search term, allowing for misspellings, best match
+     * first, with equally good matches in the order {@link #searchAll(String)} finds them.
+     *
+     * @param searchTerm String to be used to filter the DukeObj
+     * @return the matching objects, ranked
+     */
+    public SearchResults fuzzySearchAll(String searchTerm) {
+        if (searchTerm.isBlank()) {
+            return searchAll(searchTerm);
+        }
+        loadImpressions();
+        ArrayList<DukeObject> objects = new ArrayList<>(impressionList);
+        for (Impression imp : impressionList) {
+            objects.addAll(imp.getEvidences());
+            objects.addAll(imp.getTreatments());
+        }
+        return new SearchResults(searchTerm, FuzzyMatcher.rank(objects, SearchIndex.splitWords(searchTerm)), this);
+    }
+
     /* @@author JeremyKwok */
 
     /**
@@ -233,7 +314,7 @@ public class Patient extends DukeObject {
      * @return boolean
      */
     public boolean isAllergic(String allergy) {
-        return this.allergies.toLowerCase().contains(allergy.toLowerCase());
+        return getSearchKeys()[ALLERGIES_KEY].contains(allergy.toLowerCase());
     }
 
     /**
@@ -243,6 +324,7 @@ public class Patient extends DukeObject {
      * @return string representation of patient
      */
     public String toString() {
+        loadImpressions();
         StringBuilder informationString;
         informationString = new StringBuilder("Personal details\n");
         informationString.append("Height: ").append(this.height).append("\n");
@@ -264,6 +346,7 @@ public class Patient extends DukeObject {
 
     @Override
     public String toReportString() {
+        loadImpressions();
         StringBuilder informationString;
         informationString = new StringBuilder("\tName of patient: " + getName() + "\n");
         informationString.append("\tBed Number: ").append(this.bedNo).append("\n");
@@ -308,6 +391,7 @@ public class Patient extends DukeObject {
 
     public void setBedNo(String bedNo) {
         this.bedNo = bedNo;
+        markDirty();
     }
 
     public String getAllergies() {
@@ -316,12 +400,24 @@ public class Patient extends DukeObject {
 
     public void setAllergies(String allergies) {
         this.allergies = allergies;
+        markDirty();
     }
 
     public Impression getPrimaryDiagnosis() {
+        loadImpressions();
         return primaryDiagnosis;
     }
 
+    /**
+     * Returns the name of the primary diagnosis, or null if there is none, without loading the patient's impressions.
+     */
+    public String getPrimaryDiagnosisName() {
+        if (impressionList == null) {
+            return primaryDiagnosisName;
+        }
+        return (primaryDiagnosis == null) ? null : primaryDiagnosis.getName();
+    }
+
     /**
      * Sets the Primary Diagnosis of the patient specified by the index chosen.
      *
@@ -329,9 +425,240 @@ public class Patient extends DukeObject {
      */
     public void setPrimaryDiagnosis(String keyIdentifier) throws DukeException {
         Impression primaryImpression = getImpression(keyIdentifier);
-        impressionList.remove(primaryImpression);
+        if (primaryImpression == null) {
+            throw new DukeException("I don't have an Impression called that!");
+        }
+        setPrimaryDiagnosis(primaryImpression);
+    }
+
+    /**
+     * Sets the Primary Diagnosis of the patient to one of its impressions, moving it to the top of the impressions.
+     *
+     * @param primaryImpression the impression
+     * @throws DukeException If the impression does not belong to this patient.
+     */
+    public void setPrimaryDiagnosis(Impression primaryImpression) throws DukeException {
+        loadImpressions();
+        if (primaryImpression.getParent() != this || !impressionList.remove(primaryImpression)) {
+            throw new DukeException("That impression does not belong to this patient!");
+        }
         impressionList.add(0, primaryImpression);
         primaryDiagnosis = primaryImpression;
+        markDirty();
+    }
+
+    /**
+     * Sets the primary diagnosis of a patient read back from storage to the one of its impressions it was saved with,
+     * leaving its impressions in the order they were saved in.
+     *
+     * @param primaryImpression the impression, which must already be in the impressions of this patient
+     */
+    public void restorePrimaryDiagnosis(Impression primaryImpression) {
+        assert (primaryImpression.getParent() == this);
+        primaryDiagnosis = primaryImpression;
+    }
+
+    @Override
+    public void clearDirty() {
+        super.clearDirty();
+        if (dirtyPatients != null) {
+            dirtyPatients.remove(this);
+        }
+        if (impressionList == null) {
+            return;
+        }
+        for (Impression imp : impressionList) {
+            imp.clearDirty();
+        }
+    }
+
+    /**
+     * Returns the id that the patient is stored under, or null if it has not been saved yet.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Sets the loader that the impressions of this patient can be read back from once it has been saved, allowing
+     * them to be unloaded while they are not in use.
+     */
+    public void setLoader(PatientLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Sets the search index that is told when this patient, or anything in it, is changed, loaded or unloaded.
+     */
+    void setSearchIndex(SearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Sets the registry that is told when this patient, or anything in it, is changed, loaded or unloaded.
+     */
+    void setRegistry(ObjectRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Sets the listener that is told when an evidence or treatment of this patient changes in a way that dashboards
+     * follow, or null if there is none.
+     */
+    void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    ChangeListener getChangeListener() {
+        return changeListener;
+    }
+
+    /**
+     * Sets the set of patients with unsaved changes that this patient adds itself to when it, or anything in it, is
+     * changed, and removes itself from once it is saved, or null if there is none.
+     */
+    void setDirtySet(Set<Patient> dirtyPatients) {
+        this.dirtyPatients = dirtyPatients;
+    }
+
+    /**
+     * Sets the uids of the impressions, evidences and treatments of this patient while they are unloaded, so that they
+     * can be found by uid without reading the patient in full. Used by storage, and by the registry when the
+     * impressions are unloaded, and forgotten when they are next loaded.
+     *
+     * @param unloadedUids the uids of the contents of this patient
+     */
+    public void setUnloadedUids(List<Integer> unloadedUids) {
+        this.unloadedUids = unloadedUids;
+    }
+
+    /**
+     * Returns the uids of the impressions, evidences and treatments of this patient while they are unloaded, or null
+     * if they are loaded or their uids are not known.
+     */
+    List<Integer> getUnloadedUids() {
+        return unloadedUids;
+    }
+
+    /**
+     * Sets the searched fields of the impressions, evidences and treatments of this patient while they are unloaded,
+     * so that the patient can be found by searches without reading it in full. Used by storage, which reads them
+     * from the stored patient without constructing its impressions, and forgotten when they are next loaded.
+     *
+     * @param fields the searched fields of the contents of this patient, any of which may be null
+     */
+    public void setUnloadedSearchFields(Collection<String> fields) {
+        Set<String> words = new HashSet<>();
+        for (String field : fields) {
+            if (field != null) {
+                Collections.addAll(words, SearchIndex.splitWords(field));
+            }
+        }
+        unloadedSearchWords = words;
+    }
+
+    /**
+     * Sets the words of the searched fields of the contents of this patient while they are unloaded, as found by the
+     * search index when they are unloaded.
+     */
+    void setUnloadedSearchWords(Set<String> unloadedSearchWords) {
+        this.unloadedSearchWords = unloadedSearchWords;
+    }
+
+    /**
+     * Returns the words of the searched fields of the impressions, evidences and treatments of this patient while they
+     * are unloaded, in lower case, or null if they are loaded or their words are not known.
+     */
+    Set<String> getUnloadedSearchWords() {
+        return unloadedSearchWords;
+    }
+
+    @Override
+    protected void contentChanged() {
+        if (searchIndex != null) {
+            searchIndex.markStale(this);
+        }
+        if (registry != null) {
+            registry.markStale(this);
+        }
+        if (dirtyPatients != null && isDirty()) {
+            dirtyPatients.add(this);
+        }
+    }
+
+    /**
+     * Checks if the impressions of this patient are loaded, or if only the details shown on its card are.
+     */
+    public boolean isLoaded() {
+        return impressionList != null;
+    }
+
+    /**
+     * Unloads the impressions of this patient, keeping only the details shown on its card, so that their memory can
+     * be reclaimed until they are next needed. Patients that have not been saved or have unsaved changes, or that
+     * have no loader to read their impressions back from, are left as they are.
+     *
+     * @return true if the impressions were unloaded
+     */
+    public boolean unloadImpressions() {
+        if (impressionList == null || loader == null || id == null || isDirty()) {
+            return false;
+        }
+        buildChartLists();
+        unloadImpressions(getPrimaryDiagnosisName(), criticalSet.size());
+        return true;
+    }
+
+    /**
+     * Unloads the impressions of this patient, replacing them with the details shown on its card. Used by storage to
+     * load only those details of a stored patient, whose impressions are read from the loader when first needed.
+     *
+     * @param primaryDiagnosisName the name of the primary diagnosis of the stored patient, or null if it has none
+     * @param criticalCount the number of critical items of the stored patient
+     */
+    public void unloadImpressions(String primaryDiagnosisName, int criticalCount) {
+        assert (loader != null);
+        if (searchIndex != null && impressionList != null) {
+            searchIndex.unload(this);
+        }
+        if (registry != null && impressionList != null) {
+            registry.unload(this);
+        }
+        this.primaryDiagnosisName = primaryDiagnosisName;
+        this.criticalCount = criticalCount;
+        impressionList = null;
+        impressionNames.clear();
+        primaryDiagnosis = null;
+        clearChartLists();
+    }
+
+    /**
+     * Reads back the impressions of this patient from its loader if they are not loaded, taking them over from the
+     * stored copy of the patient.
+     *
+     * @throws UncheckedIOException If the stored patient cannot be read.
+     */
+    private void loadImpressions() {
+        if (impressionList != null) {
+            return;
+        }
+
+        Patient stored = loader.loadStoredPatient(this);
+        for (Impression imp : stored.impressionList) {
+            imp.setParent(this);
+        }
+        impressionList = stored.impressionList;
+        impressionNames.reindex(impressionList);
+        primaryDiagnosis = stored.primaryDiagnosis;
+        primaryDiagnosisName = null;
+        unloadedUids = null;
+        unloadedSearchWords = null;
+        clearChartLists();
+        contentChanged();
     }
 
     public Integer getHeight() {
@@ -340,6 +667,7 @@ public class Patient extends DukeObject {
 
     public void setHeight(int height) {
         this.height = height;
+        markDirty();
     }
 
     public Integer getWeight() {
@@ -348,6 +676,7 @@ public class Patient extends DukeObject {
 
     public void setWeight(int weight) {
         this.weight = weight;
+        markDirty();
     }
 
     public Integer getAge() {
@@ -356,6 +685,7 @@ public class Patient extends DukeObject {
 
     public void setAge(int age) {
         this.age = age;
+        markDirty();
     }
 
     public Integer getNumber() {
@@ -364,6 +694,7 @@ public class Patient extends DukeObject {
 
     public void setNumber(int number) {
         this.number = number;
+        markDirty();
     }
 
     public String getAddress() {
@@ -372,6 +703,7 @@ public class Patient extends DukeObject {
 
     public void setAddress(String address) {
         this.address = address;
+        markDirty();
     }
 
     public String getHistory() {
@@ -380,6 +712,7 @@ public class Patient extends DukeObject {
 
     public void setHistory(String history) {
         this.history = history;
+        markDirty();
     }
 
     /* @@author aquohn */
@@ -390,8 +723,11 @@ public class Patient extends DukeObject {
      * @return The number of critical DukeData items for this patient.
      */
     public String getCriticalCountStr() {
-        update();
-        int count = criticalList.size();
+        int count = criticalCount;
+        if (impressionList != null) {
+            buildChartLists();
+            count = criticalSet.size();
+        }
         if (count == 0) {
             return "No critical issues";
         } else if (count == 1) {
@@ -402,18 +738,12 @@ public class Patient extends DukeObject {
     }
 
     /**
-     * This function determines if the patient contains the searchTerm in specific fields.
-     * Does not include personal biometric data such as height, weight, number, bedNo, age.
-     * Does not include Impressions of the patient.
-     *
-     * @param searchTerm the substring to be checked
-     * @return true if it is contained
+     * Returns the fields of the patient that are searched. Does not include personal biometric data such as height,
+     * weight, number, bedNo, age, or the Impressions of the patient.
      */
-    public boolean contains(String searchTerm) {
-        String lowerSearchTerm = searchTerm.toLowerCase();
-        return super.contains(searchTerm) || allergies.toLowerCase().contains(lowerSearchTerm)
-                || history.toLowerCase().contains(lowerSearchTerm)
-                || address.toLowerCase().contains(lowerSearchTerm);
+    @Override
+    protected String[] getSearchFields() {
+        return new String[] {getName(), allergies, history, address};
     }
 
     public boolean equals(Patient other) {
@@ -421,20 +751,111 @@ public class Patient extends DukeObject {
     }
 
     public ArrayList<Impression> getImpressionList() {
+        loadImpressions();
         return impressionList;
     }
 
+    /**
+     * Returns the critical items of this patient, the evidences and treatments with critical priority, in the order
+     * they are shown in the impressions. The items are tracked as they are added, removed, moved or changed, and only
+     * put in order when the list is next read after a change.
+     *
+     * @return the critical items
+     */
     public ArrayList<DukeData> getCriticalList() {
+        buildChartLists();
+        if (criticalList == null) {
+            criticalList = inChartOrder(criticalSet);
+        }
         return criticalList;
     }
 
+    /**
+     * Returns the treatments of this patient that need to be followed up, kept up to date in the same way as
+     * {@link #getCriticalList()}.
+     *
+     * @return the follow-up items
+     */
     public ArrayList<Treatment> getFollowUpList() {
+        buildChartLists();
+        if (followUpList == null) {
+            followUpList = inChartOrder(followUpSet);
+        }
         return followUpList;
     }
 
-    @Override
-    public PatientCard toCard() throws DukeFatalException {
-        return new PatientCard(this);
+    /**
+     * Adds an evidence or treatment to, or removes it from, the critical and follow-up sets of this patient, if they
+     * have been built, depending on whether it is still charted in one of the impressions of this patient, and on its
+     * priority and status. Called whenever any of these change, which may also change where it is shown, so the
+     * ordered lists are put in order again when next read.
+     */
+    void updateCharted(DukeData data) {
+        if (criticalSet == null) {
+            return;
+        }
+        boolean isCharted = data.isCharted() && data.getParent() != null && data.getParent().getParent() == this;
+        updateMembership(criticalSet, data, isCharted && data.getPriority() == DukeData.PRIORITY_CRITICAL);
+        if (data instanceof Treatment) {
+            Treatment treatment = (Treatment) data;
+            updateMembership(followUpSet, treatment, isCharted && treatment.isFollowUp());
+        }
+        criticalList = null;
+        followUpList = null;
+    }
+
+    private static <T> void updateMembership(Set<T> set, T item, boolean isMember) {
+        if (isMember) {
+            set.add(item);
+        } else {
+            set.remove(item);
+        }
+    }
+
+    /**
+     * Lists items charted in the impressions of this patient in the order they are shown: by impression, and within
+     * each impression, evidences before treatments, each in display order.
+     */
+    private <T extends DukeData> ArrayList<T> inChartOrder(Set<T> items) {
+        Map<Impression, Integer> impressionIdxs = new IdentityHashMap<>();
+        for (int idx = 0; idx < impressionList.size(); ++idx) {
+            impressionIdxs.put(impressionList.get(idx), idx);
+        }
+        Map<DukeData, Integer> positions = new IdentityHashMap<>();
+        for (T item : items) {
+            positions.put(item, item.getParent().getChartPosition(item));
+        }
+
+        ArrayList<T> ordered = new ArrayList<>(items);
+        ordered.sort(Comparator.<T>comparingInt(item -> impressionIdxs.get(item.getParent()))
+                .thenComparingInt(positions::get));
+        return ordered;
+    }
+
+    /**
+     * Builds the critical and follow-up sets from the impressions of this patient, if they have not been built
+     * since the impressions were loaded, marking every evidence and treatment in them as charted.
+     */
+    private void buildChartLists() {
+        loadImpressions();
+        if (criticalSet != null) {
+            return;
+        }
+        criticalSet = new LinkedHashSet<>();
+        followUpSet = new LinkedHashSet<>();
+        for (Impression imp : impressionList) {
+            for (DukeData data : imp.getDataList()) {
+                data.setCharted(true);
+                updateCharted(data);
+            }
+        }
+    }
+
+    private void clearChartLists() {
+        criticalSet = null;
+        followUpSet = null;
+        criticalList = null;
+        followUpList = null;
     }
 
     @Override
@@ -443,37 +864,15 @@ public class Patient extends DukeObject {
     }
 
     private boolean isDuplicate(Impression newImpression) {
-        String newLower = newImpression.getName().toLowerCase();
-        for (Impression oldImpression : impressionList) {
-            String oldLower = oldImpression.getName().toLowerCase();
-            if (oldLower.equals(newLower)) {
-                return true;
-            }
-        }
-        return false;
+        return getImpression(newImpression.getName()) != null;
     }
 
+    /**
+     * Loads the impressions of this patient if they have been unloaded. The critical and follow-up lists are kept up
+     * to date as the impressions change, so they are only built if they have not been yet.
+     */
     @Override
     public void update() {
-        criticalList = new ArrayList<DukeData>();
-        followUpList = new ArrayList<Treatment>();
-
-        for (Impression imp : impressionList) {
-            for (Evidence evidence : imp.getEvidences()) {
-                if (evidence.getPriority() == DukeData.PRIORITY_CRITICAL) {
-                    criticalList.add(evidence);
-                }
-            }
-
-            for (Treatment treatment : imp.getTreatments()) {
-                if (treatment.getPriority() == DukeData.PRIORITY_CRITICAL) {
-                    criticalList.add(treatment);
-                }
-
-                if (treatment.isFollowUp()) {
-                    followUpList.add(treatment);
-                }
-            }
-        }
+        buildChartLists();
     }
 }
@@ -0,0 +1,148 @@
+package duke.data;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the patients whose impressions have been read back from storage, and unloads those that have not
+ * been used recently once their estimated size exceeds a heap budget. Patients are only unloaded between commands, by
+ * {@link #evict(Collection)}, so that no command ever sees impressions being unloaded from under it.
+ */
+public class PatientCache implements PatientLoader {
+    /**
+     * the heap budget used if none is given, in megabytes, which can be set with the duke.cacheBudgetMb property.
+     */
+    public static final long DEFAULT_BUDGET_MB = Long.getLong("duke.cacheBudgetMb", 64);
+
+    /**
+     * rough costs used to estimate the size of a patient's impressions: the size of an object with its header and
+     * fields, and of a string, not counting its characters.
+     */
+    private static final long OBJECT_BYTES = 64;
+    private static final long STRING_BYTES = 40;
+
+    private final PatientLoader storage;
+    private final long budgetBytes;
+
+    /**
+     * the patients read back from storage, least recently used first, with the estimated size of their impressions.
+     */
+    private final LinkedHashMap<Patient, Long> loadedPatients = new LinkedHashMap<>(16, 0.75f, true);
+    private long loadedBytes = 0;
+
+    /**
+     * Creates a cache reading patients from storage, keeping their impressions loaded while they fit in the budget.
+     *
+     * @param storage the loader to read the stored patients from
+     * @param budgetBytes the estimated size that the loaded impressions are kept within, in bytes
+     */
+    public PatientCache(PatientLoader storage, long budgetBytes) {
+        this.storage = storage;
+        this.budgetBytes = budgetBytes;
+    }
+
+    @Override
+    public Patient loadStoredPatient(Patient patient) {
+        Patient stored = storage.loadStoredPatient(patient);
+        track(patient, estimateSize(stored));
+        return stored;
+    }
+
+    /**
+     * Starts keeping track of a patient whose impressions are already loaded, such as one loaded in full by storage or
+     * newly added, so that they can be unloaded in turn.
+     *
+     * @param patient the patient to keep track of
+     */
+    public void add(Patient patient) {
+        if (patient.isLoaded()) {
+            track(patient, estimateSize(patient));
+        }
+    }
+
+    private void track(Patient patient, long size) {
+        Long oldSize = loadedPatients.put(patient, size);
+        loadedBytes += size - ((oldSize == null) ? 0 : oldSize);
+    }
+
+    /**
+     * Marks patients as recently used, keeping their impressions loaded for longer.
+     *
+     * @param patients the patients being used
+     */
+    public void touch(Collection<Patient> patients) {
+        for (Patient patient : patients) {
+            loadedPatients.get(patient);
+        }
+    }
+
+    /**
+     * Unloads the impressions of the least recently used patients until the rest fit in the budget. Patients in use,
+     * and those with unsaved changes, are skipped, as are patients whose impressions are no longer loaded.
+     *
+     * @param inUse the patients that must keep their impressions loaded
+     * @return the number of patients unloaded
+     */
+    public int evict(Collection<Patient> inUse) {
+        touch(inUse);
+        int count = 0;
+        Set<Patient> pinned = Set.copyOf(inUse);
+        Iterator<Map.Entry<Patient, Long>> iter = loadedPatients.entrySet().iterator();
+        while (loadedBytes > budgetBytes && iter.hasNext()) {
+            Map.Entry<Patient, Long> entry = iter.next();
+            Patient patient = entry.getKey();
+            if (!patient.isLoaded()) {
+                loadedBytes -= entry.getValue();
+                iter.remove();
+            } else if (!pinned.contains(patient) && patient.unloadImpressions()) {
+                loadedBytes -= entry.getValue();
+                iter.remove();
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stops tracking a patient, such as one that has been deleted.
+     */
+    public void remove(Patient patient) {
+        Long size = loadedPatients.remove(patient);
+        if (size != null) {
+            loadedBytes -= size;
+        }
+    }
+
+    /**
+     * Returns the estimated size of the impressions currently loaded, in bytes.
+     */
+    public long getLoadedBytes() {
+        return loadedBytes;
+    }
+
+    /**
+     * Estimates the memory taken up by the impressions of a patient, from the number of objects and the length of
+     * their strings.
+     */
+    private static long estimateSize(Patient patient) {
+        long size = 0;
+        for (Impression impression : patient.getImpressionList()) {
+            size += OBJECT_BYTES + sizeOf(impression.getName()) + sizeOf(impression.getDescription());
+            for (Evidence evidence : impression.getEvidences()) {
+                size += OBJECT_BYTES + sizeOf(evidence.getName()) + sizeOf(evidence.getSummary());
+            }
+            for (Treatment treatment : impression.getTreatments()) {
+                // the other strings of a treatment depend on its type, and are usually short
+                size += OBJECT_BYTES + sizeOf(treatment.getName()) + 2 * STRING_BYTES;
+            }
+        }
+        return size;
+    }
+
+    private static long sizeOf(String string) {
+        return (string == null) ? 0 : STRING_BYTES + 2L * string.length();
+    }
+}
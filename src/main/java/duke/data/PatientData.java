@@ -1,40 +1,75 @@
 package duke.data;
 
-import duke.data.storage.GsonStorage;
+import duke.data.storage.Storage;
 import duke.exception.DukeException;
 import duke.exception.DukeFatalException;
-import duke.exception.DukeResetException;
 
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 public class PatientData {
 
+    /**
+     * Orders patients by bed number, comparing runs of digits by their numeric value, so that bed A2 comes before
+     * bed A10.
+     */
+    public static final Comparator<Patient> BED_ORDER = (first, second) -> compareBeds(first.getBedNo(),
+            second.getBedNo());
+
     private ArrayList<Patient> patientList;
+    private HashMap<String, Patient> bedMap = new HashMap<>();
+    private ArrayList<Patient> bedOrderList = new ArrayList<>();
+    private ArrayList<Patient> removedPatients = new ArrayList<>();
+    private LinkedHashSet<Patient> dirtyPatients = new LinkedHashSet<>();
+    private SearchIndex searchIndex = new SearchIndex();
+    private ObjectRegistry registry = new ObjectRegistry();
+    private boolean isJournaled;
+    private PatientCache cache = null;
+    private ArrayList<Patient> transactionPatients = null;
+    private ChangeListener changeListener = null;
 
     /**
-     * Creates a new PatientData, loading data from the Storage object provided.
+     * Creates a new PatientData, loading data from the Storage object provided, and keeping the impressions read back
+     * from it within the default heap budget.
      *
-     * @param storage The Storage object pointing to the TSV file containing the data to load.
-     * @throws DukeResetException If file is corrupted or the data has been edited to be unreadable.
-     * @throws DukeFatalException If unable to write data file.
+     * @param storage The Storage object holding the data to load.
+     * @throws DukeFatalException If the data file cannot be read.
      */
-    public PatientData(GsonStorage storage) throws DukeFatalException {
-        patientList = storage.loadPatients();
+    public PatientData(Storage storage) throws DukeFatalException {
+        this(storage, PatientCache.DEFAULT_BUDGET_MB * 1024 * 1024);
+    }
 
+    /**
+     * Creates a new PatientData, loading data from the Storage object provided. The storage may load patients with
+     * only the details shown on their cards, and the impressions of patients read back from it are unloaded again by
+     * {@link #evictUnused(Collection)} once they exceed the budget.
+     *
+     * @param storage The Storage object holding the data to load.
+     * @param cacheBudget The estimated size, in bytes, that loaded impressions are kept within.
+     * @throws DukeFatalException If the data file cannot be read.
+     */
+    public PatientData(Storage storage, long cacheBudget) throws DukeFatalException {
+        patientList = storage.loadPatients();
+        isJournaled = true;
+        cache = new PatientCache(storage, cacheBudget);
         for (Patient patient : patientList) {
-            for (Impression imp: patient.getImpressionList()) {
-                imp.setParent(patient);
-                imp.initChildren();
-            }
-            if (patient.getPrimaryDiagnosis() != null) {
-                String primaryDiagnosisID = patient.getPrimaryDiagnosis().getName();
-                try {
-                    patient.setPrimaryDiagnosis(primaryDiagnosisID);
-                } catch (DukeException e) {
-                    e.printStackTrace();
-                }
-            }
+            patient.setLoader(cache);
+            cache.add(patient);
+            bedMap.put(patient.getBedNo(), patient);
+            searchIndex.add(patient);
+            registry.add(patient);
+            trackChanges(patient);
         }
+        bedOrderList.addAll(patientList);
+        bedOrderList.sort(BED_ORDER);
     }
 
     /**
@@ -42,6 +77,7 @@ public class PatientData {
      */
     public PatientData() {
         patientList = new ArrayList<>();
+        isJournaled = false;
     }
 
     /**
@@ -55,6 +91,11 @@ public class PatientData {
             throw new DukeException("This patient's bed is occupied");
         }
         patientList.add(newPatient);
+        index(newPatient);
+        newPatient.markDirty();
+        if (changeListener != null) {
+            changeListener.patientAdmitted(newPatient);
+        }
         return newPatient;
     }
 
@@ -69,6 +110,11 @@ public class PatientData {
         Patient deletedPatient = getPatientByBed(keyIdentifier);
         if (deletedPatient != null) {
             patientList.remove(deletedPatient);
+            unindex(deletedPatient);
+            removedPatients.add(deletedPatient);
+            if (changeListener != null) {
+                changeListener.patientDischarged(deletedPatient);
+            }
             return deletedPatient;
         } else {
             throw new DukeException("I don't have a patient called that!");
@@ -82,28 +128,231 @@ public class PatientData {
      * @return the patient object
      */
     public Patient getPatientByBed(String keyIdentifier) {
+        return bedMap.get(keyIdentifier);
+    }
+
+    /**
+     * Finds a patient, or an impression, evidence or treatment of one of the patients, by its uid, which stays the
+     * same as it is renamed or moved, and across restarts.
+     *
+     * @param uid the uid of the object
+     * @return the object, or null if there is none with that uid
+     */
+    public DukeObject getObject(int uid) {
+        return registry.find(uid);
+    }
+
+    /**
+     * Moves a patient in the list to another bed.
+     *
+     * @param patient the patient to move
+     * @param bedNo the bed to move the patient to
+     * @throws DukeException If there is already a patient at that bed.
+     */
+    public void moveToBed(Patient patient, String bedNo) throws DukeException {
+        Patient occupant = getPatientByBed(bedNo);
+        if (occupant == patient) {
+            return;
+        } else if (occupant != null) {
+            throw new DukeException("There is already a patient at that bed!");
+        }
+        unindexBed(patient);
+        patient.setBedNo(bedNo);
+        indexBed(patient);
+    }
+
+    /**
+     * Starts a transaction, which {@link #rollBack(PatientLoader)} can undo, restoring the patients as they are now.
+     * Every patient must have been saved, as the patients changed during the transaction are restored by reading back
+     * their stored copies, so nothing may be saved until the transaction has ended.
+     */
+    public void beginTransaction() {
+        assert (dirtyPatients.isEmpty() && removedPatients.isEmpty());
+        transactionPatients = new ArrayList<>(patientList);
+    }
+
+    /**
+     * Ends the transaction, keeping the changes made during it, if it has not been rolled back.
+     */
+    public void endTransaction() {
+        transactionPatients = null;
+    }
+
+    /**
+     * Undoes the changes made since the transaction began, and ends it. Patients added since are removed, and those
+     * deleted are added back. Patients that were changed are replaced by their stored copies, so the objects in them
+     * should be found again by uid with {@link #getObject(int)}, which stays the same in the copies.
+     *
+     * @param storage the storage that the patients were saved to when the transaction began
+     * @throws UncheckedIOException If a stored patient cannot be read.
+     */
+    public void rollBack(PatientLoader storage) {
+        assert (transactionPatients != null);
+        Set<Patient> listedPatients = Collections.newSetFromMap(new IdentityHashMap<>());
+        listedPatients.addAll(patientList);
+        Set<Patient> keptPatients = Collections.newSetFromMap(new IdentityHashMap<>());
+        keptPatients.addAll(transactionPatients);
+
+        // unindex every patient that will be replaced first, as a bed may be taken by another patient until then
+        for (Patient patient : patientList) {
+            if (!keptPatients.contains(patient) || patient.isDirty()) {
+                unindex(patient);
+            }
+        }
+        ArrayList<Patient> restoredPatients = new ArrayList<>(transactionPatients.size());
+        for (Patient patient : transactionPatients) {
+            Patient restored = patient;
+            if (patient.isDirty()) {
+                restored = storage.loadStoredPatient(patient);
+                restored.setId(patient.getId());
+                index(restored);
+            } else if (!listedPatients.contains(patient)) {
+                index(patient);
+            }
+            restoredPatients.add(restored);
+        }
+
+        patientList = restoredPatients;
+        removedPatients.clear();
+        transactionPatients = null;
+        if (changeListener != null) {
+            changeListener.changesRolledBack();
+        }
+    }
+
+    /**
+     * Sets the listener to tell about the changes to the ward that dashboards follow, replacing any listener set
+     * before, or removes it if null is given.
+     *
+     * @param changeListener the listener to tell, or null
+     */
+    public void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener;
         for (Patient patient : patientList) {
-            if (patient.getBedNo().equals(keyIdentifier)) {
-                return patient;
+            patient.setChangeListener(changeListener);
+        }
+    }
+
+    private void index(Patient patient) {
+        indexBed(patient);
+        searchIndex.add(patient);
+        registry.add(patient);
+        trackChanges(patient);
+        patient.setChangeListener(changeListener);
+        if (cache != null) {
+            patient.setLoader(cache);
+            cache.add(patient);
+        }
+    }
+
+    private void unindex(Patient patient) {
+        unindexBed(patient);
+        searchIndex.remove(patient);
+        registry.remove(patient);
+        patient.setDirtySet(null);
+        dirtyPatients.remove(patient);
+        patient.setChangeListener(null);
+        if (cache != null) {
+            cache.remove(patient);
+        }
+    }
+
+    /**
+     * Keeps track of whether a patient has unsaved changes, so that the patients to save can be found without
+     * checking every patient.
+     */
+    private void trackChanges(Patient patient) {
+        patient.setDirtySet(dirtyPatients);
+        if (patient.isDirty()) {
+            dirtyPatients.add(patient);
+        }
+    }
+
+    private void indexBed(Patient patient) {
+        bedMap.put(patient.getBedNo(), patient);
+        int idx = Collections.binarySearch(bedOrderList, patient, BED_ORDER);
+        bedOrderList.add((idx < 0) ? -(idx + 1) : idx, patient);
+    }
+
+    private void unindexBed(Patient patient) {
+        bedMap.remove(patient.getBedNo());
+        int idx = Collections.binarySearch(bedOrderList, patient, BED_ORDER);
+        if (idx >= 0 && bedOrderList.get(idx) == patient) {
+            bedOrderList.remove(idx);
+        } else {
+            bedOrderList.remove(patient);
+        }
+    }
+
+    /**
+     * Compares two bed numbers, taking runs of digits by their numeric value and ignoring the case of everything
+     * else. Bed numbers that only differ in case or leading zeros are then ordered by their characters, so that only
+     * equal bed numbers compare as equal.
+     */
+    private static int compareBeds(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            char firstChar = first.charAt(i);
+            char secondChar = second.charAt(j);
+            if (Character.isDigit(firstChar) && Character.isDigit(secondChar)) {
+                int firstStart = skipZeros(first, i);
+                int secondStart = skipZeros(second, j);
+                i = skipDigits(first, firstStart);
+                j = skipDigits(second, secondStart);
+                int lengthDiff = (i - firstStart) - (j - secondStart);
+                if (lengthDiff != 0) {
+                    return lengthDiff;
+                }
+                int diff = first.substring(firstStart, i).compareTo(second.substring(secondStart, j));
+                if (diff != 0) {
+                    return diff;
+                }
+            } else {
+                int diff = Character.compare(Character.toLowerCase(firstChar), Character.toLowerCase(secondChar));
+                if (diff != 0) {
+                    return diff;
+                }
+                ++i;
+                ++j;
             }
         }
-        return null;
+        int diff = (first.length() - i) - (second.length() - j);
+        return (diff != 0) ? diff : first.compareTo(second);
+    }
+
+    private static int skipZeros(String bedNo, int idx) {
+        while (idx < bedNo.length() - 1 && bedNo.charAt(idx) == '0' && Character.isDigit(bedNo.charAt(idx + 1))) {
+            ++idx;
+        }
+        return idx;
+    }
+
+    private static int skipDigits(String bedNo, int idx) {
+        while (idx < bedNo.length() && Character.isDigit(bedNo.charAt(idx))) {
+            ++idx;
+        }
+        return idx;
     }
 
 
     /* @@author aquohn */
 
     /**
-     * PatientData of all patients whose names contain the searchTerm.
+     * PatientData of all patients whose names, allergies, history or address contain the searchTerm, in bed order.
      *
      * @param searchTerm String to search through the patients for.
      * @return PatientData of matching patients.
      */
     public SearchResults findPatients(String searchTerm) {
+        if (!searchTerm.isBlank()) {
+            return new SearchResults(searchTerm, searchIndex.search(searchTerm, false), null);
+        }
+
         String lowerSearchTerm = searchTerm.toLowerCase();
         ArrayList<Patient> resultList = new ArrayList<Patient>();
-        for (Patient patient : patientList) {
-            if (patient.contains(lowerSearchTerm)) {
+        for (Patient patient : bedOrderList) {
+            if (patient.containsFolded(lowerSearchTerm)) {
                 resultList.add(patient);
             }
         }
@@ -120,7 +369,7 @@ public class PatientData {
         String lowerSearchTerm = searchTerm.toLowerCase();
         ArrayList<Patient> resultList = new ArrayList<Patient>();
         for (Patient patient : patientList) {
-            if (patient.getName().toLowerCase().contains(lowerSearchTerm)) {
+            if (patient.nameContainsFolded(lowerSearchTerm)) {
                 resultList.add(patient);
             }
         }
@@ -128,21 +377,117 @@ public class PatientData {
     }
 
     /**
-     * Search entire database for search term.
+     * Search entire database for search term, using the search index unless the search term is blank. Matching
+     * patients come first, followed by the matching objects in each patient, with patients in bed order.
      * @param searchTerm the term used for search
      * @return array list of objects relevant to the search
      * @throws DukeException if the database does not contain the information
      */
     public SearchResults searchAll(String searchTerm) throws DukeException {
-        String lowerSearchTerm = searchTerm.toLowerCase();
-        SearchResults results = findPatients(lowerSearchTerm);
-        for (Patient patient : patientList) {
-            results.addAll(patient.searchAll(lowerSearchTerm));
+        if (!searchTerm.isBlank()) {
+            return new SearchResults(searchTerm, searchIndex.search(searchTerm, true), null);
+        }
+
+        SearchResults results = findPatients(searchTerm);
+        for (Patient patient : bedOrderList) {
+            results.addAll(patient.searchAll(searchTerm));
         }
         return results;
     }
 
+    /**
+     * Finds the patients matching every word of the searchTerm, allowing for misspellings, best match first. Falls
+     * back to {@link #findPatients(String)} if the search term is blank.
+     *
+     * @param searchTerm String to search through the patients for.
+     * @return the matching patients, ranked.
+     */
+    public SearchResults fuzzyFindPatients(String searchTerm) {
+        if (searchTerm.isBlank()) {
+            return findPatients(searchTerm);
+        }
+        return new SearchResults(searchTerm, searchIndex.fuzzySearch(searchTerm, false), null);
+    }
+
+    /**
+     * Searches the entire database for objects matching every word of the searchTerm, allowing for misspellings, best
+     * match first, with equally good matches in the order {@link #searchAll(String)} finds them. Falls back to
+     * {@link #searchAll(String)} if the search term is blank.
+     *
+     * @param searchTerm the term used for search
+     * @return the objects matching the search term
+     * @throws DukeException if the database does not contain the information
+     */
+    public SearchResults fuzzySearchAll(String searchTerm) throws DukeException {
+        if (searchTerm.isBlank()) {
+            return searchAll(searchTerm);
+        }
+        return new SearchResults(searchTerm, searchIndex.fuzzySearch(searchTerm, true), null);
+    }
+
+    /**
+     * Unloads the impressions of the patients that have been used least recently, until those still loaded fit in the
+     * heap budget. Must only be called between commands, as any impressions held onto by a command would no longer
+     * belong to their patient once it has been unloaded.
+     *
+     * @param inUse the patients whose impressions are in use, and must stay loaded
+     * @return the number of patients unloaded
+     */
+    public int evictUnused(Collection<Patient> inUse) {
+        return (cache == null) ? 0 : cache.evict(inUse);
+    }
+
+    /**
+     * Returns the patients in the order they were added. Patients must be added and removed through this class, so
+     * that they can be found by bed number.
+     *
+     * @return the list of patients
+     */
     public ArrayList<Patient> getPatientList() {
         return patientList;
     }
+
+    /**
+     * Returns a read-only view of the patients ordered by {@link #BED_ORDER}, which is kept sorted as patients are
+     * added, removed and moved, so it can be shown without sorting it again.
+     *
+     * @return the patients in order of bed number
+     */
+    public List<Patient> getPatientsByBed() {
+        return Collections.unmodifiableList(bedOrderList);
+    }
+
+    /**
+     * Returns the patients that have been changed, or any of whose impressions or data have been changed, since they
+     * were last saved, in the order they were first changed. The patients add themselves to the set this is taken
+     * from as they are changed, so the cost of finding them grows with the number of changes, not of patients.
+     *
+     * @return the dirty patients
+     */
+    public List<Patient> getDirtyPatients() {
+        return new ArrayList<>(dirtyPatients);
+    }
+
+    /**
+     * Returns the patients deleted since the last call, and clears them.
+     *
+     * @return the deleted patients, in the order they were deleted
+     */
+    public List<Patient> takeRemovedPatients() {
+        List<Patient> removed = removedPatients;
+        removedPatients = new ArrayList<>();
+        return removed;
+    }
+
+    /**
+     * Checks if this data was loaded from, or has been fully written to, storage, so that only its changes need to be
+     * saved.
+     */
+    public boolean isJournaled() {
+        return isJournaled;
+    }
+
+    public void setJournaled(boolean isJournaled) {
+        this.isJournaled = isJournaled;
+    }
 }
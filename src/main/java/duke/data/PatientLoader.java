@@ -0,0 +1,20 @@
+package duke.data;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Reads back the impressions of a patient that was loaded with only the details shown on its card, the first time
+ * they are needed.
+ */
+public interface PatientLoader {
+
+    /**
+     * Reads the patient as it was last saved. The patient returned is a copy, whose impressions are taken over by the
+     * patient passed in; its other details may be older than those of the patient passed in, and are ignored.
+     *
+     * @param patient the patient whose impressions are needed, which must have been saved
+     * @return a copy of the patient as it was last saved
+     * @throws UncheckedIOException If the stored patient cannot be read.
+     */
+    Patient loadStoredPatient(Patient patient);
+}
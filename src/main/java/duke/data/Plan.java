@@ -1,8 +1,6 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.exception.DukeFatalException;
-import duke.ui.card.PlanCard;
 import duke.ui.context.Context;
 
 import java.util.Arrays;
@@ -45,11 +43,6 @@ public class Plan extends SummaryTreatment {
         return Collections.unmodifiableList(statusArr);
     }
 
-    @Override
-    public PlanCard toCard() throws DukeFatalException {
-        return new PlanCard(this);
-    }
-
     @Override
     public Context toContext() {
         return Context.PLAN;
@@ -1,8 +1,6 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.exception.DukeFatalException;
-import duke.ui.card.ResultCard;
 import duke.ui.context.Context;
 
 public class Result extends Evidence {
@@ -28,10 +26,6 @@ public class Result extends Evidence {
         return toString();
     }
 
-    public ResultCard toCard() throws DukeFatalException {
-        return new ResultCard(this);
-    }
-
     @Override
     public Context toContext() {
         return Context.RESULT;
@@ -0,0 +1,427 @@
+package duke.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An inverted index from the words in the searched fields of patients, and of their impressions, evidences and
+ * treatments, to the objects containing them, so that a search only has to check the objects containing every word
+ * of the search term, rather than every object in the ward. The words of a search term are substrings of the words of
+ * any field containing it, so the objects posted under words containing every one of them are checked with
+ * {@link DukeObject#containsFolded(String)}, giving the same results as checking every object. The words containing
+ * a word of a search term are found through the trigrams, the substrings of three characters, of the indexed words:
+ * only the words with every trigram of it can contain it, so most of the vocabulary is never looked at. Fuzzy
+ * searches also look for words within a small edit distance of each word of the search term in a {@link BkTree} of
+ * the words.
+ *
+ * <p>The index is kept up to date a patient at a time: a patient is marked stale whenever it or anything in it is
+ * changed, loaded or unloaded, and stale patients are indexed again before the next search. Impressions that are
+ * unloaded cannot be posted, so the words in them are posted under their patient instead, and only the patients that
+ * can match a search are loaded when it is run. Storage gives the words of the impressions of the patients it loads
+ * with only the details shown on their cards, so they are posted the same way without reading the patients in full.
+ * Patients whose words are not known are read in full the first time the index is searched beyond them.
+ */
+class SearchIndex {
+
+    /**
+     * The objects containing a word: loaded patients, impressions, evidences and treatments whose fields contain it,
+     * and patients with unloaded impressions containing it.
+     */
+    private static class Posting {
+        private final Set<DukeObject> objects = new HashSet<>();
+        private final Set<Patient> unloadedPatients = new HashSet<>();
+
+        private boolean isEmpty() {
+            return objects.isEmpty() && unloadedPatients.isEmpty();
+        }
+    }
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<String, Posting> postings = new HashMap<>();
+    private final Map<String, Set<String>> trigramWords = new HashMap<>();
+    private final BkTree wordTree = new BkTree();
+    private final Map<DukeObject, String[]> objectWords = new HashMap<>();
+    private final Map<Patient, List<DukeObject>> impressionObjects = new HashMap<>();
+    private final Map<Patient, Set<String>> unloadedWords = new HashMap<>();
+    private final Set<Patient> stalePatients = new LinkedHashSet<>();
+    private final Set<Patient> unreadPatients = new LinkedHashSet<>();
+
+    /**
+     * Adds a patient to the index.
+     */
+    void add(Patient patient) {
+        patient.setSearchIndex(this);
+        indexObject(patient);
+        if (patient.isLoaded()) {
+            indexImpressions(patient);
+        } else if (patient.getUnloadedSearchWords() != null) {
+            postUnloadedWords(patient, patient.getUnloadedSearchWords());
+        } else {
+            unreadPatients.add(patient);
+        }
+    }
+
+    /**
+     * Removes a patient, and everything in it, from the index.
+     */
+    void remove(Patient patient) {
+        patient.setSearchIndex(null);
+        unindexObject(patient);
+        unindexImpressions(patient);
+        removeUnloadedWords(patient);
+        stalePatients.remove(patient);
+        unreadPatients.remove(patient);
+    }
+
+    /**
+     * Marks a patient to be indexed again before the next search, as it or something in it has been changed, loaded
+     * or unloaded.
+     */
+    void markStale(Patient patient) {
+        stalePatients.add(patient);
+    }
+
+    /**
+     * Posts the words in the impressions of a patient that is about to unload them under the patient, so that it is
+     * loaded again by searches that can match it. Must be called while the impressions are still loaded.
+     */
+    void unload(Patient patient) {
+        if (stalePatients.contains(patient)) {
+            refresh();
+        }
+        List<DukeObject> objects = impressionObjects.get(patient);
+        if (objects == null) {
+            return;
+        }
+        Set<String> words = new HashSet<>();
+        for (DukeObject obj : objects) {
+            for (String word : objectWords.get(obj)) {
+                words.add(word);
+            }
+        }
+        unindexImpressions(patient);
+        patient.setUnloadedSearchWords(words);
+        postUnloadedWords(patient, words);
+    }
+
+    private void postUnloadedWords(Patient patient, Set<String> words) {
+        unloadedWords.put(patient, words);
+        for (String word : words) {
+            getPosting(word).unloadedPatients.add(patient);
+        }
+    }
+
+    /**
+     * Finds the objects whose fields contain a search term, ignoring case. Matching patients come first in bed order,
+     * followed by the matching objects in each patient, in the order that {@link Patient#searchAll(String)} finds
+     * them.
+     *
+     * @param searchTerm the search term, which must contain at least one word
+     * @param isDeep true to search the impressions of the patients and everything in them, false to search only the
+     *               patients themselves
+     * @return the matching objects
+     */
+    List<DukeObject> search(String searchTerm, boolean isDeep) {
+        String lowerSearchTerm = searchTerm.toLowerCase();
+        List<DukeObject> results = new ArrayList<>();
+        for (DukeObject obj : findCandidates(splitWords(searchTerm), isDeep, false)) {
+            if (obj.containsFolded(lowerSearchTerm)) {
+                results.add(obj);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Finds the objects with a word within a small edit distance of, or containing, each word of a search term,
+     * ranked as described in {@link FuzzyMatcher}.
+     *
+     * @param searchTerm the search term, which must contain at least one word
+     * @param isDeep true to search the impressions of the patients and everything in them, false to search only the
+     *               patients themselves
+     * @return the matching objects, closest first
+     */
+    List<DukeObject> fuzzySearch(String searchTerm, boolean isDeep) {
+        String[] searchWords = splitWords(searchTerm);
+        return FuzzyMatcher.rank(findCandidates(searchWords, isDeep, true), searchWords);
+    }
+
+    /**
+     * Finds the objects posted under words matching every word of a search term, in the order of the results of
+     * {@link #search(String, boolean)}.
+     */
+    private List<DukeObject> findCandidates(String[] searchWords, boolean isDeep, boolean isFuzzy) {
+        assert (searchWords.length > 0);
+        if (isDeep && !unreadPatients.isEmpty()) {
+            for (Patient patient : new ArrayList<>(unreadPatients)) {
+                patient.getImpressionList();
+            }
+        }
+        refresh();
+
+        List<List<Posting>> wordPostings = findPostings(searchWords, isFuzzy);
+        if (isDeep && loadMatchingPatients(wordPostings)) {
+            wordPostings = findPostings(searchWords, isFuzzy);
+        }
+
+        Set<DukeObject> candidates = null;
+        for (List<Posting> matches : wordPostings) {
+            Set<DukeObject> wordObjects = new HashSet<>();
+            for (Posting posting : matches) {
+                wordObjects.addAll(posting.objects);
+            }
+            if (candidates == null) {
+                candidates = wordObjects;
+            } else {
+                candidates.retainAll(wordObjects);
+            }
+        }
+
+        List<Patient> matchedPatients = new ArrayList<>();
+        Map<Patient, Set<DukeObject>> matchedObjects = new HashMap<>();
+        for (DukeObject obj : candidates) {
+            if (obj instanceof Patient) {
+                matchedPatients.add((Patient) obj);
+            } else if (isDeep) {
+                matchedObjects.computeIfAbsent(getPatient(obj), key -> new HashSet<>()).add(obj);
+            }
+        }
+        return order(matchedPatients, matchedObjects);
+    }
+
+    /**
+     * Loads the patients with unloaded impressions that contain every word of a search term, and indexes them.
+     *
+     * @return true if any patients were loaded, in which case the postings found before are out of date
+     */
+    private boolean loadMatchingPatients(List<List<Posting>> wordPostings) {
+        Set<Patient> matches = null;
+        for (List<Posting> postingList : wordPostings) {
+            Set<Patient> wordPatients = new HashSet<>();
+            for (Posting posting : postingList) {
+                wordPatients.addAll(posting.unloadedPatients);
+            }
+            if (matches == null) {
+                matches = wordPatients;
+            } else {
+                matches.retainAll(wordPatients);
+            }
+        }
+        if (matches.isEmpty()) {
+            return false;
+        }
+
+        for (Patient patient : matches) {
+            patient.getImpressionList();
+        }
+        refresh();
+        return true;
+    }
+
+    /**
+     * Finds the postings of the indexed words containing each word of a search term, or, for fuzzy searches, within
+     * the edit distance allowed for it.
+     */
+    private List<List<Posting>> findPostings(String[] searchWords, boolean isFuzzy) {
+        List<List<Posting>> wordPostings = new ArrayList<>();
+        for (String searchWord : searchWords) {
+            Set<String> matchingWords = new HashSet<>();
+            for (String word : findWords(searchWord)) {
+                if (word.contains(searchWord)) {
+                    matchingWords.add(word);
+                }
+            }
+            if (isFuzzy) {
+                matchingWords.addAll(wordTree.search(searchWord, FuzzyMatcher.getMaxDistance(searchWord)).keySet());
+            }
+            List<Posting> matches = new ArrayList<>();
+            for (String word : matchingWords) {
+                matches.add(postings.get(word));
+            }
+            wordPostings.add(matches);
+        }
+        return wordPostings;
+    }
+
+    /**
+     * Finds the indexed words that can contain a word of a search term: those containing every trigram of it, or
+     * every indexed word if it is too short to have any.
+     */
+    private Collection<String> findWords(String searchWord) {
+        if (searchWord.length() < GRAM_LENGTH) {
+            return postings.keySet();
+        }
+
+        Set<String> smallest = null;
+        for (int i = 0; i + GRAM_LENGTH <= searchWord.length(); ++i) {
+            Set<String> words = trigramWords.get(searchWord.substring(i, i + GRAM_LENGTH));
+            if (words == null) {
+                return Set.of();
+            } else if (smallest == null || words.size() < smallest.size()) {
+                smallest = words;
+            }
+        }
+        return smallest;
+    }
+
+    private Posting getPosting(String word) {
+        Posting posting = postings.get(word);
+        if (posting == null) {
+            posting = new Posting();
+            postings.put(word, posting);
+            wordTree.add(word);
+            for (int i = 0; i + GRAM_LENGTH <= word.length(); ++i) {
+                trigramWords.computeIfAbsent(word.substring(i, i + GRAM_LENGTH), key -> new HashSet<>()).add(word);
+            }
+        }
+        return posting;
+    }
+
+    private void removeIfEmpty(String word, Posting posting) {
+        if (!posting.isEmpty()) {
+            return;
+        }
+        postings.remove(word);
+        wordTree.remove(word);
+        for (int i = 0; i + GRAM_LENGTH <= word.length(); ++i) {
+            String trigram = word.substring(i, i + GRAM_LENGTH);
+            Set<String> words = trigramWords.get(trigram);
+            if (words != null) {
+                words.remove(word);
+                if (words.isEmpty()) {
+                    trigramWords.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static List<DukeObject> order(List<Patient> matchedPatients,
+                                          Map<Patient, Set<DukeObject>> matchedObjects) {
+        matchedPatients.sort(PatientData.BED_ORDER);
+        List<DukeObject> results = new ArrayList<>(matchedPatients);
+        List<Patient> patients = new ArrayList<>(matchedObjects.keySet());
+        patients.sort(PatientData.BED_ORDER);
+        for (Patient patient : patients) {
+            Set<DukeObject> matches = matchedObjects.get(patient);
+            for (Impression impression : patient.getImpressionList()) {
+                if (matches.contains(impression)) {
+                    results.add(impression);
+                }
+            }
+            for (Impression impression : patient.getImpressionList()) {
+                addMatches(results, impression.getEvidences(), matches);
+                addMatches(results, impression.getTreatments(), matches);
+            }
+        }
+        return results;
+    }
+
+    private static void addMatches(List<DukeObject> results, Collection<? extends DukeObject> objects,
+                                   Set<DukeObject> matches) {
+        for (DukeObject obj : objects) {
+            if (matches.contains(obj)) {
+                results.add(obj);
+            }
+        }
+    }
+
+    private static Patient getPatient(DukeObject obj) {
+        DukeObject patient = obj;
+        while (!(patient instanceof Patient)) {
+            patient = patient.getParent();
+        }
+        return (Patient) patient;
+    }
+
+    /**
+     * Indexes the stale patients again.
+     */
+    private void refresh() {
+        for (Patient patient : stalePatients) {
+            unindexObject(patient);
+            indexObject(patient);
+            if (patient.isLoaded()) {
+                removeUnloadedWords(patient);
+                unreadPatients.remove(patient);
+                unindexImpressions(patient);
+                indexImpressions(patient);
+            }
+        }
+        stalePatients.clear();
+    }
+
+    private void indexImpressions(Patient patient) {
+        List<DukeObject> objects = new ArrayList<>();
+        for (Impression impression : patient.getImpressionList()) {
+            objects.add(impression);
+            objects.addAll(impression.getEvidences());
+            objects.addAll(impression.getTreatments());
+        }
+        for (DukeObject obj : objects) {
+            indexObject(obj);
+        }
+        impressionObjects.put(patient, objects);
+    }
+
+    private void unindexImpressions(Patient patient) {
+        List<DukeObject> objects = impressionObjects.remove(patient);
+        if (objects == null) {
+            return;
+        }
+        for (DukeObject obj : objects) {
+            unindexObject(obj);
+        }
+    }
+
+    private void removeUnloadedWords(Patient patient) {
+        Set<String> words = unloadedWords.remove(patient);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            Posting posting = postings.get(word);
+            posting.unloadedPatients.remove(patient);
+            removeIfEmpty(word, posting);
+        }
+    }
+
+    private void indexObject(DukeObject obj) {
+        Set<String> words = new HashSet<>();
+        for (String[] fieldWords : obj.getSearchKeyWords()) {
+            for (String word : fieldWords) {
+                words.add(word);
+            }
+        }
+        objectWords.put(obj, words.toArray(new String[0]));
+        for (String word : words) {
+            getPosting(word).objects.add(obj);
+        }
+    }
+
+    private void unindexObject(DukeObject obj) {
+        String[] words = objectWords.remove(obj);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            Posting posting = postings.get(word);
+            posting.objects.remove(obj);
+            removeIfEmpty(word, posting);
+        }
+    }
+
+    /**
+     * Splits text into its words, in lower case, separated by whitespace.
+     */
+    static String[] splitWords(String text) {
+        String trimmed = text.trim().toLowerCase();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+}
@@ -1,16 +1,22 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.ui.card.UiCard;
 import duke.ui.context.Context;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 public class SearchResults extends DukeObject {
 
-    // TODO: separate into different lists, order will always be: Patient -> Impression -> Evidence -> Treatment
-    private List<DukeObject> searchList;
+    private List<DukeObject> searchList = new ArrayList<>();
+    private Set<DukeObject> resultSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    private List<Patient> patients = new ArrayList<>();
+    private List<Impression> impressions = new ArrayList<>();
+    private List<Evidence> evidences = new ArrayList<>();
+    private List<Treatment> treatments = new ArrayList<>();
 
     /**
      * The SearchResult object represents a list of DukeObjects.
@@ -21,11 +27,14 @@ public class SearchResults extends DukeObject {
      * string entered to reference an object by the user is ambiguous.
      * Attributes:
      * @param name the search term
+     * @param searchList the results, in the order they are to be numbered, with any repeated objects left out
      * @param parent the DukeObject object the search is tagged to
      */
     public SearchResults(String name, List<? extends DukeObject> searchList, DukeObject parent) {
         super(name, parent);
-        this.searchList = new ArrayList<DukeObject>(searchList);
+        for (DukeObject obj : searchList) {
+            add(obj);
+        }
     }
 
     /**
@@ -43,8 +52,40 @@ public class SearchResults extends DukeObject {
         }
     }
 
+    /**
+     * Returns a read-only view of every result, in the order they are numbered by {@link #getResult(int)}.
+     *
+     * @return the results
+     */
     public List<DukeObject> getSearchList() {
-        return searchList;
+        return Collections.unmodifiableList(searchList);
+    }
+
+    public List<Patient> getPatients() {
+        return Collections.unmodifiableList(patients);
+    }
+
+    public List<Impression> getImpressions() {
+        return Collections.unmodifiableList(impressions);
+    }
+
+    public List<Evidence> getEvidences() {
+        return Collections.unmodifiableList(evidences);
+    }
+
+    public List<Treatment> getTreatments() {
+        return Collections.unmodifiableList(treatments);
+    }
+
+    /**
+     * Checks if an object is one of the results. Objects are compared by identity, as two objects with the same
+     * contents in different places are different results.
+     *
+     * @param obj the object to look for
+     * @return true if it is one of the results
+     */
+    public boolean hasResult(DukeObject obj) {
+        return resultSet.contains(obj);
     }
 
     /**
@@ -52,9 +93,23 @@ public class SearchResults extends DukeObject {
      */
     public void addAll(SearchResults other) {
         for (DukeObject obj : other.searchList) {
-            if (!searchList.contains(obj)) {
-                searchList.add(obj);
-            }
+            add(obj);
+        }
+    }
+
+    private void add(DukeObject obj) {
+        if (!resultSet.add(obj)) {
+            return;
+        }
+        searchList.add(obj);
+        if (obj instanceof Patient) {
+            patients.add((Patient) obj);
+        } else if (obj instanceof Impression) {
+            impressions.add((Impression) obj);
+        } else if (obj instanceof Evidence) {
+            evidences.add((Evidence) obj);
+        } else if (obj instanceof Treatment) {
+            treatments.add((Treatment) obj);
         }
     }
 
@@ -66,34 +121,17 @@ public class SearchResults extends DukeObject {
     public String toString() {
         StringBuilder searchDetails = new StringBuilder();
         searchDetails.append("There are ").append(searchList.size()).append(" result(s).").append("\n");
-        int patCount = 0;
-        int impCount = 0;
-        int evCount = 0;
-        int treatCount = 0;
-
-        for (DukeObject obj : searchList) {
-            if (obj instanceof Patient) {
-                ++patCount;
-            } else if (obj instanceof Impression) {
-                ++impCount;
-            } else if (obj instanceof Evidence) {
-                ++evCount;
-            } else if (obj instanceof Treatment) {
-                ++treatCount;
-            }
-        }
-
-        if (patCount != 0) {
-            searchDetails.append("There are ").append(patCount).append(" patient(s)").append("\n");
+        if (!patients.isEmpty()) {
+            searchDetails.append("There are ").append(patients.size()).append(" patient(s)").append("\n");
         }
-        if (impCount != 0) {
-            searchDetails.append("There are ").append(impCount).append(" impression(s)").append("\n");
+        if (!impressions.isEmpty()) {
+            searchDetails.append("There are ").append(impressions.size()).append(" impression(s)").append("\n");
         }
-        if (evCount != 0) {
-            searchDetails.append("There are ").append(evCount).append(" evidence(s)").append("\n");
+        if (!evidences.isEmpty()) {
+            searchDetails.append("There are ").append(evidences.size()).append(" evidence(s)").append("\n");
         }
-        if (treatCount != 0) {
-            searchDetails.append("There are ").append(treatCount).append(" treatment(s)");
+        if (!treatments.isEmpty()) {
+            searchDetails.append("There are ").append(treatments.size()).append(" treatment(s)");
         }
         return searchDetails.toString();
     }
@@ -103,11 +141,6 @@ public class SearchResults extends DukeObject {
         return "";
     }
 
-    @Override
-    public UiCard toCard() {
-        return null;
-    }
-
     @Override
     public Context toContext() {
         return Context.SEARCH;
@@ -26,6 +26,7 @@ public abstract class SummaryTreatment extends Treatment {
 
     public void setSummary(String summary) {
         this.summary = summary;
+        markDirty();
     }
 
     @Override
@@ -65,7 +66,7 @@ public abstract class SummaryTreatment extends Treatment {
     }
 
     @Override
-    public boolean contains(String searchTerm) {
-        return super.contains(searchTerm) || summary.toLowerCase().contains(searchTerm.toLowerCase());
+    protected String[] getSearchFields() {
+        return new String[] {getName(), summary};
     }
 }
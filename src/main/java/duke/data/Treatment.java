@@ -1,9 +1,7 @@
 package duke.data;
 
 import duke.exception.DukeException;
-import duke.exception.DukeFatalException;
 import duke.exception.DukeUtilException;
-import duke.ui.card.TreatmentCard;
 
 import java.util.List;
 import java.util.Map;
@@ -62,23 +60,24 @@ public abstract class Treatment extends DukeData {
      */
     public void setStatus(String status) throws DukeException {
         if (status == null || "".equals(status)) {
-            statusIdx = 0;
-        } else {
-            try {
-                setStatus(Integer.parseInt(status));
-            } catch (NumberFormatException excp) { // not numeric
-                boolean isValidStatus = false;
-                for (int i = 0; i < getStatusArr().size(); ++i) {
-                    if (getStatusArr().get(i).equalsIgnoreCase(status)) {
-                        statusIdx = i;
-                        isValidStatus = true;
-                    }
-                }
-                if (!isValidStatus) {
-                    throw new DukeUtilException("'" + status + "' is not a valid status name!");
+            setStatus(0);
+            return;
+        }
+
+        int newStatusIdx = -1;
+        try {
+            newStatusIdx = Integer.parseInt(status);
+        } catch (NumberFormatException excp) { // not numeric
+            for (int i = 0; i < getStatusArr().size(); ++i) {
+                if (getStatusArr().get(i).equalsIgnoreCase(status)) {
+                    newStatusIdx = i;
                 }
             }
+            if (newStatusIdx == -1) {
+                throw new DukeUtilException("'" + status + "' is not a valid status name!");
+            }
         }
+        setStatus(newStatusIdx);
     }
 
     /**
@@ -90,7 +89,14 @@ public abstract class Treatment extends DukeData {
         if (status < 0 || status >= getStatusArr().size()) {
             throw new DukeException(status + "is not a valid numeric value for the status!");
         }
+        Integer oldStatusIdx = statusIdx;
         statusIdx = status;
+        markDirty();
+        chartChanged();
+        ChangeListener changeListener = getChangeListener();
+        if (changeListener != null && oldStatusIdx != null && oldStatusIdx != status) {
+            changeListener.statusChanged(this, oldStatusIdx);
+        }
     }
 
     public abstract List<String> getStatusArr();
@@ -115,8 +121,5 @@ public abstract class Treatment extends DukeData {
         }
     }
 
-    @Override
-    public abstract TreatmentCard toCard() throws DukeFatalException;
-
     public abstract boolean isFollowUp();
 }
@@ -0,0 +1,67 @@
+package duke.data.storage;
+
+import java.time.LocalDate;
+
+/**
+ * An entry in the index of a {@link DischargeArchive}, identifying a discharged patient by bed, name and discharge
+ * date, and locating the patient's compressed record in the archive.
+ */
+public class ArchiveEntry {
+    private final String bedNo;
+    private final String name;
+    private final LocalDate dischargeDate;
+    private final int segment;
+    private final int offset;
+    private final int length;
+
+    ArchiveEntry(String bedNo, String name, LocalDate dischargeDate, int segment, int offset, int length) {
+        this.bedNo = bedNo;
+        this.name = name;
+        this.dischargeDate = dischargeDate;
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public String getBedNo() {
+        return bedNo;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDate getDischargeDate() {
+        return dischargeDate;
+    }
+
+    int getSegment() {
+        return segment;
+    }
+
+    int getOffset() {
+        return offset;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Checks if the patient was in a bed, was discharged on a date, or has a name containing a search term, ignoring
+     * case.
+     *
+     * @param searchTerm the bed, date in ISO format, or part of the name to look for
+     * @return true if the entry matches
+     */
+    public boolean matches(String searchTerm) {
+        String lowerSearchTerm = searchTerm.toLowerCase();
+        return bedNo.equalsIgnoreCase(searchTerm) || dischargeDate.toString().equals(searchTerm)
+                || name.toLowerCase().contains(lowerSearchTerm);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (bed " + bedNo + "), discharged on " + dischargeDate;
+    }
+}
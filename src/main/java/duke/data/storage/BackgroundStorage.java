@@ -0,0 +1,319 @@
+package duke.data.storage;
+
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static duke.DukeCore.logger;
+
+/**
+ * A storage that writes changes on a background thread. Saving serialises the patients that changed into a
+ * {@link ChangeSet} on the caller's thread, and a single writer thread then writes it to disk, combining any saves
+ * made while it was busy into a single write. Subclasses decide how patients are serialised and how changes are laid
+ * out on disk.
+ *
+ * @param <T> the type that patients are serialised to before being written
+ */
+public abstract class BackgroundStorage<T> implements Storage {
+
+    /**
+     * the id to assign to the next patient saved, and whether the next save has to write every patient, because they
+     * were not loaded from this storage's own files or an earlier write failed.
+     */
+    private int nextId = 0;
+    private volatile boolean isFullWriteDue = true;
+
+    /**
+     * the thread writing changes to disk, and the changes waiting to be written by it.
+     */
+    private final ExecutorService writer;
+    private final Object pendingLock = new Object();
+    private ChangeSet<T> pendingChanges = null;
+    private volatile DukeFatalException writeFailure = null;
+    private Consumer<DukeException> failureListener = null;
+
+    /**
+     * Sets up the data folders and the writer thread.
+     *
+     * @throws DukeFatalException If data folders cannot be setup.
+     */
+    protected BackgroundStorage() throws DukeFatalException {
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        File dataDir = new File("data");
+        File reportDir = new File("data/reports");
+        DukeFatalException folderExcp =
+                new DukeFatalException("Unable to setup data folders, try checking your permissions?");
+
+        if (!dataDir.exists() && !dataDir.mkdir()) {
+            throw folderExcp;
+        }
+        if (!reportDir.exists() && !reportDir.mkdir()) {
+            throw folderExcp;
+        }
+    }
+
+    /**
+     * Serialises a patient, on the thread saving it, so that later changes to the patient do not affect what is
+     * written.
+     */
+    protected abstract T serialise(Patient patient);
+
+    /**
+     * Serialises the changes made to a patient since it was last saved, on the thread saving it. Only called for
+     * patients that have already been saved under their id. By default the whole patient is serialised.
+     */
+    protected T serialiseChanges(Patient patient) {
+        return serialise(patient);
+    }
+
+    /**
+     * Combines the serialised changes to a patient saved while earlier ones were still waiting to be written with
+     * those earlier ones. By default only the later state is kept, as it replaces the earlier one.
+     *
+     * @param earlier the changes saved first
+     * @param later the changes saved after them
+     * @return the changes to write in place of both
+     */
+    protected T merge(T earlier, T later) {
+        return later;
+    }
+
+    /**
+     * Writes a change set to disk. Only ever called on the writer thread.
+     *
+     * @throws DukeFatalException If the changes cannot be written.
+     */
+    protected abstract void write(ChangeSet<T> changes) throws DukeFatalException;
+
+    /**
+     * Reads the stored copy of a patient. Only called while the writer thread is idle, so the state it keeps about
+     * what has been stored, including changes written since the patients were loaded, can be used.
+     *
+     * @param id the id of the patient
+     * @return the patient as it was last saved
+     * @throws IOException If the patient is not stored, or cannot be read.
+     */
+    protected abstract Patient readStoredPatient(String id) throws IOException;
+
+    /**
+     * Saves the changes made to a PatientData since it was loaded or last saved, in the background. The patients that
+     * were removed, or that are marked as dirty, are serialised straight away, so the state saved is the state at the
+     * time of the call, but writing them to disk is left to the writer thread. Saves made while a write is in progress
+     * are combined into a single write once it completes. Failures are reported to the failure listener, and cause the
+     * next save to write every patient.
+     *
+     * @param patientData the patient data whose changes should be saved
+     */
+    @Override
+    public void save(PatientData patientData) {
+        ChangeSet<T> changes = takeChanges(patientData);
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        synchronized (pendingLock) {
+            if (pendingChanges != null) {
+                pendingChanges.append(changes);
+                return;
+            }
+            pendingChanges = changes;
+        }
+        writer.execute(this::writePendingChanges);
+    }
+
+    @Override
+    public void commit(PatientData patientData) throws DukeFatalException {
+        save(patientData);
+        flush();
+    }
+
+    @Override
+    public void flush() throws DukeFatalException {
+        try {
+            awaitWriter();
+        } catch (InterruptedIOException e) {
+            throw new DukeFatalException("Interrupted while saving data! Some data may have been lost.");
+        }
+
+        DukeFatalException failure = writeFailure;
+        writeFailure = null;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void setFailureListener(Consumer<DukeException> failureListener) {
+        this.failureListener = failureListener;
+    }
+
+    /**
+     * Reads the patient as it was last saved, after waiting for the changes saved so far to be written.
+     *
+     * @param patient the patient whose impressions are needed, which must have been saved
+     * @return a copy of the patient as it was last saved
+     * @throws UncheckedIOException If the stored patient cannot be read.
+     */
+    @Override
+    public Patient loadStoredPatient(Patient patient) {
+        try {
+            awaitWriter();
+            return readStoredPatient(patient.getId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits for the writer thread to finish writing all the changes saved so far, after which the state it keeps
+     * about what has been stored can be used by the calling thread.
+     */
+    protected void awaitWriter() throws InterruptedIOException {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data to be saved");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e); // the task does nothing, so it cannot fail
+        }
+    }
+
+    /**
+     * Serialises the changes made to a PatientData since it was last saved, assigning ids to new patients, and marks
+     * the patients as saved. Every patient is included if the PatientData was not loaded from this storage, or if a
+     * full write is due.
+     */
+    private ChangeSet<T> takeChanges(PatientData patientData) {
+        List<Patient> removedPatients = patientData.takeRemovedPatients();
+        ChangeSet<T> changes;
+        if (!patientData.isJournaled() || isFullWriteDue) {
+            isFullWriteDue = false;
+            patientData.setJournaled(true);
+            changes = new ChangeSet<>(true, this::merge);
+            List<Patient> patientList = patientData.getPatientList();
+            for (Patient patient : patientList) {
+                if (patient.getId() != null) {
+                    reserveId(patient.getId());
+                }
+            }
+            Set<String> ids = new HashSet<>();
+            for (Patient patient : patientList) {
+                if (patient.getId() == null || !ids.add(patient.getId())) {
+                    patient.setId(String.valueOf(nextId++));
+                    ids.add(patient.getId());
+                }
+                changes.put(patient.getId(), serialise(patient));
+                patient.clearDirty();
+            }
+        } else {
+            changes = new ChangeSet<>(false, this::merge);
+            for (Patient patient : removedPatients) {
+                if (patient.getId() != null) {
+                    changes.remove(patient.getId());
+                }
+            }
+            for (Patient patient : patientData.getDirtyPatients()) {
+                if (patient.getId() == null) {
+                    patient.setId(String.valueOf(nextId++));
+                    changes.put(patient.getId(), serialise(patient));
+                } else {
+                    changes.put(patient.getId(), serialiseChanges(patient));
+                }
+                patient.clearDirty();
+            }
+        }
+        changes.setNextId(nextId);
+        return changes;
+    }
+
+    private void writePendingChanges() {
+        ChangeSet<T> changes;
+        synchronized (pendingLock) {
+            changes = pendingChanges;
+            pendingChanges = null;
+        }
+
+        try {
+            write(changes);
+        } catch (DukeFatalException e) {
+            logger.severe(e.getMessage());
+            isFullWriteDue = true;
+            writeFailure = e;
+            if (failureListener != null) {
+                failureListener.accept(new DukeException("Unable to save your changes! Saving them again with your "
+                        + "next change."));
+            }
+        }
+    }
+
+    /**
+     * Ensures that an id which is already in use is never assigned to another patient.
+     */
+    protected void reserveId(String id) {
+        try {
+            nextId = Math.max(nextId, Integer.parseInt(id) + 1);
+        } catch (NumberFormatException e) {
+            // not assigned by this storage, so it cannot clash with any id that will be
+        }
+    }
+
+    /**
+     * Sets the id to assign to the next patient saved, as stored along with the patients loaded.
+     */
+    protected void setNextId(int nextId) {
+        this.nextId = nextId;
+    }
+
+    /**
+     * Sets whether the next save has to write every patient, such as when the patients were not loaded from this
+     * storage's own files.
+     */
+    protected void setFullWriteDue(boolean isFullWriteDue) {
+        this.isFullWriteDue = isFullWriteDue;
+    }
+
+    /**
+     * Waits for the writer thread, then forgets any failed write and all ids assigned, so that the next save starts
+     * over with a full write. Subclasses clear their own files and state after calling this.
+     */
+    protected void resetState() throws InterruptedIOException {
+        awaitWriter();
+        writeFailure = null;
+        nextId = 0;
+        isFullWriteDue = true;
+    }
+
+    /**
+     * Moves a fully written file over the file it replaces, atomically if the file system supports it.
+     */
+    protected static void replaceFile(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
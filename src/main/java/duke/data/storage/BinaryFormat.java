@@ -0,0 +1,579 @@
+package duke.data.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the binary snapshot and journal of {@link BinaryStorage}. Integers are written as unsigned LEB128
+ * varints, so priorities, status indices and counts take a single byte, and every record is prefixed with its length,
+ * so a reader can skip over records without decoding them.
+ *
+ * <p>A snapshot holds a magic number and format version, the next id to assign, a table of every distinct string
+ * used by the patients, and then a record for each patient in order. Each record gives the patient's id, followed by
+ * its strings as references into the table, and then its {@link PatientRecord#getFields() fields}. Strings that are
+ * repeated across the ward, such as allergies, statuses and dates, are therefore only stored once.
+ *
+ * <p>A journal is a sequence of entries, each prefixed with its length and a CRC-32 checksum, so that a partially
+ * written entry is detected when it is read. Entries either store a patient under an id, with its strings written
+ * inline, or remove the patient with an id.
+ */
+final class BinaryFormat {
+    private static final byte[] MAGIC = {'D', 'U', 'K', 'B'};
+    private static final int VERSION = 1;
+    private static final int OP_PUT = 0;
+    private static final int OP_REMOVE = 1;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * Reads the bytes at a position in a snapshot or journal, wherever its contents are kept.
+     */
+    interface Reader {
+        ByteBuffer read(int position, int length) throws IOException;
+    }
+
+    /**
+     * Reads the record of a stored patient by its id, wherever the record is kept.
+     */
+    interface RecordSource {
+        PatientRecord read(String id) throws IOException;
+    }
+
+    /**
+     * The position and length of an entry in a journal.
+     */
+    static class EntrySpan {
+        final int position;
+        final int length;
+
+        EntrySpan(int position, int length) {
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the records of the given patients. Each record is read twice, once to collect its strings
+     * and once to write it, so that the records never all have to be held in memory at once.
+     *
+     * @param out the stream to write to
+     * @param nextId the id to assign to the next patient saved
+     * @param ids the ids of the patients, in order
+     * @param records the source to read the record of each patient from
+     * @return the index of the snapshot written, which has no reader until one is set
+     * @throws IOException If the stream cannot be written, or a record cannot be read.
+     */
+    static SnapshotIndex writeSnapshot(OutputStream out, int nextId, Collection<String> ids, RecordSource records)
+            throws IOException {
+        Map<String, Integer> stringRefs = new HashMap<>();
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        List<Integer> stringOffsets = new ArrayList<>();
+        for (String id : ids) {
+            for (String string : records.read(id).getStrings()) {
+                if (string != null && !stringRefs.containsKey(string)) {
+                    stringRefs.put(string, stringRefs.size() + 1);
+                    stringOffsets.add(table.size());
+                    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                    writeVarint(table, bytes.length);
+                    table.write(bytes, 0, bytes.length);
+                }
+            }
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(MAGIC, 0, MAGIC.length);
+        writeVarint(header, VERSION);
+        writeVarint(header, nextId);
+        writeVarint(header, stringRefs.size());
+        header.writeTo(out);
+        table.writeTo(out);
+        int[] tableOffsets = new int[stringOffsets.size() + 2];
+        for (int i = 0; i < stringOffsets.size(); ++i) {
+            tableOffsets[i + 1] = header.size() + stringOffsets.get(i);
+        }
+        int position = header.size() + table.size();
+        tableOffsets[tableOffsets.length - 1] = position;
+
+        ByteArrayOutputStream recordCount = new ByteArrayOutputStream();
+        writeVarint(recordCount, ids.size());
+        recordCount.writeTo(out);
+        position += recordCount.size();
+        LinkedHashMap<String, EntrySpan> recordSpans = new LinkedHashMap<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+        for (String id : ids) {
+            PatientRecord record = records.read(id);
+            body.reset();
+            writeString(body, id);
+            writeVarint(body, record.getStrings().length);
+            for (String string : record.getStrings()) {
+                writeVarint(body, (string == null) ? 0 : stringRefs.get(string));
+            }
+            writeBytes(body, record.getFields());
+
+            prefix.reset();
+            writeVarint(prefix, body.size());
+            prefix.writeTo(out);
+            body.writeTo(out);
+            recordSpans.put(id, new EntrySpan(position, prefix.size() + body.size()));
+            position += prefix.size() + body.size();
+        }
+        return new SnapshotIndex(null, nextId, tableOffsets, recordSpans);
+    }
+
+    /**
+     * Finds where each string and each record in a snapshot starts, skipping over them without decoding them, other
+     * than the ids of the records.
+     *
+     * @param in the contents of the snapshot file, which are read from but not copied
+     * @return the index of the snapshot, reading records from the contents given
+     * @throws StreamCorruptedException If the contents are not a valid snapshot.
+     */
+    static SnapshotIndex indexSnapshot(ByteBuffer in) throws StreamCorruptedException {
+        try {
+            for (byte magicByte : MAGIC) {
+                if (in.get() != magicByte) {
+                    throw new StreamCorruptedException("Not a patient snapshot");
+                }
+            }
+            int version = readVarint(in);
+            if (version != VERSION) {
+                throw new StreamCorruptedException("Unsupported snapshot version " + version);
+            }
+            int nextId = readVarint(in);
+            int[] stringOffsets = new int[readVarint(in) + 2]; // 0 refers to null, and the table ends at the last
+            for (int i = 1; i < stringOffsets.length - 1; ++i) {
+                stringOffsets[i] = in.position();
+                skip(in, readVarint(in));
+            }
+            stringOffsets[stringOffsets.length - 1] = in.position();
+
+            int recordCount = readVarint(in);
+            LinkedHashMap<String, EntrySpan> recordSpans = new LinkedHashMap<>();
+            for (int i = 0; i < recordCount; ++i) {
+                int offset = in.position();
+                int length = readVarint(in);
+                int start = in.position();
+                String id = readString(in);
+                if (id == null) {
+                    throw new StreamCorruptedException("Record without an id");
+                }
+                recordSpans.put(id, new EntrySpan(offset, start - offset + length));
+                in.position(start);
+                skip(in, length);
+            }
+            return new SnapshotIndex(bufferReader(in.duplicate()), nextId, stringOffsets, recordSpans);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new StreamCorruptedException("The snapshot is truncated");
+        }
+    }
+
+    /**
+     * Returns a reader of the contents of a snapshot or journal held in a buffer.
+     */
+    static Reader bufferReader(ByteBuffer data) {
+        return (position, length) -> {
+            ByteBuffer in = data.duplicate();
+            in.position(position);
+            in.limit(position + length);
+            return in.slice();
+        };
+    }
+
+    private static void skip(ByteBuffer in, int length) throws StreamCorruptedException {
+        if (length < 0 || length > in.remaining()) {
+            throw new StreamCorruptedException("The snapshot is truncated");
+        }
+        in.position(in.position() + length);
+    }
+
+    /**
+     * The positions of the strings and records in a snapshot, from which records can be read in any order. While the
+     * records are read from the contents of the snapshot in memory, strings are decoded the first time a record using
+     * them is read, and shared by all records using them.
+     */
+    static class SnapshotIndex {
+        final int nextId;
+        private final int[] stringOffsets;
+        private final LinkedHashMap<String, EntrySpan> recordSpans;
+        private Reader reader;
+        private String[] strings;
+
+        private SnapshotIndex(Reader reader, int nextId, int[] stringOffsets,
+                              LinkedHashMap<String, EntrySpan> recordSpans) {
+            this.reader = reader;
+            this.nextId = nextId;
+            this.stringOffsets = stringOffsets;
+            this.strings = new String[stringOffsets.length];
+            this.recordSpans = recordSpans;
+        }
+
+        /**
+         * Reads the records from a reader from now on, such as one reading the snapshot file rather than its contents
+         * in memory. Strings are then decoded again each time a record using them is read, so that they are only
+         * kept by the patients read.
+         */
+        void setReader(Reader reader) {
+            this.reader = reader;
+            strings = null;
+        }
+
+        /**
+         * Returns the ids of the records in the snapshot, in order.
+         */
+        Set<String> getIds() {
+            return recordSpans.keySet();
+        }
+
+        /**
+         * Reads the record with an id.
+         *
+         * @param id the id of the record, which must be in the snapshot
+         * @return the record
+         * @throws IOException If the record is not valid, or cannot be read.
+         */
+        synchronized PatientRecord readRecord(String id) throws IOException {
+            EntrySpan span = recordSpans.get(id);
+            try {
+                ByteBuffer in = reader.read(span.position, span.length);
+                int length = readVarint(in);
+                int end = in.position() + length;
+                readString(in);
+                String[] recordStrings = new String[readVarint(in)];
+                for (int i = 0; i < recordStrings.length; ++i) {
+                    recordStrings[i] = getString(readVarint(in));
+                }
+                byte[] fields = readBytes(in);
+                if (in.position() != end) {
+                    throw new StreamCorruptedException("Invalid record for patient " + id);
+                }
+                return new PatientRecord(fields, recordStrings);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new StreamCorruptedException("The record for patient " + id + " is truncated");
+            }
+        }
+
+        private String getString(int ref) throws IOException {
+            if (ref >= stringOffsets.length - 1) {
+                throw new StreamCorruptedException("Unknown string " + ref);
+            } else if (ref == 0) {
+                return null;
+            } else if (strings != null && strings[ref] != null) {
+                return strings[ref];
+            }
+            ByteBuffer in = reader.read(stringOffsets[ref], stringOffsets[ref + 1] - stringOffsets[ref]);
+            String string = readUtf8(in, readVarint(in));
+            if (strings != null) {
+                strings[ref] = string;
+            }
+            return string;
+        }
+    }
+
+    /**
+     * Encodes a journal entry storing a patient under an id.
+     *
+     * @param out the stream to write the entry to
+     * @param id the id of the patient
+     * @param record the record of the patient
+     */
+    static void writePut(ByteArrayOutputStream out, String id, PatientRecord record) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(OP_PUT);
+        writeString(body, id);
+        writeRecord(body, record);
+        writeEntry(out, body);
+    }
+
+    /**
+     * Writes a record on its own, with its strings inline rather than in a string table.
+     */
+    static void writeRecord(ByteArrayOutputStream out, PatientRecord record) {
+        writeVarint(out, record.getStrings().length);
+        for (String string : record.getStrings()) {
+            writeString(out, string);
+        }
+        writeBytes(out, record.getFields());
+    }
+
+    /**
+     * Reads a record written by {@link #writeRecord(ByteArrayOutputStream, PatientRecord)}.
+     */
+    static PatientRecord readRecord(ByteBuffer in) throws StreamCorruptedException {
+        String[] strings = new String[readVarint(in)];
+        for (int i = 0; i < strings.length; ++i) {
+            strings[i] = readString(in);
+        }
+        return new PatientRecord(readBytes(in), strings);
+    }
+
+    /**
+     * Encodes a journal entry removing the patient with an id.
+     *
+     * @param out the stream to write the entry to
+     * @param id the id of the patient
+     */
+    static void writeRemove(ByteArrayOutputStream out, String id) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(OP_REMOVE);
+        writeString(body, id);
+        writeEntry(out, body);
+    }
+
+    /**
+     * Writes an entry, prefixed with its length and a CRC-32 checksum of its body.
+     */
+    static void writeEntry(ByteArrayOutputStream out, ByteArrayOutputStream body) {
+        byte[] bytes = body.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        writeVarint(out, bytes.length);
+        int value = (int) checksum.getValue();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.write(value >>> shift);
+        }
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads an entry written by {@link #writeEntry(ByteArrayOutputStream, ByteArrayOutputStream)}, moving past it.
+     *
+     * @param in the data to read the entry from
+     * @return the body of the entry, or null if the entry is incomplete or does not match its checksum
+     */
+    static ByteBuffer readEntry(ByteBuffer in) {
+        try {
+            int length = readVarint(in);
+            int expected = in.getInt();
+            if (length > in.remaining()) {
+                return null;
+            }
+            ByteBuffer body = in.slice();
+            body.limit(length);
+            CRC32 checksum = new CRC32();
+            checksum.update(body.duplicate());
+            if ((int) checksum.getValue() != expected) {
+                return null;
+            }
+            in.position(in.position() + length);
+            return body;
+        } catch (BufferUnderflowException | StreamCorruptedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Handles the entries of a journal as it is read.
+     */
+    private interface JournalHandler {
+        void put(String id, ByteBuffer record, EntrySpan span) throws StreamCorruptedException;
+
+        void remove(String id);
+    }
+
+    /**
+     * Applies the entries in a journal to the records of the patients, in order. Since entries are keyed by id and
+     * hold the full state of the patients they store, a journal can be replayed more than once. Replay stops at the
+     * first entry that is incomplete or does not match its checksum.
+     *
+     * @param in the contents of the journal
+     * @param records the records of the patients, keyed by id, in order
+     * @param replayedIds the set to add the ids of the patients changed by the journal to
+     * @return true if the whole journal was replayed, false if it ends with an entry that could not be read
+     */
+    static boolean replayJournal(ByteBuffer in, LinkedHashMap<String, PatientRecord> records,
+                                 Set<String> replayedIds) {
+        return readJournal(in, replayedIds, new JournalHandler() {
+            @Override
+            public void put(String id, ByteBuffer record, EntrySpan span) throws StreamCorruptedException {
+                records.put(id, readRecord(record));
+            }
+
+            @Override
+            public void remove(String id) {
+                records.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Finds the entries in a journal that store the patients it changes, without keeping the records they store,
+     * which can then be read back with {@link #readPut(ByteBuffer)}. The ids of the patients it removes are removed
+     * from the entries given. Indexing stops at the first entry that is incomplete or does not match its checksum.
+     *
+     * @param in the contents of the journal
+     * @param entries the entries storing each patient, keyed by id, in order, with null for patients not changed
+     * @param replayedIds the set to add the ids of the patients changed by the journal to
+     * @return true if the whole journal was indexed, false if it ends with an entry that could not be read
+     */
+    static boolean indexJournal(ByteBuffer in, LinkedHashMap<String, EntrySpan> entries, Set<String> replayedIds) {
+        return readJournal(in, replayedIds, new JournalHandler() {
+            @Override
+            public void put(String id, ByteBuffer record, EntrySpan span) throws StreamCorruptedException {
+                readRecord(record);
+                entries.put(id, span);
+            }
+
+            @Override
+            public void remove(String id) {
+                entries.remove(id);
+            }
+        });
+    }
+
+    private static boolean readJournal(ByteBuffer in, Set<String> replayedIds, JournalHandler handler) {
+        while (in.hasRemaining()) {
+            int position = in.position();
+            ByteBuffer body = readEntry(in);
+            if (body == null) {
+                return false;
+            }
+            try {
+                int op = body.get();
+                String id = readString(body);
+                if (id == null) {
+                    return false;
+                }
+                if (op == OP_PUT) {
+                    handler.put(id, body, new EntrySpan(position, in.position() - position));
+                } else if (op == OP_REMOVE) {
+                    handler.remove(id);
+                } else {
+                    return false;
+                }
+                replayedIds.add(id);
+            } catch (BufferUnderflowException | IllegalArgumentException | StreamCorruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads back the record stored by a journal entry found by {@link #indexJournal(ByteBuffer, LinkedHashMap, Set)}.
+     *
+     * @param in the entry
+     * @return the record stored by the entry
+     * @throws StreamCorruptedException If the entry is not a valid entry storing a patient.
+     */
+    static PatientRecord readPut(ByteBuffer in) throws StreamCorruptedException {
+        ByteBuffer body = readEntry(in);
+        try {
+            if (body == null || body.get() != OP_PUT || readString(body) == null) {
+                throw new StreamCorruptedException("Invalid journal entry");
+            }
+            return readRecord(body);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new StreamCorruptedException("The journal entry is truncated");
+        }
+    }
+
+    /**
+     * Writes a non-negative integer as a varint, seven bits at a time, lowest bits first.
+     */
+    static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes an integer that may be negative as a varint, zigzag encoded so that small negative values stay small.
+     */
+    static void writeSignedVarint(ByteArrayOutputStream out, int value) {
+        writeVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Reads a varint written by {@link #writeVarint(ByteArrayOutputStream, int)}.
+     *
+     * @throws StreamCorruptedException If the varint is longer than an int allows.
+     */
+    static int readVarint(ByteBuffer in) throws StreamCorruptedException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte next = in.get();
+            value |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    /**
+     * Reads a varint written by {@link #writeSignedVarint(ByteArrayOutputStream, int)}.
+     */
+    static int readSignedVarint(ByteBuffer in) throws StreamCorruptedException {
+        int value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes a string inline, as its length in UTF-8 bytes plus one, followed by the bytes, with 0 standing for null.
+     */
+    static void writeString(ByteArrayOutputStream out, String string) {
+        if (string == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(ByteArrayOutputStream, String)}.
+     */
+    static String readString(ByteBuffer in) throws StreamCorruptedException {
+        int length = readVarint(in);
+        return (length == 0) ? null : readUtf8(in, length - 1);
+    }
+
+    private static String readUtf8(ByteBuffer in, int length) throws StreamCorruptedException {
+        if (length < 0 || length > in.remaining()) {
+            throw new StreamCorruptedException("String runs past the end of the data");
+        }
+        String string;
+        if (in.hasArray()) {
+            string = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return string;
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) throws StreamCorruptedException {
+        int length = readVarint(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new StreamCorruptedException("Record runs past the end of the data");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+}
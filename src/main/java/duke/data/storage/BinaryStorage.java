@@ -0,0 +1,366 @@
+package duke.data.storage;
+
+import com.google.gson.JsonParseException;
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.exception.DukeFatalException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Handles storage of patients in a compact binary snapshot, which is much faster to load than JSON and a fraction of
+ * its size. Changes are appended to a binary journal next to the snapshot, and the snapshot is only rewritten once the
+ * journal has grown as large as the snapshot itself, so the cost of rewriting it is spread over the changes that led
+ * to it. See {@link BinaryFormat} for the layout of both files. Patients can still be exported as JSON, to a json file
+ * next to the snapshot.
+ *
+ * <p>Only the positions of the stored patients in the snapshot and journal are kept in memory, and a patient is read
+ * back from the files whenever its impressions are needed, so the patients whose impressions are unloaded take no
+ * more memory than the details shown on their cards. The snapshot is read in full when it is loaded, and is then
+ * rewritten by compaction a record at a time, reading each record back from the files.
+ */
+public class BinaryStorage extends BackgroundStorage<PatientRecord> {
+    static final String JOURNAL_EXTENSION = ".binlog";
+    private static final String EXPORT_EXTENSION = ".json";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    /**
+     * the journal is never compacted while it is smaller than this, so that small wards do not rewrite their snapshot
+     * on every few changes.
+     */
+    private static final long MIN_COMPACT_BYTES = 64 * 1024;
+
+    private final String filePath;
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Path exportPath;
+
+    /**
+     * the ids of the stored patients in order, each with the position of the journal entry storing it if it was
+     * changed since the snapshot was written, or null if it is stored in the snapshot. This, and the rest of the state
+     * describing what has been stored, is only used by the writer thread, or while it is idle.
+     */
+    private LinkedHashMap<String, BinaryFormat.EntrySpan> locations = new LinkedHashMap<>();
+    private BinaryFormat.SnapshotIndex snapshotIndex = null;
+    private FileChannel snapshotChannel = null;
+    private int storedNextId = 0;
+    private long snapshotBytes = 0;
+    private long journalBytes = 0;
+    private boolean isCompactionDue = false;
+
+    /**
+     * Creates a storage keeping its snapshot at the given path.
+     *
+     * @param path the path of the snapshot file, which need not exist yet
+     * @throws DukeFatalException If data folders cannot be setup.
+     */
+    public BinaryStorage(String path) throws DukeFatalException {
+        filePath = path;
+        snapshotPath = Paths.get(path);
+        journalPath = siblingPath(snapshotPath, JOURNAL_EXTENSION);
+        exportPath = siblingPath(snapshotPath, EXPORT_EXTENSION);
+    }
+
+    /**
+     * Returns the path of a file next to a snapshot, with the same name as the snapshot but a different extension.
+     */
+    static Path siblingPath(Path snapshotPath, String extension) {
+        String fileName = snapshotPath.getFileName().toString();
+        int extIdx = fileName.lastIndexOf('.');
+        String baseName = (extIdx == -1) ? fileName : fileName.substring(0, extIdx);
+        return snapshotPath.resolveSibling(baseName + extension);
+    }
+
+    /**
+     * Loads all the patients from the snapshot, replaying the changes journaled since it was written, or the bundled
+     * sample data if there is no snapshot yet.
+     *
+     * @return the list containing the patients
+     * @throws DukeFatalException If data files cannot be read.
+     */
+    @Override
+    public ArrayList<Patient> loadPatients() throws DukeFatalException {
+        try {
+            awaitWriter();
+            if (Files.exists(snapshotPath)) {
+                return loadSnapshot();
+            }
+
+            setFullWriteDue(true);
+            ArrayList<Patient> patients = new ArrayList<>();
+            JsonFormat.readSamplePatients(patients);
+            return patients;
+        } catch (NoSuchFileException | StreamCorruptedException | JsonParseException e) {
+            throw new DukeFatalException("Unable to read data files, they may have been corrupted!");
+        } catch (IOException e) {
+            throw new DukeFatalException("Unable to load data files, try checking your permissions?");
+        }
+    }
+
+    /**
+     * Loads the patients from the snapshot with only the details shown on their cards. Their impressions are read
+     * back from the files when they are first needed.
+     */
+    private ArrayList<Patient> loadSnapshot() throws IOException {
+        byte[] snapshotData = Files.readAllBytes(snapshotPath);
+        snapshotIndex = BinaryFormat.indexSnapshot(ByteBuffer.wrap(snapshotData));
+        locations = new LinkedHashMap<>();
+        for (String id : snapshotIndex.getIds()) {
+            locations.put(id, null);
+        }
+        storedNextId = snapshotIndex.nextId;
+        snapshotBytes = snapshotData.length;
+        setNextId(snapshotIndex.nextId);
+        replayJournal();
+
+        ArrayList<Patient> patients = new ArrayList<>(locations.size());
+        for (String id : locations.keySet()) {
+            Patient patient = readRecord(id).toHeader(this);
+            patient.setId(id);
+            patients.add(patient);
+        }
+        snapshotIndex.setReader(this::readSnapshot);
+        setFullWriteDue(false);
+        return patients;
+    }
+
+    /**
+     * Finds the entries in the journal storing the patients changed since the snapshot was written. Replay stops at
+     * the first entry that cannot be read, which can only be a partially written final entry, and a compaction is then
+     * scheduled for the next commit, replacing the journal.
+     */
+    private void replayJournal() throws IOException {
+        journalBytes = 0;
+        isCompactionDue = false;
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+
+        byte[] journal = Files.readAllBytes(journalPath);
+        journalBytes = journal.length;
+        Set<String> replayedIds = new HashSet<>();
+        isCompactionDue = !BinaryFormat.indexJournal(ByteBuffer.wrap(journal), locations, replayedIds);
+        for (String id : replayedIds) {
+            reserveId(id);
+        }
+    }
+
+    /**
+     * Reads the stored record of a patient from the journal, if it was changed since the snapshot was written, or
+     * else from the snapshot.
+     */
+    private PatientRecord readRecord(String id) throws IOException {
+        BinaryFormat.EntrySpan span = locations.get(id);
+        if (span == null) {
+            return snapshotIndex.readRecord(id);
+        }
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            return BinaryFormat.readPut(readFully(channel, span.position, span.length));
+        }
+    }
+
+    /**
+     * Reads part of the snapshot, keeping the snapshot open until {@link #closeSnapshot()} is called, as a record is
+     * read a string at a time.
+     */
+    private ByteBuffer readSnapshot(int position, int length) throws IOException {
+        if (snapshotChannel == null) {
+            snapshotChannel = FileChannel.open(snapshotPath, StandardOpenOption.READ);
+        }
+        return readFully(snapshotChannel, position, length);
+    }
+
+    private void closeSnapshot() throws IOException {
+        if (snapshotChannel != null) {
+            snapshotChannel.close();
+            snapshotChannel = null;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("The data file is truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    protected Patient readStoredPatient(String id) throws IOException {
+        if (!locations.containsKey(id)) {
+            throw new NoSuchFileException("There is no stored patient with id " + id);
+        }
+        try {
+            return readRecord(id).toPatient();
+        } finally {
+            closeSnapshot();
+        }
+    }
+
+    @Override
+    protected PatientRecord serialise(Patient patient) {
+        return PatientRecord.of(patient);
+    }
+
+    /**
+     * Writes a change set to disk. Removals and changes are appended to the journal, unless it has grown as large as
+     * the snapshot, in which case the snapshot is rewritten instead and the journal is cleared. A full write replaces
+     * the snapshot.
+     */
+    @Override
+    protected void write(ChangeSet<PatientRecord> changes) throws DukeFatalException {
+        storedNextId = changes.getNextId();
+        Map<String, PatientRecord> changed = new LinkedHashMap<>();
+        if (changes.isFullWrite()) {
+            for (int i = 0; i < changes.size(); ++i) {
+                changed.put(changes.getId(i), changes.getShard(i));
+            }
+            compact(changed.keySet(), changed::get);
+            return;
+        }
+
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        LinkedHashMap<String, BinaryFormat.EntrySpan> newLocations = new LinkedHashMap<>(locations);
+        for (int i = 0; i < changes.size(); ++i) {
+            String id = changes.getId(i);
+            if (changes.isRemoval(i)) {
+                if (newLocations.containsKey(id)) {
+                    newLocations.remove(id);
+                    BinaryFormat.writeRemove(entries, id);
+                }
+            } else {
+                int start = entries.size();
+                BinaryFormat.writePut(entries, id, changes.getShard(i));
+                newLocations.put(id, new BinaryFormat.EntrySpan((int) journalBytes + start, entries.size() - start));
+                changed.put(id, changes.getShard(i));
+            }
+        }
+
+        if (entries.size() == 0) {
+            return;
+        }
+        if (isCompactionDue || journalBytes > Math.max(MIN_COMPACT_BYTES, snapshotBytes)) {
+            compact(newLocations.keySet(), id -> changed.containsKey(id) ? changed.get(id) : readRecord(id));
+        } else {
+            appendJournal(entries);
+            locations = newLocations;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the stored patients to a temporary file, which then replaces the snapshot, and only then
+     * deletes the journal, so that the data can be recovered if this is interrupted at any point.
+     *
+     * @param ids the ids of the patients to store, in order
+     * @param records the source of the record of each patient
+     * @throws DukeFatalException If the data cannot be written.
+     */
+    private void compact(Collection<String> ids, BinaryFormat.RecordSource records) throws DukeFatalException {
+        Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + TEMP_EXTENSION);
+        BinaryFormat.SnapshotIndex written;
+        try {
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+                written = BinaryFormat.writeSnapshot(out, storedNextId, ids, records);
+                out.flush();
+                channel.force(true);
+                snapshotBytes = channel.size();
+            } finally {
+                closeSnapshot();
+            }
+            replaceFile(tempPath, snapshotPath);
+            Files.deleteIfExists(journalPath);
+        } catch (IOException e) {
+            throw new DukeFatalException("Unable to write data! Some data may have been lost.");
+        }
+        written.setReader(this::readSnapshot);
+        snapshotIndex = written;
+        LinkedHashMap<String, BinaryFormat.EntrySpan> newLocations = new LinkedHashMap<>();
+        for (String id : ids) {
+            newLocations.put(id, null);
+        }
+        locations = newLocations;
+        journalBytes = 0;
+        isCompactionDue = false;
+    }
+
+    /**
+     * Appends encoded entries to the journal, and forces them to disk.
+     */
+    private void appendJournal(ByteArrayOutputStream entries) throws DukeFatalException {
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(entries.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            journalBytes = channel.size();
+        } catch (IOException e) {
+            throw new DukeFatalException("Unable to write data! Some data may have been lost.");
+        }
+    }
+
+    /**
+     * Writes the JSON representation of a list of patients to a json file next to the snapshot, for exporting them.
+     *
+     * @param patientList the list containing all the patients
+     * @throws DukeFatalException If the file cannot be written.
+     */
+    @Override
+    public void writeJsonFile(ArrayList<Patient> patientList) throws DukeFatalException {
+        try {
+            JsonFormat.writePatients(exportPath, patientList);
+        } catch (IOException e) {
+            throw new DukeFatalException("Unable to write data! Some data may have been lost.");
+        }
+    }
+
+    @Override
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Deletes the snapshot and the journal. Used to reset the storage data.
+     *
+     * @return an empty PatientData object
+     */
+    @Override
+    public PatientData resetAllData() throws IOException {
+        resetState();
+        Files.deleteIfExists(snapshotPath);
+        Files.deleteIfExists(journalPath);
+        closeSnapshot();
+        locations = new LinkedHashMap<>();
+        snapshotIndex = null;
+        storedNextId = 0;
+        snapshotBytes = 0;
+        journalBytes = 0;
+        isCompactionDue = false;
+        return new PatientData();
+    }
+}
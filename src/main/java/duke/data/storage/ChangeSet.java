@@ -0,0 +1,139 @@
+package duke.data.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.BinaryOperator;
+
+/**
+ * A snapshot of the changes to be saved, holding the serialised state, or the serialised changes, of each changed
+ * patient, so that it can be written out after the patients themselves have been changed again. Change sets taken
+ * while an earlier one is still waiting to be written are appended to it, so that a burst of saves results in a
+ * single write.
+ *
+ * @param <T> the type that patients are serialised to by the storage taking the changes
+ */
+public class ChangeSet<T> {
+
+    private final BinaryOperator<T> merger;
+    private boolean isFullWrite;
+    private int nextId;
+    private ArrayList<String> ids = new ArrayList<>();
+    private ArrayList<T> shards = new ArrayList<>();
+
+    /**
+     * the index of the change storing each patient, if no later change removes it.
+     */
+    private HashMap<String, Integer> putIdxs = new HashMap<>();
+
+    /**
+     * Creates an empty change set.
+     *
+     * @param isFullWrite true if the change set holds every patient, replacing all those already stored
+     */
+    public ChangeSet(boolean isFullWrite) {
+        this(isFullWrite, (earlier, later) -> later);
+    }
+
+    /**
+     * Creates an empty change set, which combines the changes to a patient stored by more than one change with the
+     * given function.
+     *
+     * @param isFullWrite true if the change set holds every patient, replacing all those already stored
+     * @param merger the function combining the earlier and the later serialised changes to a patient into one
+     */
+    public ChangeSet(boolean isFullWrite, BinaryOperator<T> merger) {
+        this.isFullWrite = isFullWrite;
+        this.merger = merger;
+    }
+
+    /**
+     * Records the latest state of a patient, or the changes made to it. If the patient was already stored by an
+     * earlier change, with no removal after it, that change is combined with this one instead, which by default keeps
+     * only the latest state, since that is all that needs to be written.
+     *
+     * @param id the id of the patient
+     * @param shard the serialised patient or changes
+     */
+    public void put(String id, T shard) {
+        Integer putIdx = putIdxs.get(id);
+        if (putIdx != null) {
+            shards.set(putIdx, merger.apply(shards.get(putIdx), shard));
+            return;
+        }
+        putIdxs.put(id, ids.size());
+        ids.add(id);
+        shards.add(shard);
+    }
+
+    /**
+     * Records the removal of a patient.
+     *
+     * @param id the id of the patient
+     */
+    public void remove(String id) {
+        putIdxs.remove(id);
+        ids.add(id);
+        shards.add(null);
+    }
+
+    /**
+     * Adds the changes made after this change set was taken to it. A full write replaces the changes before it.
+     *
+     * @param later the change set taken after this one
+     */
+    public void append(ChangeSet<T> later) {
+        if (later.isFullWrite) {
+            isFullWrite = true;
+            ids = later.ids;
+            shards = later.shards;
+            putIdxs = later.putIdxs;
+        } else {
+            for (int i = 0; i < later.size(); ++i) {
+                if (later.isRemoval(i)) {
+                    remove(later.getId(i));
+                } else {
+                    put(later.getId(i), later.getShard(i));
+                }
+            }
+        }
+        nextId = later.nextId;
+    }
+
+    public boolean isFullWrite() {
+        return isFullWrite;
+    }
+
+    public int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Sets the id to be assigned to the next patient saved after these changes, which is stored along with them.
+     */
+    public void setNextId(int nextId) {
+        this.nextId = nextId;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public boolean isEmpty() {
+        return !isFullWrite && ids.isEmpty();
+    }
+
+    public String getId(int idx) {
+        return ids.get(idx);
+    }
+
+    /**
+     * Returns the serialised patient stored by a change, or null if the change is a removal.
+     */
+    public T getShard(int idx) {
+        return shards.get(idx);
+    }
+
+    public boolean isRemoval(int idx) {
+        return shards.get(idx) == null;
+    }
+}
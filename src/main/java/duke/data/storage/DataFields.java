@@ -0,0 +1,19 @@
+package duke.data.storage;
+
+import duke.data.DukeData;
+
+/**
+ * The properties of an evidence or treatment, collected until its type is known. The properties of all types are held
+ * here, so they can be read in any order relative to the type.
+ */
+class DataFields {
+    String name;
+    int uid;
+    int priority = DukeData.PRIORITY_NONE;
+    String summary;
+    boolean isObjective;
+    Integer statusIdx;
+    String dose;
+    String startDate;
+    String duration;
+}
@@ -0,0 +1,97 @@
+package duke.data.storage;
+
+import duke.data.DukeData;
+import duke.data.Impression;
+import duke.data.Investigation;
+import duke.data.Medicine;
+import duke.data.Observation;
+import duke.data.Plan;
+import duke.data.Result;
+import duke.exception.DukeException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The types of evidence and treatment that can be stored, with the tags identifying them in JSON and the codes
+ * identifying them in the binary format. Codes are part of the binary format, so they must never be reused.
+ */
+enum DataType {
+    OBSERVATION(0, "Observation", Observation.class, true),
+    RESULT(1, "Result", Result.class, true),
+    PLAN(2, "Plan", Plan.class, false),
+    INVESTIGATION(3, "Investigation", Investigation.class, false),
+    MEDICINE(4, "Medicine", Medicine.class, false);
+
+    private static final Map<String, DataType> TAG_TYPES = new HashMap<>();
+    private static final Map<Integer, DataType> CODE_TYPES = new HashMap<>();
+    private static final Map<Class<?>, DataType> CLASS_TYPES = new HashMap<>();
+
+    static {
+        for (DataType type : values()) {
+            TAG_TYPES.put(type.tag, type);
+            CODE_TYPES.put(type.code, type);
+            CLASS_TYPES.put(type.dataClass, type);
+        }
+    }
+
+    final int code;
+    final String tag;
+    final Class<? extends DukeData> dataClass;
+    final boolean isEvidence;
+
+    DataType(int code, String tag, Class<? extends DukeData> dataClass, boolean isEvidence) {
+        this.code = code;
+        this.tag = tag;
+        this.dataClass = dataClass;
+        this.isEvidence = isEvidence;
+    }
+
+    /**
+     * Returns the type with the given tag, or null if there is none.
+     */
+    static DataType fromTag(String tag) {
+        return TAG_TYPES.get(tag);
+    }
+
+    /**
+     * Returns the type with the given code, or null if there is none.
+     */
+    static DataType fromCode(int code) {
+        return CODE_TYPES.get(code);
+    }
+
+    /**
+     * Returns the type of a piece of data, or null if it cannot be stored.
+     */
+    static DataType of(DukeData data) {
+        return CLASS_TYPES.get(data.getClass());
+    }
+
+    /**
+     * Constructs data of this type from the properties read for it.
+     *
+     * @param fields the properties of the data
+     * @param impression the impression that the data belongs to
+     * @return the data constructed
+     * @throws DukeException If the properties are not valid for this type.
+     */
+    DukeData create(DataFields fields, Impression impression) throws DukeException {
+        String status = (fields.statusIdx == null) ? null : fields.statusIdx.toString();
+        switch (this) {
+        case OBSERVATION:
+            return new Observation(fields.name, impression, fields.priority, fields.summary, fields.isObjective);
+        case RESULT:
+            return new Result(fields.name, impression, fields.priority, fields.summary);
+        case PLAN:
+            return new Plan(fields.name, impression, fields.priority, status, fields.summary);
+        case INVESTIGATION:
+            return new Investigation(fields.name, impression, fields.priority, status, fields.summary);
+        case MEDICINE:
+            return new Medicine(fields.name, impression, fields.priority, status, fields.dose, fields.startDate,
+                    fields.duration);
+        default:
+            throw new DukeException("Unknown data type: " + tag);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package duke.data.storage;
+
+import duke.data.Patient;
+import duke.exception.DukeFatalException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps discharged patients, so that they can be restored if they are readmitted, without slowing down the loading of
+ * the patients still in the ward. Patients are appended to numbered segment files, each stored as a compressed
+ * {@link PatientRecord} after its bed, name and discharge date. A new segment is started once the current one is
+ * large enough, and segments are never rewritten, so old ones can be moved elsewhere once they are no longer needed.
+ *
+ * <p>An index file lists the bed, name and discharge date of every archived patient with the position of its record,
+ * and is loaded when the archive is opened, so archived patients can be found without reading the segments. Both
+ * files use the checksummed entries of the binary journal. An archived patient is written to its segment before the
+ * index, so if this is interrupted, the patients missing from the index are found by reading past the last indexed
+ * entry of the last segment, and the index is rewritten before anything else is archived.
+ */
+public class DischargeArchive {
+    private static final String SEGMENT_EXTENSION = ".seg";
+    private static final String INDEX_EXTENSION = ".idx";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int MAX_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    private final Path archivePath;
+    private final Path indexPath;
+    private final List<ArchiveEntry> entries = new ArrayList<>();
+    private int segment = 0;
+    private int segmentBytes = 0;
+    private boolean isRepairDue = false;
+
+    /**
+     * Opens the archive at a path, loading its index.
+     *
+     * @param path the path that the index and segment files are named after
+     * @throws DukeFatalException If the archive cannot be read.
+     */
+    public DischargeArchive(String path) throws DukeFatalException {
+        archivePath = Paths.get(path);
+        indexPath = archivePath.resolveSibling(archivePath.getFileName() + INDEX_EXTENSION);
+        try {
+            loadIndex();
+            recoverUnindexed();
+        } catch (IOException e) {
+            throw new DukeFatalException("Unable to read the discharge archive, try checking your permissions?");
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return archivePath.resolveSibling(archivePath.getFileName() + "." + segment + SEGMENT_EXTENSION);
+    }
+
+    /**
+     * Loads the entries in the index, stopping at the first entry that cannot be read, which can only be a partially
+     * written final entry.
+     */
+    private void loadIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            isRepairDue = Files.exists(segmentPath(0));
+            return;
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        while (in.hasRemaining()) {
+            ByteBuffer body = BinaryFormat.readEntry(in);
+            ArchiveEntry entry = (body == null) ? null : readIndexEntry(body);
+            if (entry == null) {
+                isRepairDue = true;
+                return;
+            }
+            entries.add(entry);
+            segment = entry.getSegment();
+            segmentBytes = entry.getOffset() + entry.getLength();
+        }
+    }
+
+    private static ArchiveEntry readIndexEntry(ByteBuffer body) {
+        try {
+            int segment = BinaryFormat.readVarint(body);
+            int offset = BinaryFormat.readVarint(body);
+            int length = BinaryFormat.readVarint(body);
+            return new ArchiveEntry(BinaryFormat.readString(body), BinaryFormat.readString(body),
+                    LocalDate.parse(BinaryFormat.readString(body)), segment, offset, length);
+        } catch (BufferUnderflowException | StreamCorruptedException | DateTimeParseException
+                | NullPointerException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads past the last indexed entry, adding any patients that were archived without being indexed, and moving on
+     * to the next segment if one was started. A partially written entry at the end is ignored, and overwritten by the
+     * next patient archived.
+     */
+    private void recoverUnindexed() throws IOException {
+        while (Files.exists(segmentPath(segment))) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(segmentPath(segment)));
+            in.position(Math.min(segmentBytes, in.limit()));
+            while (in.hasRemaining()) {
+                int offset = in.position();
+                ByteBuffer body = BinaryFormat.readEntry(in);
+                ArchiveEntry entry = (body == null) ? null : readSegmentEntry(body, segment, offset,
+                        in.position() - offset);
+                if (entry == null) {
+                    isRepairDue = true;
+                    break;
+                }
+                entries.add(entry);
+                segmentBytes = in.position();
+                isRepairDue = true;
+            }
+            if (!Files.exists(segmentPath(segment + 1))) {
+                return;
+            }
+            ++segment;
+            segmentBytes = 0;
+        }
+    }
+
+    private static ArchiveEntry readSegmentEntry(ByteBuffer body, int segment, int offset, int length) {
+        try {
+            return new ArchiveEntry(BinaryFormat.readString(body), BinaryFormat.readString(body),
+                    LocalDate.parse(BinaryFormat.readString(body)), segment, offset, length);
+        } catch (BufferUnderflowException | StreamCorruptedException | DateTimeParseException
+                | NullPointerException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A discharged patient serialised for the archive, as it was when it was discharged, but not yet written to it.
+     */
+    public static final class PendingEntry {
+        private final String bedNo;
+        private final String name;
+        private final LocalDate dischargeDate;
+        private final ByteArrayOutputStream segmentEntry;
+
+        private PendingEntry(String bedNo, String name, LocalDate dischargeDate, ByteArrayOutputStream segmentEntry) {
+            this.bedNo = bedNo;
+            this.name = name;
+            this.dischargeDate = dischargeDate;
+            this.segmentEntry = segmentEntry;
+        }
+    }
+
+    /**
+     * Serialises a patient discharged on a date, so that it can be archived later, as it is now, with
+     * {@link #archive(PendingEntry)}.
+     *
+     * @param patient the patient being discharged
+     * @param dischargeDate the date of the discharge
+     * @return the patient, serialised for the archive
+     */
+    public static PendingEntry prepare(Patient patient, LocalDate dischargeDate) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        BinaryFormat.writeRecord(record, PatientRecord.of(patient));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        BinaryFormat.writeString(body, patient.getBedNo());
+        BinaryFormat.writeString(body, patient.getName());
+        BinaryFormat.writeString(body, dischargeDate.toString());
+        BinaryFormat.writeVarint(body, record.size());
+        byte[] compressed = compress(record.toByteArray());
+        body.write(compressed, 0, compressed.length);
+        ByteArrayOutputStream segmentEntry = new ByteArrayOutputStream();
+        BinaryFormat.writeEntry(segmentEntry, body);
+        return new PendingEntry(patient.getBedNo(), patient.getName(), dischargeDate, segmentEntry);
+    }
+
+    /**
+     * Archives a patient discharged on a date. The patient is written to disk before this returns.
+     *
+     * @param patient the patient being discharged
+     * @param dischargeDate the date of the discharge
+     * @return the entry for the patient in the archive
+     * @throws DukeFatalException If the patient cannot be written.
+     */
+    public ArchiveEntry archive(Patient patient, LocalDate dischargeDate) throws DukeFatalException {
+        return archive(prepare(patient, dischargeDate));
+    }
+
+    /**
+     * Archives a patient serialised by {@link #prepare(Patient, LocalDate)}. The patient is written to disk before
+     * this returns.
+     *
+     * @param pending the patient, serialised for the archive
+     * @return the entry for the patient in the archive
+     * @throws DukeFatalException If the patient cannot be written.
+     */
+    public ArchiveEntry archive(PendingEntry pending) throws DukeFatalException {
+        ByteArrayOutputStream segmentEntry = pending.segmentEntry;
+        try {
+            repairIfDue();
+            if (segmentBytes > 0 && segmentBytes + segmentEntry.size() > MAX_SEGMENT_BYTES) {
+                ++segment;
+                segmentBytes = 0;
+            }
+            ArchiveEntry entry = new ArchiveEntry(pending.bedNo, pending.name, pending.dischargeDate, segment,
+                    segmentBytes, segmentEntry.size());
+            write(segmentPath(segment), segmentBytes, segmentEntry);
+            segmentBytes += segmentEntry.size();
+            entries.add(entry);
+
+            ByteArrayOutputStream indexEntry = new ByteArrayOutputStream();
+            writeIndexEntry(indexEntry, entry);
+            write(indexPath, Files.exists(indexPath) ? Files.size(indexPath) : 0, indexEntry);
+            return entry;
+        } catch (IOException e) {
+            isRepairDue = true;
+            throw new DukeFatalException("Unable to archive the patient! The patient has not been discharged.");
+        }
+    }
+
+    private static void writeIndexEntry(ByteArrayOutputStream out, ArchiveEntry entry) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        BinaryFormat.writeVarint(body, entry.getSegment());
+        BinaryFormat.writeVarint(body, entry.getOffset());
+        BinaryFormat.writeVarint(body, entry.getLength());
+        BinaryFormat.writeString(body, entry.getBedNo());
+        BinaryFormat.writeString(body, entry.getName());
+        BinaryFormat.writeString(body, entry.getDischargeDate().toString());
+        BinaryFormat.writeEntry(out, body);
+    }
+
+    /**
+     * Writes data to a file at a position, discarding anything after it, such as a partially written entry, and
+     * forces it to disk.
+     */
+    private static void write(Path path, long position, ByteArrayOutputStream data) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(position);
+            ByteBuffer buffer = ByteBuffer.wrap(data.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Rewrites the index from the entries loaded, if it is missing entries or ends with a partially written one.
+     */
+    private void repairIfDue() throws IOException {
+        if (!isRepairDue) {
+            return;
+        }
+
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        for (ArchiveEntry entry : entries) {
+            writeIndexEntry(index, entry);
+        }
+        Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + TEMP_EXTENSION);
+        write(tempPath, 0, index);
+        BackgroundStorage.replaceFile(tempPath, indexPath);
+        isRepairDue = false;
+    }
+
+    /**
+     * Finds the archived patients who were in a bed, were discharged on a date, or whose names contain a search term.
+     *
+     * @param searchTerm the bed, date in ISO format, or part of the name to look for
+     * @return the matching entries, most recently discharged first
+     */
+    public List<ArchiveEntry> find(String searchTerm) {
+        List<ArchiveEntry> results = new ArrayList<>();
+        for (ArchiveEntry entry : entries) {
+            if (entry.matches(searchTerm)) {
+                results.add(entry);
+            }
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Returns every archived patient, most recently discharged first.
+     */
+    public List<ArchiveEntry> getEntries() {
+        List<ArchiveEntry> results = new ArrayList<>(entries);
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Reads an archived patient back, as it was when it was discharged. The patient stays in the archive, so it can be
+     * restored again if needed, and is therefore given new uids each time, as objects in the ward must never share a
+     * uid, and the uids of archived patients may have been given out again since.
+     *
+     * @param entry the entry for the patient in this archive
+     * @return the patient, not yet added to any patient data
+     * @throws DukeFatalException If the patient cannot be read.
+     */
+    public Patient restore(ArchiveEntry entry) throws DukeFatalException {
+        try (FileChannel channel = FileChannel.open(segmentPath(entry.getSegment()), StandardOpenOption.READ)) {
+            ByteBuffer in = ByteBuffer.allocate(entry.getLength());
+            while (in.hasRemaining()) {
+                if (channel.read(in, entry.getOffset() + in.position()) < 0) {
+                    throw new EOFException("The archived patient is truncated");
+                }
+            }
+            in.flip();
+            ByteBuffer body = BinaryFormat.readEntry(in);
+            if (body == null) {
+                throw new StreamCorruptedException("The archived patient is corrupted");
+            }
+            for (int i = 0; i < 3; ++i) {
+                BinaryFormat.readString(body);
+            }
+            byte[] record = decompress(body, BinaryFormat.readVarint(body));
+            return BinaryFormat.readRecord(ByteBuffer.wrap(record)).toNewPatient();
+        } catch (IOException | BufferUnderflowException e) {
+            throw new DukeFatalException("Unable to read the archived patient, the archive may have been corrupted!");
+        }
+    }
+
+    private static byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(ByteBuffer in, int length) throws StreamCorruptedException {
+        byte[] compressed = new byte[in.remaining()];
+        in.get(compressed);
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        byte[] data = new byte[length];
+        try {
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int count = inflater.inflate(data, read, length - read);
+                if (count == 0 && inflater.needsInput()) {
+                    break;
+                }
+                read += count;
+            }
+            if (read != length) {
+                throw new StreamCorruptedException("The archived patient is truncated");
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException("The archived patient is corrupted");
+        } finally {
+            inflater.end();
+        }
+    }
+}
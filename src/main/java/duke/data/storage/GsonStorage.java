@@ -4,31 +4,66 @@ package duke.data.storage;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.stream.JsonReader;
-import duke.data.Evidence;
-import duke.data.Help;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.MalformedJsonException;
 import duke.data.Patient;
 import duke.data.PatientData;
-import duke.data.Treatment;
 import duke.exception.DukeFatalException;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StreamCorruptedException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
- * Handles storage of patients.
+ * Handles storage of patients. Each patient is stored in a shard of its own, named by the patient's id, in a directory
+ * next to the json file, and a manifest lists the shards in order. Changes are first appended to a journal, and only
+ * the shards of patients changed since the last compaction are rewritten when the journal is compacted. The journal
+ * only holds the impressions, evidences and treatments that changed, so the cost of a save grows with the size of the
+ * change rather than of the patient. The json file itself holds all patients in a single array, and is only read when
+ * there are no shards yet, so that data saved by older versions is still loaded, or written when exporting the
+ * patients.
+ *
+ * <p>Patients are serialised to one or more lines of the journal, each a {@link JournalEntry}.
  */
-public class GsonStorage {
-    private static final String PATIENT_FILE = "/data/patients.json";
+public class GsonStorage extends BackgroundStorage<String> {
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final String SHARD_EXTENSION = ".json";
+    private static final String SHARD_DIR_SUFFIX = ".shards";
+    private static final String MANIFEST_FILE = "manifest.json";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    /**
+     * the journal is compacted into the shards once it is larger than this, so that loading never has to replay more
+     * than this much of it.
+     */
+    private static final long MIN_COMPACT_BYTES = 64 * 1024;
 
     /**
      * the file that the patients will be stored in.
@@ -40,6 +75,39 @@ public class GsonStorage {
      */
     private final String filePath;
 
+    /**
+     * the append-only file recording changes made since the shards were last compacted.
+     */
+    private final Path journalPath;
+
+    /**
+     * the directory holding a shard for each patient, and the manifest listing them.
+     */
+    private final Path shardDir;
+    private final Path manifestPath;
+
+    /**
+     * the ids of the stored patients in order, and of those with a shard that the changes journaled since the last
+     * compaction apply to. This, and the rest of the state describing what has been stored, is only used by the writer
+     * thread, or while it is idle.
+     */
+    private LinkedHashSet<String> shardIds = new LinkedHashSet<>();
+    private Set<String> compactedIds = new HashSet<>();
+    private int storedNextId = 0;
+
+    /**
+     * the entries journaled for each patient since the last compaction, in order, to be applied to its shard by the
+     * next one.
+     */
+    private final Map<String, List<String>> unsavedEntries = new HashMap<>();
+
+    /**
+     * the ids of patients removed since the last compaction, whose shards are deleted by the next one.
+     */
+    private final Set<String> removedShards = new HashSet<>();
+    private long journalBytes = 0;
+    private boolean isCompactionDue = false;
+
     private Gson gson;
     //private RuntimeTypeAdapterFactory<DukeObject> typeAdapterFactory;
 
@@ -64,76 +132,418 @@ public class GsonStorage {
                 .registerSubtype(Result.class, "type10");*/
 
         GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(Treatment.class, new TreatmentAdaptor())
-                .registerTypeAdapter(Evidence.class, new EvidenceAdaptor());
+        gsonBuilder.registerTypeAdapter(Patient.class, new PatientAdaptor());
         gson = gsonBuilder.create();//new GsonBuilder().registerTypeAdapterFactory(typeAdapterFactory).create();
-
-        File dataDir = new File("data");
-        File reportDir = new File("data/reports");
-        DukeFatalException folderExcp =
-                new DukeFatalException("Unable to setup data folders, try checking your permissions?");
-
-        if (!dataDir.exists() && !dataDir.mkdir()) {
-            throw folderExcp;
-        }
-        if (!reportDir.exists() && !reportDir.mkdir()) {
-            throw folderExcp;
-        }
         filePath = path;
         jsonFile = new File(filePath);
+        String jsonName = jsonFile.getName();
+        int extIdx = jsonName.lastIndexOf('.');
+        String baseName = (extIdx == -1) ? jsonName : jsonName.substring(0, extIdx);
+        journalPath = jsonFile.toPath().resolveSibling(baseName + JOURNAL_EXTENSION);
+        // a json file without an extension would otherwise have the same name as its shard directory
+        shardDir = jsonFile.toPath().resolveSibling((extIdx == -1) ? baseName + SHARD_DIR_SUFFIX : baseName);
+        manifestPath = shardDir.resolve(MANIFEST_FILE);
         if (!jsonFile.exists()) {
             try {
                 if (!jsonFile.createNewFile()) {
                     throw new IOException();
                 }
             } catch (IOException e) {
-                throw folderExcp;
+                throw new DukeFatalException("Unable to setup data folders, try checking your permissions?");
             }
         }
     }
 
     /**
-     * Loads all the patients in the JSON file to a hash map.
+     * Loads all the patients, from their shards if there are any, or else from the JSON file, falling back on the
+     * bundled sample data if the file is empty. Changes journaled since the shards were last compacted are then
+     * replayed.
      *
-     * @return the hash map containing the patients
-     * @throws DukeFatalException If data files cannot be setup.
+     * @return the list containing the patients
+     * @throws DukeFatalException If data files cannot be read.
      */
+    @Override
     public ArrayList<Patient> loadPatients() throws DukeFatalException {
+        try {
+            awaitWriter();
+            if (Files.exists(manifestPath)) {
+                return loadShards();
+            }
+
+            setFullWriteDue(true);
+            return loadJsonFile();
+        } catch (NoSuchFileException | MalformedJsonException | JsonParseException | IllegalStateException e) {
+            throw new DukeFatalException("Unable to read data files, they may have been corrupted!");
+        } catch (IOException e) {
+            throw new DukeFatalException("Unable to load data files, try checking your permissions?");
+        }
+    }
+
+    /**
+     * Loads the patients listed in the manifest from their shards, then replays the journal.
+     */
+    private ArrayList<Patient> loadShards() throws IOException {
+        ShardManifest manifest;
+        try (Reader reader = new InputStreamReader(Files.newInputStream(manifestPath), StandardCharsets.UTF_8)) {
+            manifest = gson.fromJson(reader, ShardManifest.class);
+        }
+        if (manifest == null) {
+            throw new JsonParseException("The manifest is empty");
+        }
+
+        LinkedHashMap<String, Patient> patients = new LinkedHashMap<>();
+        for (Patient patient : readShards(manifest.getPatients())) {
+            patients.put(patient.getId(), patient);
+        }
+        setNextId(manifest.getNextId());
+        compactedIds = new HashSet<>(patients.keySet());
+        unsavedEntries.clear();
+        removedShards.clear();
+        replayJournal(patients);
+        shardIds = new LinkedHashSet<>(patients.keySet());
+        storedNextId = manifest.getNextId();
+        setFullWriteDue(false);
+        return new ArrayList<>(patients.values());
+    }
+
+    /**
+     * Reads the shards with the given ids in parallel, since each one can be read independently of the others.
+     *
+     * @param ids the ids of the shards to read
+     * @return the patients read, in the same order as their ids
+     * @throws IOException If a shard cannot be read, or does not contain valid JSON.
+     */
+    private List<Patient> readShards(List<String> ids) throws IOException {
+        List<Patient> patients = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return patients;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(ids.size(),
+                Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<Patient>> shards = new ArrayList<>();
+            for (String id : ids) {
+                shards.add(pool.submit(() -> readShard(id)));
+            }
+            for (Future<Patient> shard : shards) {
+                patients.add(shard.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading patients");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        return patients;
+    }
+
+    private Patient readShard(String id) throws IOException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(shardPath(id)),
+                StandardCharsets.UTF_8))) {
+            Patient patient = gson.fromJson(reader, Patient.class);
+            if (patient == null) {
+                throw new JsonParseException("The shard for patient " + id + " is empty");
+            }
+            patient.setId(id);
+            return patient;
+        }
+    }
+
+    /**
+     * Loads all the patients in the JSON file, falling back on the bundled sample data if the file is empty.
+     * Patients are read one at a time from a buffered UTF-8 stream, so the file is never held in memory as a whole.
+     */
+    private ArrayList<Patient> loadJsonFile() throws IOException {
         ArrayList<Patient> patients = new ArrayList<>();
+        boolean hasData;
+        try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(jsonFile.toPath()),
+                StandardCharsets.UTF_8))) {
+            hasData = JsonFormat.readPatients(reader, patients);
+        }
+
+        if (!hasData) {
+            JsonFormat.readSamplePatients(patients);
+        }
+        return patients;
+    }
+
+    /**
+     * Applies the changes recorded in the journal to the patients loaded from their shards. Since entries are keyed by
+     * id and set the state of the objects they change, a journal left behind by an interrupted compaction can be
+     * replayed over the shards it was partially compacted into. Replay stops at the first entry that cannot be read
+     * or applied, which can only be a partially written final entry, and a compaction is then scheduled for the next
+     * commit, replacing the journal.
+     *
+     * @param patients the patients read from their shards, keyed by id
+     * @throws IOException If the journal cannot be read.
+     */
+    private void replayJournal(LinkedHashMap<String, Patient> patients) throws IOException {
+        journalBytes = 0;
+        isCompactionDue = false;
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+
+        journalBytes = Files.size(journalPath);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(journalPath),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String id = JournalEntry.applyTo(line, patients);
+                if (id == null) {
+                    isCompactionDue = true;
+                    break;
+                }
+                unsavedEntries.computeIfAbsent(id, entries -> new ArrayList<>()).add(line);
+                reserveId(id);
+            }
+        }
+
+        for (String id : new ArrayList<>(unsavedEntries.keySet())) {
+            if (!patients.containsKey(id)) {
+                unsavedEntries.remove(id);
+                removedShards.add(id);
+            }
+        }
+    }
+
+    /**
+     * Reads the stored copy of a patient from its shard, applying the changes journaled since the last compaction.
+     */
+    @Override
+    protected Patient readStoredPatient(String id) throws IOException {
+        if (!shardIds.contains(id)) {
+            throw new NoSuchFileException("There is no stored patient with id " + id);
+        }
+
         try {
-            String json = Files.readString(Paths.get(filePath), StandardCharsets.US_ASCII);
-            Patient[] patientArr = gson.fromJson(json, Patient[].class);
+            return readUnsavedPatient(id);
+        } catch (JsonParseException e) {
+            throw new StreamCorruptedException("The stored patient with id " + id + " is not valid");
+        }
+    }
+
+    /**
+     * Reads a patient from its shard, if it had one when the journal was last compacted, and applies the entries
+     * journaled for it since.
+     */
+    private Patient readUnsavedPatient(String id) throws IOException {
+        List<String> entries = unsavedEntries.get(id);
+        if (entries == null) {
+            return readShard(id);
+        }
+
+        LinkedHashMap<String, Patient> patients = new LinkedHashMap<>();
+        if (compactedIds.contains(id)) {
+            patients.put(id, readShard(id));
+        }
+        for (String entry : entries) {
+            if (JournalEntry.applyTo(entry, patients) == null) {
+                throw new JsonParseException("The journal entry for patient " + id + " is not valid");
+            }
+        }
+        Patient patient = patients.get(id);
+        if (patient == null) {
+            throw new JsonParseException("The journal does not store patient " + id);
+        }
+        return patient;
+    }
+
+    /**
+     * Serialises a patient into a journal entry storing it in full.
+     */
+    @Override
+    protected String serialise(Patient patient) {
+        return JournalEntry.put(patient.getId(), patient);
+    }
+
+    /**
+     * Serialises the changes made to a patient into a journal entry holding only the objects in it that changed.
+     */
+    @Override
+    protected String serialiseChanges(Patient patient) {
+        return JournalEntry.patch(patient.getId(), patient);
+    }
 
-            if (patientArr == null) {
-                InputStream is = getClass().getResourceAsStream(PATIENT_FILE);
+    /**
+     * Combines the entries journaling the changes to a patient, which are applied in order, one per line.
+     */
+    @Override
+    protected String merge(String earlier, String later) {
+        return earlier + "\n" + later;
+    }
+
+    /**
+     * Writes a change set to disk. Removals and changes are appended to the journal, unless it has grown large enough
+     * to be compacted, in which case the shards of the patients changed since the last compaction are rewritten
+     * instead, and the journal is cleared. A full write replaces all the shards.
+     */
+    @Override
+    protected void write(ChangeSet<String> changes) throws DukeFatalException {
+        storedNextId = changes.getNextId();
+        if (changes.isFullWrite()) {
+            shardIds = new LinkedHashSet<>();
+            compactedIds = new HashSet<>();
+            unsavedEntries.clear();
+            removedShards.clear();
+            for (int i = 0; i < changes.size(); ++i) {
+                String id = changes.getId(i);
+                if (changes.isRemoval(i)) {
+                    shardIds.remove(id);
+                    unsavedEntries.remove(id);
+                } else {
+                    shardIds.add(id);
+                    unsavedEntries.put(id, new ArrayList<>(List.of(changes.getShard(i).split("\n"))));
+                }
+            }
+            findStaleShards();
+            compact();
+            return;
+        }
 
-                if (is != null) {
-                    JsonReader reader = new JsonReader(new InputStreamReader(is));
-                    patientArr = gson.fromJson(reader, Patient[].class);
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < changes.size(); ++i) {
+            String id = changes.getId(i);
+            if (changes.isRemoval(i)) {
+                if (shardIds.remove(id)) {
+                    unsavedEntries.remove(id);
+                    removedShards.add(id);
+                    entries.add(JournalEntry.remove(id));
                 }
+            } else {
+                List<String> patientEntries = List.of(changes.getShard(i).split("\n"));
+                shardIds.add(id);
+                unsavedEntries.computeIfAbsent(id, unsaved -> new ArrayList<>()).addAll(patientEntries);
+                removedShards.remove(id);
+                entries.addAll(patientEntries);
             }
+        }
 
-            if (patientArr != null) {
-                patients.addAll(Arrays.asList(patientArr));
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (isCompactionDue || journalBytes > MIN_COMPACT_BYTES) {
+            compact();
+        } else {
+            appendJournal(entries);
+        }
+    }
+
+    /**
+     * Marks any shards in the shard directory that do not belong to a stored patient for deletion.
+     */
+    private void findStaleShards() throws DukeFatalException {
+        if (!Files.isDirectory(shardDir)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(shardDir, "*" + SHARD_EXTENSION)) {
+            for (Path shard : shards) {
+                String fileName = shard.getFileName().toString();
+                String id = fileName.substring(0, fileName.length() - SHARD_EXTENSION.length());
+                if (!fileName.equals(MANIFEST_FILE) && !shardIds.contains(id)) {
+                    removedShards.add(id);
+                }
             }
         } catch (IOException e) {
-            throw new DukeFatalException("Unable to load data files, try checking your permissions?");
+            throw new DukeFatalException("Unable to write data! Some data may have been lost.");
         }
-        return patients;
     }
 
     /**
-     * Creates a list with the patients in the hash map and writes the lists json representation
-     * to the json file.
+     * Writes the shards of the patients changed since the last compaction, then the manifest, and only then deletes
+     * the shards of removed patients and the journal, so that the data can be recovered if this is interrupted at any
+     * point. The shard of a patient stored in full by a single entry is written as it is, while that of a patient with
+     * changes journaled over its shard is read back first.
+     *
+     * @throws DukeFatalException If the data cannot be written.
+     */
+    private void compact() throws DukeFatalException {
+        try {
+            Files.createDirectories(shardDir);
+            for (Map.Entry<String, List<String>> entries : unsavedEntries.entrySet()) {
+                String id = entries.getKey();
+                String shard = (entries.getValue().size() == 1)
+                        ? JournalEntry.getStoredPatient(id, entries.getValue().get(0)) : null;
+                if (shard == null) {
+                    shard = gson.toJson(readUnsavedPatient(id), Patient.class);
+                }
+                writeFile(shardPath(id), shard);
+            }
+            writeFile(manifestPath, gson.toJson(new ShardManifest(storedNextId, shardIds)));
+            for (String id : removedShards) {
+                Files.deleteIfExists(shardPath(id));
+            }
+            Files.deleteIfExists(journalPath);
+        } catch (IOException | JsonParseException e) {
+            throw new DukeFatalException("Unable to write data! Some data may have been lost.");
+        }
+        compactedIds = new HashSet<>(shardIds);
+        unsavedEntries.clear();
+        removedShards.clear();
+        journalBytes = 0;
+        isCompactionDue = false;
+    }
+
+    /**
+     * Appends entries to the journal as lines of JSON, and forces them to disk.
+     */
+    private void appendJournal(List<String> entries) throws DukeFatalException {
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+            for (String entry : entries) {
+                writer.write(entry);
+                writer.write("\n");
+            }
+            writer.flush();
+            channel.force(false);
+            journalBytes = channel.size();
+        } catch (IOException e) {
+            throw new DukeFatalException("Unable to write data! Some data may have been lost.");
+        }
+    }
+
+    private Path shardPath(String id) {
+        return shardDir.resolve(id + SHARD_EXTENSION);
+    }
+
+    /**
+     * Writes a string to a temporary file, which then replaces the given file, so the file is never left partially
+     * written.
+     */
+    private void writeFile(Path target, String content) throws IOException {
+        Path tempPath = target.resolveSibling(target.getFileName() + TEMP_EXTENSION);
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+            writer.write(content);
+            writer.flush();
+            channel.force(true);
+        }
+        replaceFile(tempPath, target);
+    }
+
+    /**
+     * Writes the JSON representation of a list of patients to the json file, for exporting them. The json file is
+     * never left partially written.
      *
-     * @param patientList the hash map containng all the patients
-     * @throws DukeFatalException If the file writer cannot be setup.
+     * @param patientList the list containing all the patients
+     * @throws DukeFatalException If the file cannot be written.
      */
+    @Override
     public void writeJsonFile(ArrayList<Patient> patientList) throws DukeFatalException {
         try {
-            FileWriter fileWriter = new FileWriter(jsonFile);
-            fileWriter.write(gson.toJson(patientList));
-            fileWriter.close();
+            JsonFormat.writePatients(jsonFile.toPath(), patientList);
         } catch (IOException e) {
             throw new DukeFatalException("Unable to write data! Some data may have been lost.");
         }
@@ -144,39 +554,37 @@ public class GsonStorage {
      *
      * @return the filepath
      */
+    @Override
     public String getFilePath() {
         return filePath;
     }
 
     /**
-     * Clears the json file and the paitent hash map. Used to reset the storage data.
+     * Clears the json file, the shards, the journal and the paitent hash map. Used to reset the storage data.
      *
      * @return an empty PatientData object
      */
+    @Override
     public PatientData resetAllData() throws IOException {
+        resetState();
         FileWriter fileWriter = new FileWriter(jsonFile);
         fileWriter.close();
-        return new PatientData();
-    }
-
-    /* @@author gowgos5 */
-    /**
-     * Loads help details from a pre-defined JSON file.
-     *
-     * @param file Relative help file path.
-     * @return A list of {@code Help} objects.
-     */
-    public List<Help> loadHelpList(String file) {
-        List<Help> helpList = new ArrayList<>();
-
-        InputStream is = getClass().getResourceAsStream(file);
-
-        if (is != null) {
-            JsonReader reader = new JsonReader(new InputStreamReader(is));
-            Help[] helps = gson.fromJson(reader, Help[].class);
-            helpList = Arrays.asList(helps);
+        Files.deleteIfExists(journalPath);
+        if (Files.isDirectory(shardDir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(shardDir)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(shardDir);
         }
-
-        return helpList;
+        shardIds = new LinkedHashSet<>();
+        compactedIds = new HashSet<>();
+        storedNextId = 0;
+        unsavedEntries.clear();
+        removedShards.clear();
+        journalBytes = 0;
+        isCompactionDue = false;
+        return new PatientData();
     }
 }
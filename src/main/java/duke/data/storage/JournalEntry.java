@@ -0,0 +1,150 @@
+package duke.data.storage;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import duke.data.Patient;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+
+/**
+ * A single change to the patients, recorded in the journal as a line of JSON so that a save only needs to write what
+ * changed. A new patient is stored in full, while a patient that was already stored only has the objects in it that
+ * changed stored, referring to the rest by uid. Entries refer to patients by their id, and set the state of each
+ * object they hold rather than describing how to change it, so replaying a journal more than once, or against shards
+ * that already hold some of its changes, gives the same result.
+ */
+public class JournalEntry {
+
+    /**
+     * The kind of change recorded by an entry.
+     */
+    public enum Op {
+        PUT, PATCH, REMOVE
+    }
+
+    private static final PatientAdaptor ADAPTOR = new PatientAdaptor();
+
+    private JournalEntry() {
+    }
+
+    /**
+     * Serialises an entry storing the full state of a patient.
+     */
+    public static String put(String id, Patient patient) {
+        return write(Op.PUT, id, patient);
+    }
+
+    /**
+     * Serialises an entry storing the changes made to a patient since it was last saved under the same id.
+     */
+    public static String patch(String id, Patient patient) {
+        return write(Op.PATCH, id, patient);
+    }
+
+    /**
+     * Serialises an entry removing a patient.
+     */
+    public static String remove(String id) {
+        return write(Op.REMOVE, id, null);
+    }
+
+    private static String write(Op op, String id, Patient patient) {
+        StringWriter line = new StringWriter();
+        try {
+            JsonWriter out = new JsonWriter(line);
+            out.setSerializeNulls(false);
+            out.beginObject();
+            out.name("op").value(op.name());
+            out.name("id").value(id);
+            if (op == Op.PUT) {
+                out.name("patient");
+                ADAPTOR.write(out, patient);
+            } else if (op == Op.PATCH) {
+                out.name("patient");
+                ADAPTOR.writeChanges(out, patient);
+            }
+            out.endObject();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringWriter is never closed, so this cannot happen
+        }
+        return line.toString();
+    }
+
+    /**
+     * Returns the serialised patient stored by an entry, if it is a single entry storing the full state of the patient
+     * with the given id, so that it can be written to a shard without being read first.
+     *
+     * @param id the id of the patient
+     * @param line the entry, written by {@link #put(String, Patient)}
+     * @return the serialised patient, or null if the entry is not one storing it in full
+     */
+    public static String getStoredPatient(String id, String line) {
+        String prefix = "{\"op\":\"PUT\",\"id\":" + new JsonPrimitive(id) + ",\"patient\":";
+        if (!line.startsWith(prefix) || !line.endsWith("}") || line.indexOf('\n') != -1) {
+            return null;
+        }
+        return line.substring(prefix.length(), line.length() - 1);
+    }
+
+    /**
+     * Applies a change to the patients, keyed by id in the order they are listed. A patient stored under a new id
+     * is added to the end, while one stored under an existing id replaces the old patient in its place. Changes to a
+     * patient that is not listed are ignored, as that only happens when they are applied again after a later entry
+     * has removed the patient.
+     *
+     * @param line the entry
+     * @param patients the patients to change
+     * @return the id of the patient changed, or null if the entry is not valid, in which case the patients are left
+     *     unchanged
+     */
+    public static String applyTo(String line, LinkedHashMap<String, Patient> patients) {
+        Op op = null;
+        String id = null;
+        Patient patient = null;
+        try (JsonReader in = new JsonReader(new StringReader(line))) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if ("op".equals(field)) {
+                    op = Op.valueOf(in.nextString());
+                } else if ("id".equals(field)) {
+                    id = in.nextString();
+                } else if ("patient".equals(field) && op == Op.PUT && id != null) {
+                    patient = ADAPTOR.read(in);
+                } else if ("patient".equals(field) && op == Op.PATCH && patients.containsKey(id)) {
+                    patient = ADAPTOR.readChanges(in, patients.get(id));
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        } catch (IOException | JsonParseException | IllegalArgumentException | IllegalStateException e) {
+            return null;
+        }
+
+        if (op == null || id == null || (op == Op.PUT && patient == null)) {
+            return null;
+        }
+        switch (op) {
+        case PUT:
+        case PATCH:
+            if (patient != null) {
+                patient.setId(id);
+                patients.put(id, patient);
+            }
+            return id;
+        case REMOVE:
+            patients.remove(id);
+            return id;
+        default:
+            return null;
+        }
+    }
+}
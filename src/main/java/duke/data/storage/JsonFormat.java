@@ -0,0 +1,103 @@
+package duke.data.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import duke.data.Patient;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads and writes patients as a single JSON array, the format used for importing and exporting patients whichever
+ * storage they are kept in.
+ */
+final class JsonFormat {
+    private static final String PATIENT_FILE = "/data/patients.json";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    static final Gson GSON = new GsonBuilder().registerTypeAdapter(Patient.class, new PatientAdaptor()).create();
+
+    private JsonFormat() {
+    }
+
+    /**
+     * Reads a JSON array of patients from a stream, one patient at a time.
+     *
+     * @param in the stream to read the array from
+     * @param patients the list to add the patients to
+     * @return false if the stream held no data (empty, or a JSON null), true otherwise
+     * @throws IOException If the stream cannot be read, or does not contain valid JSON.
+     */
+    static boolean readPatients(Reader in, List<Patient> patients) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        try {
+            if (reader.peek() == JsonToken.NULL) {
+                return false;
+            }
+        } catch (EOFException e) { // empty document
+            return false;
+        }
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            patients.add(GSON.fromJson(reader, Patient.class));
+        }
+        reader.endArray();
+        return true;
+    }
+
+    /**
+     * Reads the sample patients bundled with the application, which are loaded when there is no data yet.
+     *
+     * @param patients the list to add the patients to
+     * @throws IOException If the sample data cannot be read.
+     */
+    static void readSamplePatients(List<Patient> patients) throws IOException {
+        InputStream is = JsonFormat.class.getResourceAsStream(PATIENT_FILE);
+
+        if (is != null) {
+            try (Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+                readPatients(reader, patients);
+            }
+        }
+    }
+
+    /**
+     * Writes a list of patients to a file as a JSON array. Patients are serialised one at a time into a buffered
+     * writer over a temporary file, which then replaces the file, so the file is never left partially written.
+     *
+     * @param path the file to write
+     * @param patients the patients to write
+     * @throws IOException If the file cannot be written.
+     */
+    static void writePatients(Path path, List<Patient> patients) throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + TEMP_EXTENSION);
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            JsonWriter writer = GSON.newJsonWriter(new BufferedWriter(new OutputStreamWriter(
+                    Channels.newOutputStream(channel), StandardCharsets.UTF_8)));
+            writer.beginArray();
+            for (Patient patient : patients) {
+                GSON.toJson(patient, Patient.class, writer);
+            }
+            writer.endArray();
+            writer.flush();
+            channel.force(true);
+        }
+        BackgroundStorage.replaceFile(tempPath, path);
+    }
+}
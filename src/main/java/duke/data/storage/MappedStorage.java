@@ -0,0 +1,178 @@
+package duke.data.storage;
+
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Opens the binary snapshot of a {@link BinaryStorage} read-only, for browsing a ward without being able to change it.
+ * The snapshot is memory-mapped and only indexed when loaded: each patient is read from the mapped bytes with only the
+ * details shown on its card, and its impressions are read from them again when first needed, so opening even a large
+ * ward is almost instant and its patients are never all held in memory at once. Changes journaled since the snapshot
+ * was written are read in full, as the journal is small compared to the snapshot.
+ *
+ * <p>Nothing is ever written. Commands that change the patients are refused by the executor, as the storage is
+ * {@link #isReadOnly() read-only}, and any changes that are saved anyway are reported as not saved.
+ */
+public class MappedStorage implements Storage {
+    private static final String READ_ONLY_MESSAGE = "The patients are open read-only, so changes cannot be saved!";
+
+    private final String filePath;
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private Consumer<DukeException> failureListener = null;
+
+    private BinaryFormat.SnapshotIndex index = null;
+
+    /**
+     * the ids of the stored patients in order, each with its record if it was changed since the snapshot was written,
+     * or null if it is read from the snapshot.
+     */
+    private LinkedHashMap<String, PatientRecord> records = new LinkedHashMap<>();
+
+    /**
+     * Creates a storage viewing the snapshot at the given path.
+     *
+     * @param path the path of the snapshot file
+     */
+    public MappedStorage(String path) {
+        filePath = path;
+        snapshotPath = Paths.get(path);
+        journalPath = BinaryStorage.siblingPath(snapshotPath, BinaryStorage.JOURNAL_EXTENSION);
+    }
+
+    /**
+     * Maps the snapshot into memory and indexes it, then loads the patients with only the details shown on their
+     * cards, applying the changes journaled since the snapshot was written.
+     *
+     * @return the list containing the patients
+     * @throws DukeFatalException If there is no snapshot, or the data files cannot be read.
+     */
+    @Override
+    public ArrayList<Patient> loadPatients() throws DukeFatalException {
+        if (!Files.exists(snapshotPath)) {
+            throw new DukeFatalException("There is no snapshot to view at " + filePath + "!");
+        }
+
+        try {
+            ByteBuffer snapshot;
+            try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+                snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            index = BinaryFormat.indexSnapshot(snapshot);
+            records = new LinkedHashMap<>();
+            for (String id : index.getIds()) {
+                records.put(id, null);
+            }
+            if (Files.exists(journalPath)) {
+                BinaryFormat.replayJournal(ByteBuffer.wrap(Files.readAllBytes(journalPath)), records,
+                        new HashSet<>());
+            }
+
+            ArrayList<Patient> patients = new ArrayList<>(records.size());
+            for (Map.Entry<String, PatientRecord> entry : records.entrySet()) {
+                PatientRecord record = entry.getValue();
+                if (record == null) {
+                    record = index.readRecord(entry.getKey());
+                }
+                Patient patient = record.toHeader(this);
+                patient.setId(entry.getKey());
+                patients.add(patient);
+            }
+            return patients;
+        } catch (NoSuchFileException | StreamCorruptedException e) {
+            throw new DukeFatalException("Unable to read data files, they may have been corrupted!");
+        } catch (IOException e) {
+            throw new DukeFatalException("Unable to load data files, try checking your permissions?");
+        }
+    }
+
+    /**
+     * Reads the impressions of a patient back from the journal, if they were changed since the snapshot was written,
+     * or else from the mapped snapshot.
+     *
+     * @param patient the patient whose impressions are needed
+     * @return a copy of the patient as it is stored
+     * @throws UncheckedIOException If the stored patient cannot be read.
+     */
+    @Override
+    public Patient loadStoredPatient(Patient patient) {
+        String id = patient.getId();
+        try {
+            if (!records.containsKey(id)) {
+                throw new NoSuchFileException("There is no stored patient with id " + id);
+            }
+            PatientRecord record = records.get(id);
+            return (record == null) ? index.readRecord(id).toPatient() : record.toPatient();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reports any changes made to the patients as not saved, as nothing can be written.
+     *
+     * @param patientData the patient data whose changes would be saved
+     */
+    @Override
+    public void save(PatientData patientData) {
+        if (!patientData.takeRemovedPatients().isEmpty() || !patientData.getDirtyPatients().isEmpty()) {
+            if (failureListener != null) {
+                failureListener.accept(new DukeException(READ_ONLY_MESSAGE));
+            }
+        }
+    }
+
+    @Override
+    public void commit(PatientData patientData) throws DukeFatalException {
+        if (!patientData.takeRemovedPatients().isEmpty() || !patientData.getDirtyPatients().isEmpty()) {
+            throw new DukeFatalException(READ_ONLY_MESSAGE);
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void setFailureListener(Consumer<DukeException> failureListener) {
+        this.failureListener = failureListener;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public void writeJsonFile(ArrayList<Patient> patientList) throws DukeFatalException {
+        throw new DukeFatalException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public String getFilePath() {
+        return filePath;
+    }
+
+    @Override
+    public PatientData resetAllData() throws IOException {
+        throw new IOException(READ_ONLY_MESSAGE);
+    }
+}
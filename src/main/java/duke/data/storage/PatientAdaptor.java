@@ -0,0 +1,527 @@
+package duke.data.storage;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import duke.data.DukeData;
+import duke.data.DukeObject;
+import duke.data.Evidence;
+import duke.data.Impression;
+import duke.data.Medicine;
+import duke.data.Observation;
+import duke.data.Patient;
+import duke.data.SummaryTreatment;
+import duke.data.Treatment;
+import duke.exception.DukeException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a patient, with all of its impressions and their evidences and treatments, as a stream of JSON
+ * tokens, without reflection or an intermediate tree. Each object is constructed with a reference to the object
+ * containing it as soon as it is read, so no separate pass is needed to link children to their parents. The format is
+ * the one that Gson produces by reflection, with each evidence and treatment wrapped in an object giving its type,
+ * except that every object also has its uid, and the primary diagnosis is stored as the uid of one of the impressions
+ * rather than as a copy of it. Patients saved before uids were stored are still read, linking their primary diagnosis
+ * by name, but are left marked as changed, so that the uids they are given are saved.
+ *
+ * <p>The changes made to a patient since it was last saved are written in the same format, except that each
+ * impression, evidence or treatment that has not changed is written as an object holding only its uid, which is
+ * looked up in the stored copy of the patient when the changes are read back.
+ */
+public class PatientAdaptor extends TypeAdapter<Patient> {
+
+    @Override
+    public void write(JsonWriter out, Patient patient) throws IOException {
+        writePatient(out, patient, false);
+    }
+
+    /**
+     * Writes the changes made to a patient since it was last saved, to be read back over its stored copy by
+     * {@link #readChanges(JsonReader, Patient)}. The details of the patient, and of each impression that has changed,
+     * are always written in full, along with the uids of all their children, so that additions, removals and moves
+     * are recorded, but children that have not changed are written as just their uid. The impressions of a patient
+     * that are not loaded cannot have changed, and are left out.
+     *
+     * @param out the writer to write to
+     * @param patient the patient, which must have been saved before
+     * @throws IOException If the changes cannot be written.
+     */
+    public void writeChanges(JsonWriter out, Patient patient) throws IOException {
+        writePatient(out, patient, true);
+    }
+
+    private void writePatient(JsonWriter out, Patient patient, boolean isChangesOnly) throws IOException {
+        if (patient == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("uid").value(patient.getUid());
+        out.name("bedNo").value(patient.getBedNo());
+        out.name("allergies").value(patient.getAllergies());
+        boolean hasImpressions = !isChangesOnly || patient.isLoaded();
+        if (hasImpressions && patient.getPrimaryDiagnosis() != null) {
+            out.name("primaryDiagnosisUid").value(patient.getPrimaryDiagnosis().getUid());
+        }
+        if (hasImpressions && patient.getImpressionList() != null) {
+            out.name("impressionList").beginArray();
+            for (Impression impression : patient.getImpressionList()) {
+                if (isChangesOnly && !impression.isDirty()) {
+                    writeUid(out, impression);
+                } else {
+                    writeImpression(out, impression, isChangesOnly);
+                }
+            }
+            out.endArray();
+        }
+        out.name("height").value(patient.getHeight());
+        out.name("weight").value(patient.getWeight());
+        out.name("age").value(patient.getAge());
+        out.name("number").value(patient.getNumber());
+        out.name("address").value(patient.getAddress());
+        out.name("history").value(patient.getHistory());
+        out.name("name").value(patient.getName());
+        out.endObject();
+    }
+
+    private void writeImpression(JsonWriter out, Impression impression, boolean isChangesOnly) throws IOException {
+        out.beginObject();
+        out.name("uid").value(impression.getUid());
+        out.name("description").value(impression.getDescription());
+        if (impression.getEvidences() != null) {
+            out.name("evidences");
+            writeDataList(out, impression.getEvidences(), isChangesOnly);
+        }
+        if (impression.getTreatments() != null) {
+            out.name("treatments");
+            writeDataList(out, impression.getTreatments(), isChangesOnly);
+        }
+        out.name("name").value(impression.getName());
+        out.endObject();
+    }
+
+    /**
+     * Writes an object that has not changed since it was last saved as just its uid.
+     */
+    private void writeUid(JsonWriter out, DukeObject obj) throws IOException {
+        out.beginObject();
+        out.name("uid").value(obj.getUid());
+        out.endObject();
+    }
+
+    private void writeDataList(JsonWriter out, List<? extends DukeData> dataList, boolean isChangesOnly)
+            throws IOException {
+        out.beginArray();
+        for (DukeData data : dataList) {
+            if (isChangesOnly && !data.isDirty()) {
+                writeUid(out, data);
+                continue;
+            }
+
+            DataType type = DataType.of(data);
+            if (type == null) {
+                throw new JsonParseException("Cannot store data of type " + data.getClass().getSimpleName());
+            }
+
+            out.beginObject();
+            out.name("type").value(type.tag);
+            out.name("properties").beginObject();
+            switch (type) {
+            case OBSERVATION:
+                out.name("isObjective").value(((Observation) data).isObjective());
+                out.name("summary").value(((Evidence) data).getSummary());
+                break;
+            case RESULT:
+                out.name("summary").value(((Evidence) data).getSummary());
+                break;
+            case PLAN:
+            case INVESTIGATION:
+                out.name("summary").value(((SummaryTreatment) data).getSummary());
+                out.name("statusIdx").value(((Treatment) data).getStatusIdx());
+                break;
+            case MEDICINE:
+                Medicine medicine = (Medicine) data;
+                out.name("dose").value(medicine.getDose());
+                out.name("startDate").value(medicine.getStartDate());
+                out.name("duration").value(medicine.getDuration());
+                out.name("statusIdx").value(medicine.getStatusIdx());
+                break;
+            default:
+                break;
+            }
+            out.name("priority").value(data.getPriority());
+            out.name("uid").value(data.getUid());
+            out.name("name").value(data.getName());
+            out.endObject();
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    @Override
+    public Patient read(JsonReader in) throws IOException {
+        return readPatient(in, null);
+    }
+
+    /**
+     * Reads the changes made to a patient, written by {@link #writeChanges(JsonWriter, Patient)}, and applies them to
+     * its stored copy. The objects of the stored copy that have not changed are moved into the patient returned, so
+     * the stored copy should not be used afterwards, unless the changes could not be read. Unchanged objects that
+     * cannot be found in the stored copy are left out, as that only happens when the changes are applied again to a
+     * copy that already holds later changes, which remove them.
+     *
+     * @param in the reader to read from
+     * @param stored the stored copy of the patient
+     * @return the patient with the changes applied
+     * @throws IOException If the changes cannot be read, or are not valid.
+     */
+    public Patient readChanges(JsonReader in, Patient stored) throws IOException {
+        try {
+            return readPatient(in, stored);
+        } catch (IOException | RuntimeException e) {
+            // give the objects already moved out of the stored copy back to it, so that it is left as it was
+            for (Impression impression : stored.getImpressionList()) {
+                impression.setParent(stored);
+                impression.initChildren();
+            }
+            throw e;
+        }
+    }
+
+    private Patient readPatient(JsonReader in, Patient stored) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Map<Integer, DukeObject> storedObjects = (stored == null) ? null : indexObjects(stored);
+        Patient patient = new Patient(null, null, null, -1, -1, -1, -1, null, null);
+        boolean hasImpressions = false;
+        boolean hasUid = false;
+        int primaryUid = 0;
+        Impression primaryDiagnosis = null;
+        String primaryName = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+
+            switch (field) {
+            case "uid":
+                patient.setUid(readUid(in));
+                hasUid = true;
+                break;
+            case "bedNo":
+                patient.setBedNo(in.nextString());
+                break;
+            case "allergies":
+                patient.setAllergies(in.nextString());
+                break;
+            case "primaryDiagnosisUid":
+                primaryUid = readUid(in);
+                break;
+            case "primaryDiagnosis":
+                primaryName = readName(in);
+                break;
+            case "impressionList":
+                hasImpressions = true;
+                in.beginArray();
+                while (in.hasNext()) {
+                    Impression impression = readImpression(in, patient, storedObjects);
+                    if (impression == null) {
+                        continue;
+                    }
+                    patient.getImpressionList().add(impression);
+                    if (primaryUid != 0 && impression.getUid() == primaryUid) {
+                        primaryDiagnosis = impression;
+                    }
+                }
+                in.endArray();
+                break;
+            case "height":
+                patient.setHeight(in.nextInt());
+                break;
+            case "weight":
+                patient.setWeight(in.nextInt());
+                break;
+            case "age":
+                patient.setAge(in.nextInt());
+                break;
+            case "number":
+                patient.setNumber(in.nextInt());
+                break;
+            case "address":
+                patient.setAddress(in.nextString());
+                break;
+            case "history":
+                patient.setHistory(in.nextString());
+                break;
+            case "name":
+                patient.setName(in.nextString());
+                break;
+            default:
+                in.skipValue();
+                break;
+            }
+        }
+        in.endObject();
+
+        if (stored != null && !hasImpressions) {
+            // the impressions were not loaded when the changes were written, so they are unchanged
+            for (Impression impression : stored.getImpressionList()) {
+                impression.setParent(patient);
+                patient.getImpressionList().add(impression);
+            }
+            primaryDiagnosis = stored.getPrimaryDiagnosis();
+        }
+        patient.initImpressions();
+
+        if (primaryUid != 0 && primaryDiagnosis == null) {
+            // only if the uid was read after the impressions
+            primaryDiagnosis = findImpression(patient, primaryUid);
+            if (primaryDiagnosis == null && stored == null) {
+                throw new JsonParseException("Invalid primary diagnosis " + primaryUid);
+            }
+        } else if (primaryDiagnosis == null && primaryName != null) {
+            // saved before uids were stored, as a copy of one of the impressions, so only its name is needed
+            primaryDiagnosis = patient.getImpression(primaryName);
+        }
+        if (primaryDiagnosis != null) {
+            patient.restorePrimaryDiagnosis(primaryDiagnosis);
+        }
+        if (hasUid) {
+            patient.clearDirty();
+        }
+        return patient;
+    }
+
+    private Impression findImpression(Patient patient, int uid) {
+        for (Impression impression : patient.getImpressionList()) {
+            if (impression.getUid() == uid) {
+                return impression;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indexes the impressions, evidences and treatments of the stored copy of a patient by uid.
+     */
+    private Map<Integer, DukeObject> indexObjects(Patient stored) {
+        Map<Integer, DukeObject> objects = new HashMap<>();
+        for (Impression impression : stored.getImpressionList()) {
+            objects.put(impression.getUid(), impression);
+            for (DukeData data : impression.getEvidences()) {
+                objects.put(data.getUid(), data);
+            }
+            for (DukeData data : impression.getTreatments()) {
+                objects.put(data.getUid(), data);
+            }
+        }
+        return objects;
+    }
+
+    private int readUid(JsonReader in) throws IOException {
+        int uid = in.nextInt();
+        if (uid <= 0) {
+            throw new JsonParseException("Invalid uid " + uid);
+        }
+        return uid;
+    }
+
+    /**
+     * Reads the name of an object, skipping its other fields.
+     */
+    private String readName(JsonReader in) throws IOException {
+        String name = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("name".equals(in.nextName()) && in.peek() == JsonToken.STRING) {
+                name = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return name;
+    }
+
+    /**
+     * Reads an impression, or, when reading changes, finds an unchanged impression written as just its uid in the
+     * stored copy of the patient.
+     *
+     * @return the impression, or null if it is unchanged but cannot be found
+     */
+    private Impression readImpression(JsonReader in, Patient patient, Map<Integer, DukeObject> storedObjects)
+            throws IOException {
+        Impression impression = new Impression(null, null, patient);
+        boolean isUidOnly = true;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+
+            isUidOnly = isUidOnly && "uid".equals(field);
+            switch (field) {
+            case "uid":
+                impression.setUid(readUid(in));
+                break;
+            case "description":
+                impression.setDescription(in.nextString());
+                break;
+            case "evidences":
+                in.beginArray();
+                while (in.hasNext()) {
+                    Evidence evidence = (Evidence) readData(in, impression, true, storedObjects);
+                    if (evidence != null) {
+                        impression.getEvidences().add(evidence);
+                    }
+                }
+                in.endArray();
+                break;
+            case "treatments":
+                in.beginArray();
+                while (in.hasNext()) {
+                    Treatment treatment = (Treatment) readData(in, impression, false, storedObjects);
+                    if (treatment != null) {
+                        impression.getTreatments().add(treatment);
+                    }
+                }
+                in.endArray();
+                break;
+            case "name":
+                impression.setName(in.nextString());
+                break;
+            default:
+                in.skipValue();
+                break;
+            }
+        }
+        in.endObject();
+
+        if (storedObjects != null && isUidOnly) {
+            DukeObject unchanged = storedObjects.get(impression.getUid());
+            if (!(unchanged instanceof Impression)) {
+                return null;
+            }
+            unchanged.setParent(patient);
+            return (Impression) unchanged;
+        }
+        impression.initChildren();
+        return impression;
+    }
+
+    /**
+     * Reads an evidence or treatment, wrapped in an object giving its type, and constructs it. When reading changes,
+     * an unchanged evidence or treatment written as just its uid is found in the stored copy of the patient instead.
+     *
+     * @param in the reader to read from
+     * @param impression the impression that the data belongs to
+     * @param isEvidence true if an evidence is expected, false if a treatment is
+     * @param storedObjects the objects of the stored copy of the patient by uid, or null if reading a whole patient
+     * @return the data read, or null if it is unchanged but cannot be found
+     * @throws IOException If the data cannot be read, or is not valid.
+     */
+    private DukeData readData(JsonReader in, Impression impression, boolean isEvidence,
+                              Map<Integer, DukeObject> storedObjects) throws IOException {
+        DataType type = null;
+        DataFields fields = null;
+        int uid = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if ("uid".equals(field) && storedObjects != null) {
+                uid = readUid(in);
+            } else if ("type".equals(field)) {
+                String tag = in.nextString();
+                type = DataType.fromTag(tag);
+                if (type == null || type.isEvidence != isEvidence) {
+                    throw new JsonParseException("Unknown " + (isEvidence ? "evidence" : "treatment") + " type: "
+                            + tag);
+                }
+            } else if ("properties".equals(field)) {
+                fields = readDataFields(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (type == null && fields == null && uid != 0) {
+            DukeObject unchanged = storedObjects.get(uid);
+            boolean isExpected = isEvidence ? unchanged instanceof Evidence : unchanged instanceof Treatment;
+            return isExpected ? (DukeData) unchanged : null;
+        } else if (type == null || fields == null) {
+            throw new JsonParseException("Data must have a type and properties");
+        }
+
+        try {
+            DukeData data = type.create(fields, impression);
+            if (fields.uid != 0) {
+                data.setUid(fields.uid);
+            }
+            return data;
+        } catch (DukeException e) {
+            throw new JsonParseException(e.getMessage());
+        }
+    }
+
+    private DataFields readDataFields(JsonReader in) throws IOException {
+        DataFields fields = new DataFields();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+
+            switch (field) {
+            case "name":
+                fields.name = in.nextString();
+                break;
+            case "priority":
+                fields.priority = in.nextInt();
+                break;
+            case "uid":
+                fields.uid = readUid(in);
+                break;
+            case "summary":
+                fields.summary = in.nextString();
+                break;
+            case "isObjective":
+                fields.isObjective = in.nextBoolean();
+                break;
+            case "statusIdx":
+                fields.statusIdx = in.nextInt();
+                break;
+            case "dose":
+                fields.dose = in.nextString();
+                break;
+            case "startDate":
+                fields.startDate = in.nextString();
+                break;
+            case "duration":
+                fields.duration = in.nextString();
+                break;
+            default:
+                in.skipValue();
+                break;
+            }
+        }
+        in.endObject();
+        return fields;
+    }
+}
@@ -0,0 +1,396 @@
+package duke.data.storage;
+
+import duke.data.DukeData;
+import duke.data.DukeObject;
+import duke.data.Evidence;
+import duke.data.Impression;
+import duke.data.Medicine;
+import duke.data.Observation;
+import duke.data.Patient;
+import duke.data.PatientLoader;
+import duke.data.SummaryTreatment;
+import duke.data.Treatment;
+import duke.exception.DukeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A patient, with all of its impressions and their evidences and treatments, serialised for the binary format. The
+ * strings of the patient are kept apart from the rest of its fields, in the order they are used, so that a snapshot
+ * can store them in a string table shared by all patients while a journal entry stores them inline, without the
+ * fields having to be rewritten. Records are immutable, so they can be handed to the writer thread as they are.
+ */
+public class PatientRecord {
+
+    private final byte[] fields;
+    private final String[] strings;
+
+    /**
+     * Creates a record from its encoded fields and strings.
+     *
+     * @param fields the encoded fields of the patient, other than its strings
+     * @param strings the strings of the patient, in the order they are read by the fields
+     */
+    public PatientRecord(byte[] fields, String[] strings) {
+        this.fields = fields;
+        this.strings = strings;
+    }
+
+    /**
+     * Serialises a patient. Integers are written as varints, and the primary diagnosis as the position of the
+     * impression in the patient's impression list. The uids of the patient and everything in it are written last, in
+     * the order the objects are written, so that records saved before uids were stored can still be read, leaving
+     * the patients read from them marked as changed, so that the uids they are given are saved.
+     *
+     * @param patient the patient to serialise
+     * @return the record of the patient
+     */
+    public static PatientRecord of(Patient patient) {
+        Encoder out = new Encoder();
+        out.writeString(patient.getName());
+        out.writeString(patient.getBedNo());
+        out.writeString(patient.getAllergies());
+        out.writeSignedInt(patient.getHeight());
+        out.writeSignedInt(patient.getWeight());
+        out.writeSignedInt(patient.getAge());
+        out.writeSignedInt(patient.getNumber());
+        out.writeString(patient.getAddress());
+        out.writeString(patient.getHistory());
+
+        List<Impression> impressions = patient.getImpressionList();
+        int primaryIdx = 0;
+        for (int i = 0; i < impressions.size(); ++i) {
+            if (impressions.get(i) == patient.getPrimaryDiagnosis()) {
+                primaryIdx = i + 1;
+                break;
+            }
+        }
+        out.writeInt(primaryIdx);
+        out.writeInt(impressions.size());
+        for (Impression impression : impressions) {
+            out.writeString(impression.getName());
+            out.writeString(impression.getDescription());
+            writeDataList(out, impression.getEvidences());
+            writeDataList(out, impression.getTreatments());
+        }
+
+        out.writeInt(patient.getUid());
+        for (Impression impression : impressions) {
+            out.writeInt(impression.getUid());
+            for (DukeData data : impression.getEvidences()) {
+                out.writeInt(data.getUid());
+            }
+            for (DukeData data : impression.getTreatments()) {
+                out.writeInt(data.getUid());
+            }
+        }
+        return new PatientRecord(out.bytes.toByteArray(), out.strings.toArray(new String[0]));
+    }
+
+    private static void writeDataList(Encoder out, List<? extends DukeData> dataList) {
+        out.writeInt(dataList.size());
+        for (DukeData data : dataList) {
+            DataType type = DataType.of(data);
+            if (type == null) {
+                throw new IllegalArgumentException("Cannot store data of type " + data.getClass().getSimpleName());
+            }
+
+            out.writeInt(type.code);
+            out.writeInt(data.getPriority());
+            out.writeString(data.getName());
+            switch (type) {
+            case OBSERVATION:
+                out.writeInt(((Observation) data).isObjective() ? 1 : 0);
+                out.writeString(((Evidence) data).getSummary());
+                break;
+            case RESULT:
+                out.writeString(((Evidence) data).getSummary());
+                break;
+            case PLAN:
+            case INVESTIGATION:
+                out.writeString(((SummaryTreatment) data).getSummary());
+                out.writeInt(((Treatment) data).getStatusIdx());
+                break;
+            case MEDICINE:
+                Medicine medicine = (Medicine) data;
+                out.writeString(medicine.getDose());
+                out.writeString(medicine.getStartDate());
+                out.writeString(medicine.getDuration());
+                out.writeInt(medicine.getStatusIdx());
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * Constructs the patient stored in this record, with each object linked to the object containing it.
+     *
+     * @return the patient, marked as unchanged
+     * @throws StreamCorruptedException If the record is not valid.
+     */
+    public Patient toPatient() throws StreamCorruptedException {
+        return toPatient(true);
+    }
+
+    /**
+     * Constructs a copy of the patient stored in this record, with each object given a new uid instead of the one it
+     * was stored with, so that it can join a ward that may hold, or may have given out, the stored uids.
+     *
+     * @return the patient, with new uids
+     * @throws StreamCorruptedException If the record is not valid.
+     */
+    public Patient toNewPatient() throws StreamCorruptedException {
+        return toPatient(false);
+    }
+
+    private Patient toPatient(boolean isUidKept) throws StreamCorruptedException {
+        Decoder in = new Decoder(this);
+        try {
+            Patient patient = readDetails(in);
+            int primaryIdx = in.readInt();
+            int impressionCount = in.readInt();
+            ArrayList<Impression> impressions = patient.getImpressionList();
+            for (int i = 0; i < impressionCount; ++i) {
+                Impression impression = new Impression(in.readString(), in.readString(), patient);
+                readDataList(in, impression, true, null);
+                readDataList(in, impression, false, null);
+                impressions.add(impression);
+            }
+
+            if (primaryIdx > impressions.size()) {
+                throw new StreamCorruptedException("Invalid primary diagnosis " + primaryIdx);
+            } else if (primaryIdx > 0) {
+                patient.restorePrimaryDiagnosis(impressions.get(primaryIdx - 1));
+            }
+            if (isUidKept && in.hasRemaining()) {
+                patient.setUid(in.readUid());
+                for (Impression impression : impressions) {
+                    impression.setUid(in.readUid());
+                    for (DukeData data : impression.getEvidences()) {
+                        data.setUid(in.readUid());
+                    }
+                    for (DukeData data : impression.getTreatments()) {
+                        data.setUid(in.readUid());
+                    }
+                }
+                patient.clearDirty();
+            }
+            for (Impression impression : impressions) {
+                impression.initChildren();
+            }
+            patient.initImpressions();
+            return patient;
+        } catch (DukeException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new StreamCorruptedException("The record is truncated");
+        }
+    }
+
+    /**
+     * Constructs the patient stored in this record with only the details shown on its card, leaving its impressions
+     * to be read back from a loader when they are first needed. The impressions are read past without being
+     * constructed, to find the name of the primary diagnosis and count the critical items.
+     *
+     * @param loader the loader to read the impressions of the patient from
+     * @return the patient, marked as unchanged
+     * @throws StreamCorruptedException If the record is not valid.
+     */
+    public Patient toHeader(PatientLoader loader) throws StreamCorruptedException {
+        Decoder in = new Decoder(this);
+        try {
+            Patient patient = readDetails(in);
+            int primaryIdx = in.readInt();
+            int impressionCount = in.readInt();
+            if (primaryIdx > impressionCount) {
+                throw new StreamCorruptedException("Invalid primary diagnosis " + primaryIdx);
+            }
+
+            String primaryName = null;
+            int criticalCount = 0;
+            List<String> searchFields = new ArrayList<>();
+            for (int i = 0; i < impressionCount; ++i) {
+                String name = in.readString();
+                searchFields.add(name);
+                searchFields.add(in.readString());
+                if (i == primaryIdx - 1) {
+                    primaryName = name;
+                }
+                criticalCount += readDataList(in, null, true, searchFields);
+                criticalCount += readDataList(in, null, false, searchFields);
+            }
+
+            patient.setLoader(loader);
+            patient.unloadImpressions(primaryName, criticalCount);
+            patient.setUnloadedSearchFields(searchFields);
+            if (in.hasRemaining()) {
+                // the impressions are read back with their uids later, but no other object may be given them first, and
+                // the registry finds their owner by them until then
+                patient.setUid(in.readUid());
+                List<Integer> contentUids = new ArrayList<>();
+                while (in.hasRemaining()) {
+                    int uid = in.readUid();
+                    DukeObject.reserveUid(uid);
+                    contentUids.add(uid);
+                }
+                patient.setUnloadedUids(contentUids);
+                patient.clearDirty();
+            }
+            return patient;
+        } catch (DukeException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new StreamCorruptedException("The record is truncated");
+        }
+    }
+
+    private static Patient readDetails(Decoder in) throws StreamCorruptedException {
+        return new Patient(in.readString(), in.readString(), in.readString(), in.readSignedInt(),
+                in.readSignedInt(), in.readSignedInt(), in.readSignedInt(), in.readString(), in.readString());
+    }
+
+    /**
+     * Reads a list of evidences or treatments into an impression, or only reads past them if there is no impression.
+     *
+     * @param searchFields the list to add the searched fields of the items to, or null if they are not needed
+     * @return the number of critical items in the list
+     */
+    private static int readDataList(Decoder in, Impression impression, boolean isEvidence,
+                                    List<String> searchFields) throws DukeException, StreamCorruptedException {
+        int criticalCount = 0;
+        int count = in.readInt();
+        for (int i = 0; i < count; ++i) {
+            int code = in.readInt();
+            DataType type = DataType.fromCode(code);
+            if (type == null || type.isEvidence != isEvidence) {
+                throw new StreamCorruptedException("Unknown " + (isEvidence ? "evidence" : "treatment") + " type: "
+                        + code);
+            }
+
+            DataFields fields = new DataFields();
+            fields.priority = in.readInt();
+            fields.name = in.readString();
+            switch (type) {
+            case OBSERVATION:
+                fields.isObjective = in.readInt() != 0;
+                fields.summary = in.readString();
+                break;
+            case RESULT:
+                fields.summary = in.readString();
+                break;
+            case PLAN:
+            case INVESTIGATION:
+                fields.summary = in.readString();
+                fields.statusIdx = in.readInt();
+                break;
+            case MEDICINE:
+                fields.dose = in.readString();
+                fields.startDate = in.readString();
+                fields.duration = in.readString();
+                fields.statusIdx = in.readInt();
+                break;
+            default:
+                break;
+            }
+
+            if (fields.priority == DukeData.PRIORITY_CRITICAL) {
+                ++criticalCount;
+            }
+            if (searchFields != null) {
+                Collections.addAll(searchFields, fields.name, fields.summary, fields.dose, fields.startDate,
+                        fields.duration);
+            }
+            if (impression == null) {
+                continue;
+            }
+
+            DukeData data = type.create(fields, impression);
+            if (isEvidence) {
+                impression.getEvidences().add((Evidence) data);
+            } else {
+                impression.getTreatments().add((Treatment) data);
+            }
+        }
+        return criticalCount;
+    }
+
+    /**
+     * Returns the encoded fields of the patient, other than its strings.
+     */
+    public byte[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Returns the strings of the patient, in the order they are read by its fields.
+     */
+    public String[] getStrings() {
+        return strings;
+    }
+
+    /**
+     * Collects the fields and strings of a patient as it is serialised.
+     */
+    private static class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final ArrayList<String> strings = new ArrayList<>();
+
+        private void writeInt(int value) {
+            BinaryFormat.writeVarint(bytes, value);
+        }
+
+        private void writeSignedInt(int value) {
+            BinaryFormat.writeSignedVarint(bytes, value);
+        }
+
+        private void writeString(String string) {
+            strings.add(string);
+        }
+    }
+
+    /**
+     * Reads back the fields and strings of a record, in the order they were written.
+     */
+    private static class Decoder {
+        private final ByteBuffer bytes;
+        private final String[] strings;
+        private int stringIdx = 0;
+
+        private Decoder(PatientRecord record) {
+            bytes = ByteBuffer.wrap(record.fields);
+            strings = record.strings;
+        }
+
+        private int readInt() throws StreamCorruptedException {
+            return BinaryFormat.readVarint(bytes);
+        }
+
+        private int readUid() throws StreamCorruptedException {
+            int uid = readInt();
+            if (uid <= 0) {
+                throw new StreamCorruptedException("Invalid uid " + uid);
+            }
+            return uid;
+        }
+
+        private boolean hasRemaining() {
+            return bytes.hasRemaining();
+        }
+
+        private int readSignedInt() throws StreamCorruptedException {
+            return BinaryFormat.readSignedVarint(bytes);
+        }
+
+        private String readString() {
+            return strings[stringIdx++];
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package duke.data.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lists the ids of the patients stored as shards, in the order the patients are listed, along with the next id to be
+ * assigned. Replacing the manifest is what makes a set of newly written shards visible.
+ */
+public class ShardManifest {
+
+    private int nextId;
+    private List<String> patients;
+
+    /**
+     * Creates a manifest listing the given shards.
+     *
+     * @param nextId the id to assign to the next patient saved
+     * @param patients the ids of the patients, in order
+     */
+    public ShardManifest(int nextId, Collection<String> patients) {
+        this.nextId = nextId;
+        this.patients = new ArrayList<>(patients);
+    }
+
+    public int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Returns the ids of the patients, in order, or an empty list if there are none.
+     */
+    public List<String> getPatients() {
+        return (patients == null) ? new ArrayList<>() : patients;
+    }
+}
@@ -0,0 +1,111 @@
+package duke.data.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import duke.data.Help;
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.data.PatientLoader;
+import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stores the patients between sessions. Implementations differ only in how the patients are laid out on disk; all of
+ * them save the changes made to a PatientData since it was last saved, rather than every patient, and can export the
+ * patients as a single JSON file. Patients can be loaded with only the details shown on their cards, in which case
+ * their impressions are read back from the storage, as the patient loader, when they are first needed.
+ */
+public interface Storage extends PatientLoader {
+
+    /**
+     * Loads all the stored patients, falling back on the bundled sample data if there are none.
+     *
+     * @return the list containing the patients
+     * @throws DukeFatalException If data files cannot be read.
+     */
+    ArrayList<Patient> loadPatients() throws DukeFatalException;
+
+    /**
+     * Saves the changes made to a PatientData since it was loaded or last saved, in the background. Failures are
+     * reported to the failure listener.
+     *
+     * @param patientData the patient data whose changes should be saved
+     */
+    void save(PatientData patientData);
+
+    /**
+     * Saves the changes made to a PatientData since it was loaded or last saved, and waits for them to be written.
+     *
+     * @param patientData the patient data whose changes should be saved
+     * @throws DukeFatalException If the data cannot be written.
+     */
+    void commit(PatientData patientData) throws DukeFatalException;
+
+    /**
+     * Waits for all changes saved so far to be written.
+     *
+     * @throws DukeFatalException If a write failed since the last flush.
+     */
+    void flush() throws DukeFatalException;
+
+    /**
+     * Sets the listener to be told when changes saved in the background cannot be written.
+     */
+    void setFailureListener(Consumer<DukeException> failureListener);
+
+    /**
+     * Writes a list of patients to a single JSON file, for exporting them.
+     *
+     * @param patientList the list containing all the patients
+     * @throws DukeFatalException If the file cannot be written.
+     */
+    void writeJsonFile(ArrayList<Patient> patientList) throws DukeFatalException;
+
+    /**
+     * Returns the filepath that this storage was opened with.
+     */
+    String getFilePath();
+
+    /**
+     * Deletes all the stored patients. Used to reset the storage data.
+     *
+     * @return an empty PatientData object
+     */
+    PatientData resetAllData() throws IOException;
+
+    /**
+     * Checks if this storage can only be read from, in which case commands that change the patients are refused.
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
+
+    /* @@author gowgos5 */
+    /**
+     * Loads help details from a pre-defined JSON file.
+     *
+     * @param file Relative help file path.
+     * @return A list of {@code Help} objects.
+     */
+    default List<Help> loadHelpList(String file) {
+        List<Help> helpList = new ArrayList<>();
+
+        InputStream is = getClass().getResourceAsStream(file);
+
+        if (is != null) {
+            JsonReader reader = new JsonReader(new InputStreamReader(is));
+            Help[] helps = new Gson().fromJson(reader, Help[].class);
+            helpList = Arrays.asList(helps);
+        }
+
+        return helpList;
+    }
+}
@@ -0,0 +1,83 @@
+package duke.data.storage;
+
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * Converts stored patients between the JSON storage and the binary snapshot. Paths ending in {@code .bin} refer to a
+ * binary snapshot, and any other path to a json file with its shards. Patients keep their ids, and a json file written
+ * by the conversion holds every patient, so it can also be used to export them. Run with:
+ *
+ * <pre>java -cp dr.duke.jar duke.data.storage.StorageConverter data/patients.json data/patients.bin</pre>
+ */
+public class StorageConverter {
+    private static final String BINARY_EXTENSION = ".bin";
+
+    /**
+     * Converts the patients stored at the first path into the storage at the second.
+     *
+     * @param args the path to convert from, and the path to convert to
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: StorageConverter <from> <to>, where paths ending in " + BINARY_EXTENSION
+                    + " are binary snapshots and all others are json files");
+            System.exit(2);
+        }
+        if (!new File(args[0]).exists()) {
+            System.err.println("There is no data at " + args[0]);
+            System.exit(1);
+        }
+
+        try {
+            int count = convert(open(args[0]), open(args[1]));
+            System.out.println("Converted " + count + " patients from " + args[0] + " to " + args[1]);
+        } catch (DukeFatalException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Opens the storage for a path, choosing the binary snapshot or the JSON storage from its extension.
+     *
+     * @param path the path of the snapshot or json file
+     * @return the storage at the path
+     * @throws DukeFatalException If the storage cannot be setup.
+     */
+    public static Storage open(String path) throws DukeFatalException {
+        return path.endsWith(BINARY_EXTENSION) ? new BinaryStorage(path) : new GsonStorage(path);
+    }
+
+    /**
+     * Replaces all the patients in one storage with those in another, and waits for them to be written. If the
+     * target is a JSON storage, the patients are also exported to its json file.
+     *
+     * @param source the storage to load the patients from
+     * @param target the storage to write the patients to
+     * @return the number of patients converted
+     * @throws DukeFatalException If the patients cannot be loaded or written.
+     */
+    public static int convert(Storage source, Storage target) throws DukeFatalException {
+        ArrayList<Patient> patients = source.loadPatients();
+        PatientData patientData = new PatientData();
+        for (Patient patient : patients) {
+            try {
+                patientData.addPatient(patient);
+            } catch (DukeException e) {
+                throw new DukeFatalException("Unable to convert the patients, as more than one is at bed "
+                        + patient.getBedNo() + "!");
+            }
+        }
+        target.commit(patientData);
+        if (target instanceof GsonStorage) {
+            target.writeJsonFile(patients);
+        }
+        return patients.size();
+    }
+}
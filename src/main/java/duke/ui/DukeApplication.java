@@ -0,0 +1,50 @@
+package duke.ui;
+
+import duke.DukeCore;
+import javafx.application.Application;
+import javafx.stage.Stage;
+
+/**
+ * The JavaFX application showing Dr. Duke in a window, which creates the core with a {@link UiManager} once the
+ * JavaFX toolkit has started.
+ */
+public class DukeApplication extends Application {
+    private DukeCore core;
+    private UiManager uiManager;
+
+    /**
+     * Creates the core of Dr. Duke, loading the patients, to be shown once the application starts.
+     */
+    public DukeApplication() {
+        core = new DukeCore(dukeCore -> {
+            uiManager = new UiManager(dukeCore);
+            return uiManager;
+        });
+    }
+
+    /**
+     * Starts the JavaFX toolkit and shows Dr. Duke in a window, returning once the window is closed. Kept here so that
+     * the headless entry points never refer to a JavaFX class.
+     *
+     * @param args Command-line arguments.
+     */
+    public static void launch(String[] args) {
+        Application.launch(DukeApplication.class, args);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start(Stage primaryStage) {
+        uiManager.start(primaryStage);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        core.stop();
+    }
+}
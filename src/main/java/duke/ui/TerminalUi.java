@@ -0,0 +1,191 @@
+package duke.ui;
+
+import duke.DukeCore;
+import duke.command.Executor;
+import duke.command.Parser;
+import duke.data.DukeObject;
+import duke.data.Patient;
+import duke.data.SearchResults;
+import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
+import duke.ui.commons.UiStrings;
+import duke.ui.context.UiContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static duke.DukeCore.logger;
+
+/**
+ * A line-based UI showing Dr. Duke on a terminal, without starting the JavaFX toolkit, for scripting, SSH sessions and
+ * benchmarking. Each line read is run as if it had been entered in the command window, and the contents of the
+ * context shown are printed whenever a command moves to another context. Tasks from other threads are run while no
+ * command is running, as there is no event thread to run them on.
+ */
+public class TerminalUi implements Ui {
+    private final DukeCore core;
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final boolean isInteractive;
+    private final Object commandLock = new Object();
+    private volatile boolean isRunning = true;
+
+    /**
+     * Constructs a terminal UI reading commands from, and printing its output to, the streams given.
+     *
+     * @param core the core of Dr. Duke
+     * @param in the stream to read commands from, one per line
+     * @param out the stream to print output to
+     * @param isInteractive whether to prompt for each command, showing the current context, as input is being typed
+     */
+    public TerminalUi(DukeCore core, BufferedReader in, PrintStream out, boolean isInteractive) {
+        this.core = core;
+        this.in = in;
+        this.out = out;
+        this.isInteractive = isInteractive;
+    }
+
+    /**
+     * Starts Dr. Duke on the terminal, and runs the commands read from standard input until {@code bye} is entered or
+     * the input ends. Prompts are only shown if a user is typing at a console, so that the output of scripts piped in
+     * only holds what the commands print.
+     */
+    public static void launch() {
+        BufferedReader stdIn = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        boolean isConsole = System.console() != null;
+        DukeCore core = new DukeCore(dukeCore -> new TerminalUi(dukeCore, stdIn, System.out, isConsole));
+        ((TerminalUi) core.ui).run();
+    }
+
+    /**
+     * Runs the commands read until {@code bye} is entered or the input ends, after which any changes still being
+     * saved are written out.
+     */
+    public void run() {
+        if (!isRunning) {
+            return;
+        }
+        showMessage(UiStrings.MESSAGE_WELCOME_GREET + System.lineSeparator() + UiStrings.MESSAGE_WELCOME_QUESTION);
+        Parser parser = new Parser(core.uiContext);
+        Executor executor = new Executor(core);
+        DukeObject shownObj = core.uiContext.getObject();
+        try {
+            while (isRunning) {
+                if (isInteractive) {
+                    printPrompt();
+                }
+                String line = in.readLine();
+                if (line == null) {
+                    synchronized (commandLock) {
+                        core.stop();
+                    }
+                    break;
+                } else if (line.isBlank()) {
+                    continue;
+                }
+
+                synchronized (commandLock) {
+                    try {
+                        executor.executeLine(parser, line);
+                    } catch (DukeException excp) {
+                        showMessage(excp.getMessage());
+                    }
+                    if (isRunning && core.uiContext.getObject() != shownObj) {
+                        shownObj = core.uiContext.getObject();
+                        showContext(core.uiContext);
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            logger.severe("Unable to read commands from the terminal: " + excp.getMessage());
+            core.stop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() {
+        isRunning = false;
+        showMessage(UiStrings.MESSAGE_GOODBYE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void showMessage(String message) {
+        out.println(message.replaceAll("(\\t|\\n)", System.lineSeparator()));
+        out.flush();
+    }
+
+    /**
+     * Runs the task on a background thread, while no command read from the terminal is running.
+     */
+    @Override
+    public void runLater(Runnable task) {
+        CompletableFuture.runAsync(() -> {
+            synchronized (commandLock) {
+                task.run();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateUi(String message) throws DukeFatalException {
+        if (message != null && !message.isBlank()) {
+            showMessage(message);
+        }
+    }
+
+    /**
+     * Prints the error, and stops reading commands, as there is no dialog to show it in.
+     */
+    @Override
+    public void showErrorDialogAndShutdown(String errorTitle, Throwable error) {
+        logger.severe(errorTitle + error.getMessage());
+        isRunning = false;
+        showMessage(errorTitle + ": " + error.getMessage());
+    }
+
+    private synchronized void printPrompt() {
+        DukeObject obj = core.uiContext.getObject();
+        out.print(core.uiContext.getContext() + ((obj == null) ? "" : " " + obj.getName()) + "> ");
+        out.flush();
+    }
+
+    /**
+     * Prints the contents of a context: the patients in the ward for HOME, the numbered results of a search, or the
+     * details of the object shown otherwise.
+     */
+    private void showContext(UiContext uiContext) {
+        DukeObject obj = uiContext.getObject();
+        StringBuilder contents = new StringBuilder();
+        if (obj == null) {
+            List<Patient> patients = core.patientData.getPatientsByBed();
+            if (patients.isEmpty()) {
+                contents.append("There are no patients in the ward.");
+            }
+            for (Patient patient : patients) {
+                contents.append(patient.getBedNo()).append(": ").append(patient.getName()).append('\n');
+            }
+        } else if (obj instanceof SearchResults) {
+            List<DukeObject> results = ((SearchResults) obj).getSearchList();
+            for (int i = 0; i < results.size(); ++i) {
+                contents.append(i + 1).append(". ").append(results.get(i).getName()).append('\n');
+            }
+        } else {
+            contents.append(obj.toString());
+        }
+        showMessage(contents.toString().stripTrailing());
+    }
+}
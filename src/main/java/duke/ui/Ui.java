@@ -2,24 +2,14 @@ package duke.ui;
 
 import duke.DukeCore;
 import duke.exception.DukeFatalException;
-import duke.ui.window.CommandWindow;
-import duke.ui.window.ContextWindow;
-import javafx.stage.Stage;
 
 //@@author gowgos5
 /**
  * API of the UI module of Dr. Duke.
- * Abstracts and exposes the UI module to external modules of Dr. Duke.
+ * Abstracts and exposes the UI module to external modules of Dr. Duke, so that the core does not depend on the
+ * toolkit used to show it: {@link UiManager} shows Dr. Duke in a JavaFX window, and {@link TerminalUi} on a terminal.
  */
 public interface Ui {
-    /**
-     * Starts the UI (and Dr. Duke).
-     * This helper function should not be called anywhere else except by {@link DukeCore}.
-     *
-     * @param primaryStage Stage created by the JavaFX system when Dr. Duke starts up.
-     */
-    void start(Stage primaryStage);
-
     /**
      * Terminates the UI (and Dr. Duke).
      * This helper function should not be called anywhere else except by {@link DukeCore}.
@@ -27,17 +17,26 @@ public interface Ui {
     void stop();
 
     /**
-     * Shows message on the {@link CommandWindow}.
+     * Shows message on the command window.
      *
      * @param message Output message.
      */
     void showMessage(String message);
 
     /**
-     * Updates {@link ContextWindow} and shows message on the {@link CommandWindow}.
+     * Runs a task from a thread other than the one running commands, such as the storage writer or the HTTP API, on
+     * the thread running commands, or otherwise without running alongside any command. Returns without waiting for the
+     * task to run.
      *
-     * @param message Output message.
-     * @throws DukeFatalException If the {@link ContextWindow} to be updated cannot be initialised / loaded.
+     * @param task Task to run.
+     */
+    void runLater(Runnable task);
+
+    /**
+     * Updates the context shown and shows message on the command window.
+     *
+     * @param message Output message, or null to only update the context shown.
+     * @throws DukeFatalException If the view of the context to be updated cannot be initialised / loaded.
      */
     void updateUi(String message) throws DukeFatalException;
 
@@ -31,9 +31,11 @@ public class UiManager implements Ui {
     }
 
     /**
-     * {@inheritDoc}
+     * Starts the UI (and Dr. Duke), showing the main window.
+     * This helper function should not be called anywhere else except by {@link DukeApplication}.
+     *
+     * @param primaryStage Stage created by the JavaFX system when Dr. Duke starts up.
      */
-    @Override
     public void start(Stage primaryStage) {
         logger.info(UiStrings.LOG_INFO_LAUNCH_UI);
 
@@ -71,6 +73,14 @@ public class UiManager implements Ui {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void runLater(Runnable task) {
+        Platform.runLater(task);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,71 @@
+package duke.ui.card;
+
+import duke.data.DukeObject;
+import duke.data.Evidence;
+import duke.data.Impression;
+import duke.data.Investigation;
+import duke.data.Medicine;
+import duke.data.Observation;
+import duke.data.Patient;
+import duke.data.Plan;
+import duke.data.Result;
+import duke.data.Treatment;
+import duke.exception.DukeFatalException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates the UI card showing a {@code DukeObject}, chosen by the type of the object, so that the objects themselves
+ * never refer to the UI, and can be used without JavaFX.
+ */
+public final class CardFactory {
+    private static final Map<Class<? extends DukeObject>, CardMaker> MAKERS = new HashMap<>();
+
+    static {
+        MAKERS.put(Patient.class, obj -> new PatientCard((Patient) obj));
+        MAKERS.put(Impression.class, obj -> new ImpressionCard((Impression) obj));
+        MAKERS.put(Observation.class, obj -> new ObservationCard((Observation) obj));
+        MAKERS.put(Result.class, obj -> new ResultCard((Result) obj));
+        MAKERS.put(Investigation.class, obj -> new InvestigationCard((Investigation) obj));
+        MAKERS.put(Medicine.class, obj -> new MedicineCard((Medicine) obj));
+        MAKERS.put(Plan.class, obj -> new PlanCard((Plan) obj));
+    }
+
+    /**
+     * Creates the card for an object of the type it is registered for.
+     */
+    private interface CardMaker {
+        UiCard make(DukeObject obj) throws DukeFatalException;
+    }
+
+    private CardFactory() {
+    }
+
+    /**
+     * Creates the card showing an object, using the card of the closest type of the object that has one.
+     *
+     * @param obj DukeObject to show.
+     * @return The card showing the object, or null if objects of its type are not shown on cards.
+     * @throws DukeFatalException If the FXML file of the card is missing.
+     */
+    public static UiCard newCard(DukeObject obj) throws DukeFatalException {
+        Class<?> type = obj.getClass();
+        while (type != null && !MAKERS.containsKey(type)) {
+            type = type.getSuperclass();
+        }
+        return (type == null) ? null : MAKERS.get(type).make(obj);
+    }
+
+    public static PatientCard newPatientCard(Patient patient) throws DukeFatalException {
+        return (PatientCard) newCard(patient);
+    }
+
+    public static EvidenceCard newEvidenceCard(Evidence evidence) throws DukeFatalException {
+        return (EvidenceCard) newCard(evidence);
+    }
+
+    public static TreatmentCard newTreatmentCard(Treatment treatment) throws DukeFatalException {
+        return (TreatmentCard) newCard(treatment);
+    }
+}
@@ -41,8 +41,8 @@ public class PatientCard extends UiCard {
         nameLabel.setText(patient.getName());
         bedLabel.setText("Bed " + patient.getBedNo());
 
-        if (patient.getPrimaryDiagnosis() != null) {
-            diagnosisLabel.setText(patient.getPrimaryDiagnosis().getName());
+        if (patient.getPrimaryDiagnosisName() != null) {
+            diagnosisLabel.setText(patient.getPrimaryDiagnosisName());
         } else {
             diagnosisLabel.setText("No primary diagnosis");
         }
@@ -1,12 +1,19 @@
 package duke.ui.context;
 
 import duke.data.DukeObject;
+import duke.data.Patient;
+import duke.data.SearchResults;
 import duke.exception.DukeException;
-import javafx.util.Pair;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.Stack;
+import java.util.function.UnaryOperator;
 
 /* @@author gowgos5 */
 /**
@@ -15,7 +22,7 @@ import java.util.Stack;
 public class UiContext {
     private DukeObject object;
     private Context context;
-    private Stack<Pair<Context, DukeObject>> contexts;
+    private Stack<SimpleImmutableEntry<Context, DukeObject>> contexts;
     private PropertyChangeSupport pcs;
 
     /**
@@ -43,7 +50,7 @@ public class UiContext {
      * @param obj DukeObject whose context we wish to access.
      */
     public void open(DukeObject obj) {
-        contexts.push(new Pair<>(this.context, this.object));
+        contexts.push(new SimpleImmutableEntry<>(this.context, this.object));
         openWithoutHistory(obj);
     }
 
@@ -89,7 +96,7 @@ public class UiContext {
             throw new DukeException("No previous context before this!");
         }
 
-        Pair<Context, DukeObject> pair = contexts.pop();
+        SimpleImmutableEntry<Context, DukeObject> pair = contexts.pop();
         Context newContext = pair.getKey();
         DukeObject newObj = pair.getValue();
         openWithoutHistory(newObj);
@@ -97,6 +104,33 @@ public class UiContext {
         return getViewingStr(newContext, newObj);
     }
 
+    /**
+     * Returns to a context shown earlier, discarding the contexts stored since, such as after the commands that moved
+     * away from it have been undone. The objects shown by it and by the contexts stored before it are found again, as
+     * they may have been replaced, and contexts whose objects are no longer found show HOME instead.
+     *
+     * @param historySize the number of contexts that were stored when the context was shown
+     * @param obj the object shown by the context, or null for HOME
+     * @param finder finds the object that an object has been replaced by, or returns null if there is none
+     */
+    public void rollBack(int historySize, DukeObject obj, UnaryOperator<DukeObject> finder) {
+        while (contexts.size() > historySize) {
+            contexts.pop();
+        }
+        for (int i = 0; i < contexts.size(); ++i) {
+            DukeObject found = (contexts.get(i).getValue() == null) ? null : finder.apply(contexts.get(i).getValue());
+            contexts.set(i, new SimpleImmutableEntry<>((found == null) ? Context.HOME : found.toContext(), found));
+        }
+        openWithoutHistory((obj == null) ? null : finder.apply(obj));
+    }
+
+    /**
+     * Returns the number of contexts stored, which can be moved back to.
+     */
+    public int getHistorySize() {
+        return contexts.size();
+    }
+
     /**
      * Updates current {@code context} of Dr. Duke with {@code newContext}.
      *
@@ -125,6 +159,40 @@ public class UiContext {
         }
     }
 
+    /**
+     * Gets the patients that the current context, or any context that can be moved back to, belongs to, including
+     * those of any search results being shown. Their impressions must stay loaded while they are in use.
+     *
+     * @return the patients in use, starting with that of the current context
+     */
+    public Set<Patient> getPatientsInUse() {
+        List<DukeObject> objects = new ArrayList<>();
+        objects.add(object);
+        for (SimpleImmutableEntry<Context, DukeObject> pair : contexts) {
+            objects.add(pair.getValue());
+        }
+
+        Set<Patient> patients = new LinkedHashSet<>();
+        for (DukeObject obj : objects) {
+            addPatientOf(obj, patients);
+            if (obj instanceof SearchResults) {
+                for (DukeObject result : ((SearchResults) obj).getSearchList()) {
+                    addPatientOf(result, patients);
+                }
+            }
+        }
+        return patients;
+    }
+
+    private void addPatientOf(DukeObject obj, Set<Patient> patients) {
+        while (obj != null && !(obj instanceof Patient)) {
+            obj = obj.getParent();
+        }
+        if (obj != null) {
+            patients.add((Patient) obj);
+        }
+    }
+
     public Context getContext() {
         return context;
     }
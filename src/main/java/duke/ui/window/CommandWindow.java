@@ -1,7 +1,6 @@
 package duke.ui.window;
 
 import duke.DukeCore;
-import duke.command.Command;
 import duke.command.Executor;
 import duke.command.Parser;
 import duke.exception.DukeException;
@@ -117,8 +116,7 @@ public class CommandWindow extends InputHistoryWindow {
      *                       the {@code executor} encounters an error executing the command.
      */
     private void parseAndExecuteCommand(String inputMessage) throws DukeException {
-        Command command = parser.parse(inputMessage);
-        executor.execute(command);
+        executor.executeLine(parser, inputMessage);
         inputTextField.clear();
     }
 
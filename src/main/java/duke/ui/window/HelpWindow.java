@@ -2,7 +2,7 @@ package duke.ui.window;
 
 import com.jfoenix.controls.JFXListView;
 import duke.data.Help;
-import duke.data.storage.GsonStorage;
+import duke.data.storage.Storage;
 import duke.exception.DukeException;
 import duke.exception.DukeFatalException;
 import duke.ui.card.HelpCard;
@@ -39,11 +39,11 @@ public class HelpWindow extends UiElement<Region> implements ChangeListener<Stri
     /**
      * Constructs a help window.
      *
-     * @param storage   GSON storage object.
+     * @param storage   Storage object.
      * @param uiContext UiContext object.
-     * @throws DukeException If the data file cannot be loaded by the GSON storage object.
+     * @throws DukeException If the data file cannot be loaded by the storage object.
      */
-    public HelpWindow(GsonStorage storage, UiContext uiContext) throws DukeException {
+    public HelpWindow(Storage storage, UiContext uiContext) throws DukeException {
         super(FXML, null);
 
         initialise(storage);
@@ -54,10 +54,10 @@ public class HelpWindow extends UiElement<Region> implements ChangeListener<Stri
     /**
      * Initialises the {@link #helpList} and {@link #helpListView} for the Home context.
      *
-     * @param storage GSON storage object.
+     * @param storage Storage object.
      * @throws DukeException If the data file cannot be loaded.
      */
-    private void initialise(GsonStorage storage) {
+    private void initialise(Storage storage) {
         helpList = storage.loadHelpList(HELP_FILE);
         update(Context.HOME);
     }
@@ -4,12 +4,13 @@ import com.jfoenix.controls.JFXMasonryPane;
 import com.jfoenix.controls.JFXScrollPane;
 import duke.data.Patient;
 import duke.exception.DukeFatalException;
+import duke.ui.card.CardFactory;
 import duke.ui.card.PatientCard;
 import duke.ui.commons.UiStrings;
 import javafx.fxml.FXML;
 import javafx.scene.control.ScrollPane;
 
-import java.util.ArrayList;
+import java.util.List;
 
 //@@author gowgos5
 /**
@@ -23,14 +24,14 @@ public class HomeContextWindow extends ContextWindow {
     @FXML
     private ScrollPane scrollPane;
 
-    private ArrayList<Patient> patientList;
+    private List<Patient> patientList;
 
     /**
      * Constructs the Home UI window.
      *
-     * @param patientList List of {@link Patient} objects.
+     * @param patientList List of {@link Patient} objects, in the order they are shown.
      */
-    public HomeContextWindow(ArrayList<Patient> patientList) throws DukeFatalException {
+    public HomeContextWindow(List<Patient> patientList) throws DukeFatalException {
         super(FXML);
 
         if (patientList == null) {
@@ -57,9 +58,10 @@ public class HomeContextWindow extends ContextWindow {
     private void fillPatientList() throws DukeFatalException {
         patientListPanel.getChildren().clear();
 
+        int index = 0;
         for (Patient patient : patientList) {
-            PatientCard patientCard = patient.toCard();
-            patientCard.setIndex(patientList.indexOf(patient) + 1);
+            PatientCard patientCard = CardFactory.newPatientCard(patient);
+            patientCard.setIndex(++index);
             patientListPanel.getChildren().add(patientCard);
         }
     }
@@ -6,6 +6,7 @@ import duke.data.Impression;
 import duke.data.Patient;
 import duke.data.Treatment;
 import duke.exception.DukeFatalException;
+import duke.ui.card.CardFactory;
 import duke.ui.card.EvidenceCard;
 import duke.ui.card.TreatmentCard;
 import duke.ui.commons.UiStrings;
@@ -66,7 +67,7 @@ public class ImpressionContextWindow extends ContextWindow {
      * @return ObservationCard / ResultCard
      */
     private EvidenceCard newEvidenceCard(Evidence evidence, int index) throws DukeFatalException {
-        EvidenceCard evidenceCard = evidence.toCard();
+        EvidenceCard evidenceCard = CardFactory.newEvidenceCard(evidence);
         evidenceCard.setIndex(index);
         return evidenceCard;
     }
@@ -79,7 +80,7 @@ public class ImpressionContextWindow extends ContextWindow {
      * @return InvestigationCard / MedicineCard / PlanCard
      */
     private TreatmentCard newTreatmentCard(Treatment treatment, int index) throws DukeFatalException {
-        TreatmentCard treatmentCard = treatment.toCard();
+        TreatmentCard treatmentCard = CardFactory.newTreatmentCard(treatment);
         treatmentCard.setIndex(index);
         return treatmentCard;
     }
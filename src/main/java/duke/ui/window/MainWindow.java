@@ -11,7 +11,7 @@ import duke.data.Patient;
 import duke.data.Plan;
 import duke.data.Result;
 import duke.data.SearchResults;
-import duke.data.storage.GsonStorage;
+import duke.data.storage.Storage;
 import duke.exception.DukeException;
 import duke.exception.DukeFatalException;
 import duke.ui.commons.UiElement;
@@ -25,7 +25,7 @@ import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import static duke.DukeCore.logger;
 
@@ -53,10 +53,10 @@ public class MainWindow extends UiElement<Stage> {
     private Stage primaryStage;
     private DukeCore core;
     private UiContext uiContext;
-    private ArrayList<Patient> patientList;
+    private List<Patient> patientList;
     private Parser parser;
     private Executor executor;
-    private GsonStorage storage;
+    private Storage storage;
 
     /**
      * Constructs the main UI window to house other child UI elements.
@@ -71,7 +71,7 @@ public class MainWindow extends UiElement<Stage> {
         this.primaryStage = primaryStage;
         this.core = core;
         this.uiContext = core.uiContext;
-        this.patientList = core.patientData.getPatientList();
+        this.patientList = core.patientData.getPatientsByBed();
         this.parser = new Parser(core.uiContext);
         this.executor = new Executor(core);
         this.storage = core.storage;
@@ -99,7 +99,7 @@ public class MainWindow extends UiElement<Stage> {
     /**
      * Updates {@code currentContextWindow} and shows message on the {@code commandWindow}.
      *
-     * @param message Output message.
+     * @param message Output message, or null if there is none.
      * @throws DukeFatalException If the {@code currentContextWindow} to be updated cannot be initialised / loaded.
      */
     public void updateUi(String message) throws DukeFatalException {
@@ -107,7 +107,9 @@ public class MainWindow extends UiElement<Stage> {
             currentContextWindow.updateUi();
         }
 
-        showMessage(message);
+        if (message != null) {
+            showMessage(message);
+        }
     }
 
     /**
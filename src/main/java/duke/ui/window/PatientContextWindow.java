@@ -6,6 +6,7 @@ import duke.data.Impression;
 import duke.data.Patient;
 import duke.data.Treatment;
 import duke.exception.DukeFatalException;
+import duke.ui.card.CardFactory;
 import duke.ui.card.ImpressionCard;
 import duke.ui.card.TreatmentCard;
 import duke.ui.card.UiCard;
@@ -133,11 +134,11 @@ public class PatientContextWindow extends ContextWindow {
         }
 
         for (DukeData criticalData : patient.getCriticalList()) {
-            criticalListPanel.getItems().add(criticalData.toCard());
+            criticalListPanel.getItems().add(CardFactory.newCard(criticalData));
         }
 
         for (Treatment followUp : patient.getFollowUpList()) {
-            followUpListPanel.getItems().add(followUp.toCard());
+            followUpListPanel.getItems().add(CardFactory.newTreatmentCard(followUp));
         }
     }
 
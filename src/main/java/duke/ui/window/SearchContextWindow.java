@@ -7,6 +7,7 @@ import duke.DukeCore;
 import duke.data.DukeObject;
 import duke.data.SearchResults;
 import duke.exception.DukeFatalException;
+import duke.ui.card.CardFactory;
 import duke.ui.card.UiCard;
 import duke.ui.commons.UiStrings;
 import javafx.fxml.FXML;
@@ -56,9 +57,10 @@ class SearchContextWindow extends ContextWindow {
         setParent();
         searchTermLabel.setText(searchResults.getName());
         searchDetailsLabel.setText(searchResults.toString());
+        int index = 0;
         for (DukeObject obj : searchResults.getSearchList()) {
-            UiCard card = obj.toCard();
-            card.setIndex(searchResults.getSearchList().indexOf(obj) + 1);
+            UiCard card = CardFactory.newCard(obj);
+            card.setIndex(++index);
             searchListPanel.getItems().add(card);
         }
     }
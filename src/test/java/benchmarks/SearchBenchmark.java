@@ -0,0 +1,49 @@
+package benchmarks;
+
+import duke.data.PatientData;
+import duke.exception.DukeException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times searches of the whole ward through the search index on a ward generated as in {@link StorageBenchmark}, with
+ * each patient holding 19 objects: exact searches, and fuzzy searches with misspelled words. Run with
+ * {@code gradle searchBenchmark}, optionally passing the number of patients with {@code --args}.
+ */
+public class SearchBenchmark {
+    private static final int RUNS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of patients in the ward, 10000 if not given
+     */
+    public static void main(String[] args) throws DukeException {
+        int patientCount = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        PatientData ward = StorageBenchmark.generateWard(patientCount);
+        System.out.println("Ward of " + patientCount + " patients, median of " + RUNS + " runs");
+
+        List<String> exactTerms = List.of("paracetamol", "patient 123", "kent ridge", "x-ray", "ridge road");
+        List<String> fuzzyTerms = List.of("paracetmol", "patinet 123", "kent rdge", "chest xray", "amoxicilin");
+        for (String term : exactTerms) {
+            run("exact", term, ward, false);
+        }
+        for (String term : fuzzyTerms) {
+            run("fuzzy", term, ward, true);
+        }
+    }
+
+    private static void run(String kind, String term, PatientData ward, boolean isFuzzy) throws DukeException {
+        int count = 0;
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; ++i) {
+            long start = System.nanoTime();
+            count = (isFuzzy) ? ward.fuzzySearchAll(term).getCount() : ward.searchAll(term).getCount();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        System.out.printf("%-5s %-14s %8.2f ms, %,8d results%n", kind, "\"" + term + "\"", times[RUNS / 2] / 1e6,
+                count);
+    }
+}
@@ -0,0 +1,145 @@
+package benchmarks;
+
+import duke.data.Impression;
+import duke.data.Investigation;
+import duke.data.Medicine;
+import duke.data.Observation;
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.data.Plan;
+import duke.data.Result;
+import duke.data.storage.BinaryStorage;
+import duke.data.storage.GsonStorage;
+import duke.data.storage.Storage;
+import duke.exception.DukeException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares the JSON storage with the binary snapshot on a generated ward: the time taken to write every patient, to
+ * load them all on a cold start, and to save a change to a single patient, and the space taken on disk. Run with
+ * {@code gradle benchmark}, optionally passing the number of patients with {@code --args}.
+ */
+public class StorageBenchmark {
+    private static final String JSON_PATH = "data" + File.separator + "benchmark.json";
+    private static final String BINARY_PATH = "data" + File.separator + "benchmark.bin";
+    private static final int RUNS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of patients in the ward, 10000 if not given
+     */
+    public static void main(String[] args) throws DukeException, IOException {
+        int patientCount = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        PatientData ward = generateWard(patientCount);
+        System.out.println("Ward of " + patientCount + " patients, median of " + RUNS + " runs");
+
+        GsonStorage jsonStorage = new GsonStorage(JSON_PATH);
+        BinaryStorage binaryStorage = new BinaryStorage(BINARY_PATH);
+        try {
+            run("JSON", jsonStorage, () -> new GsonStorage(JSON_PATH), ward, Paths.get("data", "benchmark"));
+            run("Binary", binaryStorage, () -> new BinaryStorage(BINARY_PATH), ward, Paths.get(BINARY_PATH));
+        } finally {
+            jsonStorage.resetAllData();
+            binaryStorage.resetAllData();
+            Files.deleteIfExists(Paths.get(JSON_PATH));
+        }
+    }
+
+    /**
+     * Opens a new storage, as the application does on a cold start.
+     */
+    private interface StorageOpener {
+        Storage open() throws DukeException;
+    }
+
+    private static void run(String format, Storage storage, StorageOpener opener, PatientData ward, Path files)
+            throws DukeException, IOException {
+        storage.resetAllData();
+        long[] writeTimes = new long[RUNS];
+        for (int i = 0; i < RUNS; ++i) {
+            ward.setJournaled(false);
+            long start = System.nanoTime();
+            storage.commit(ward);
+            writeTimes[i] = System.nanoTime() - start;
+        }
+
+        long[] loadTimes = new long[RUNS];
+        for (int i = 0; i < RUNS; ++i) {
+            long start = System.nanoTime();
+            new PatientData(opener.open());
+            loadTimes[i] = System.nanoTime() - start;
+        }
+
+        Storage reopened = opener.open();
+        PatientData loaded = new PatientData(reopened);
+        long[] changeTimes = new long[RUNS];
+        for (int i = 0; i < RUNS; ++i) {
+            loaded.getPatientList().get(i).setAllergies("allergy " + i);
+            long start = System.nanoTime();
+            reopened.commit(loaded);
+            changeTimes[i] = System.nanoTime() - start;
+        }
+
+        System.out.printf("%-7s write all %7.1f ms, cold load %7.1f ms, save one change %6.2f ms, %,12d bytes%n",
+                format, median(writeTimes), median(loadTimes), median(changeTimes), sizeOf(files));
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+
+    private static long sizeOf(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Files.size(path);
+        }
+        long size = 0;
+        try (Stream<Path> files = Files.list(path)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                size += Files.size(file);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Generates a ward whose patients have a few impressions each, with a mix of evidences and treatments drawn from
+     * a small vocabulary, as real wards repeat the same drugs, statuses and allergies across many patients.
+     */
+    static PatientData generateWard(int patientCount) throws DukeException {
+        List<String> drugs = List.of("Paracetamol", "Amoxicillin", "Metformin", "Atorvastatin", "Salbutamol");
+        List<String> allergies = List.of("", "penicillin", "nuts", "latex", "shellfish");
+        PatientData ward = new PatientData();
+        for (int i = 0; i < patientCount; ++i) {
+            Patient patient = new Patient("Patient " + i, "B" + i, allergies.get(i % allergies.size()),
+                    150 + i % 50, 50 + i % 40, 20 + i % 70, 90000000 + i, (i % 200) + " Kent Ridge Road",
+                    "Admitted with shortness of breath");
+            for (int j = 0; j < 3; ++j) {
+                Impression impression = new Impression("Impression " + j, "Suspected condition " + j, patient);
+                patient.addNewImpression(impression);
+                impression.addNewEvidence(new Observation("Observation " + j, impression, j % 5,
+                        "Temperature 38." + j, j % 2 == 0));
+                impression.addNewEvidence(new Result("Result " + j, impression, (j + 1) % 5,
+                        "Full blood count normal"));
+                impression.addNewTreatment(new Plan("Plan " + j, impression, j % 5, "1", "Review in the morning"));
+                impression.addNewTreatment(new Investigation("Investigation " + j, impression, 0, "1",
+                        "Chest X-ray"));
+                impression.addNewTreatment(new Medicine(drugs.get((i + j) % drugs.size()), impression, 2, "1",
+                        "500mg", "01/01/2020", "7 days"));
+            }
+            patient.setPrimaryDiagnosis("Impression 0");
+            ward.addPatient(patient);
+        }
+        return ward;
+    }
+}
@@ -4,11 +4,17 @@ import duke.DukeCore;
 import duke.data.PatientData;
 import duke.data.storage.GsonStorage;
 import duke.exception.DukeException;
+import duke.ui.TerminalUi;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
 
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -20,13 +26,14 @@ public abstract class CommandTest {
     protected static final String testFilePath = "data" + File.separator + "test.json";
 
     /**
-     * Create data directory if necessary and use a test task file to create test DukeCore, with output directed to
-     * testOut.
+     * Create data directory if necessary and use a test task file to create test DukeCore, running headless with its
+     * output discarded.
      */
     @BeforeAll
     public static void setupCore() {
         try {
-            core = new DukeCore();
+            core = new DukeCore(dukeCore -> new TerminalUi(dukeCore, new BufferedReader(new StringReader("")),
+                    new PrintStream(OutputStream.nullOutputStream()), false));
             core.patientData = new PatientData();
             core.storage = new GsonStorage(testFilePath);
             core.writeJsonFile();
@@ -48,6 +55,11 @@ public abstract class CommandTest {
      */
     @AfterAll
     public static void clearTestData() {
+        try {
+            core.storage.resetAllData();
+        } catch (IOException excp) {
+            fail("Unable to clear test data journal!");
+        }
         File testData = new File(testFilePath);
         if (!testData.delete()) {
             fail("Unable to delete test data file!");
@@ -0,0 +1,207 @@
+package tests;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import duke.api.ApiServer;
+import duke.data.DukeObject;
+import duke.data.Impression;
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.data.storage.BinaryStorage;
+import duke.exception.DukeException;
+import duke.ui.context.Context;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import templates.CommandTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ApiServerTest extends CommandTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ApiServer api;
+
+    @BeforeEach
+    public void startApi() throws IOException {
+        core.patientData = core.storage.resetAllData();
+        api = core.startApi(0);
+    }
+
+    @AfterEach
+    public void stopApi() throws IOException {
+        core.stopApi();
+        core.patientData = core.storage.resetAllData();
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + api.getPort() + path)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private HttpResponse<String> post(String commands) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + api.getPort() + "/api/commands"))
+                .POST(HttpRequest.BodyPublishers.ofString(commands, StandardCharsets.UTF_8)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Runs commands through the API, and checks that the patients they change are served straight afterwards.
+     */
+    @Test
+    public void commandsThenReads_changesServed() throws IOException, InterruptedException {
+        HttpResponse<String> response = post("new -n \"Alice\" -b \"B1\" -a \"nuts\"; open -b \"B1\";"
+                + " new -n \"Flu\" -desc \"seasonal\"");
+        assertEquals(200, response.statusCode());
+        assertEquals("PATIENT", JsonParser.parseString(response.body()).getAsJsonObject().get("context").getAsString());
+
+        JsonArray ward = JsonParser.parseString(get("/api/patients").body()).getAsJsonArray();
+        assertEquals(1, ward.size());
+        assertEquals("Alice", ward.get(0).getAsJsonObject().get("name").getAsString());
+
+        JsonObject patient = JsonParser.parseString(get("/api/patients/B1").body()).getAsJsonObject();
+        assertEquals("nuts", patient.get("allergies").getAsString());
+        JsonObject impression = JsonParser.parseString(get("/api/patients/B1/impressions/flu").body())
+                .getAsJsonObject();
+        assertEquals("seasonal", impression.get("description").getAsString());
+
+        JsonObject results = JsonParser.parseString(get("/api/search?q=" + URLEncoder.encode("SEAS",
+                StandardCharsets.UTF_8)).body()).getAsJsonObject();
+        assertEquals(0, results.getAsJsonArray("patients").size());
+        assertEquals("Flu", results.getAsJsonArray("impressions").get(0).getAsJsonObject().get("name")
+                .getAsString());
+    }
+
+    /**
+     * Checks that commands run through the API move a context of the API's own, and leave the context shown by the UI,
+     * and its history, as they were.
+     */
+    @Test
+    public void navigationCommands_uiContextUnchanged() throws IOException, InterruptedException {
+        assertEquals(200, post("new -n \"Alice\" -b \"B1\" -a \"nuts\"").statusCode());
+        Context shownContext = core.uiContext.getContext();
+        DukeObject shownObj = core.uiContext.getObject();
+        int historySize = core.uiContext.getHistorySize();
+
+        HttpResponse<String> response = post("open -b \"B1\"; new -n \"Flu\" -desc \"seasonal\"; open -im \"Flu\"");
+        JsonObject body = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals("IMPRESSION", body.get("context").getAsString());
+        assertEquals(400, post("back; frobnicate").statusCode());
+        assertEquals("Flu", JsonParser.parseString(post("up; open -im \"Flu\"").body()).getAsJsonObject()
+                .get("name").getAsString());
+
+        assertEquals(shownContext, core.uiContext.getContext());
+        assertSame(shownObj, core.uiContext.getObject());
+        assertEquals(historySize, core.uiContext.getHistorySize());
+    }
+
+    /**
+     * Checks that the ward is listed without reading back the impressions of patients loaded with only their details,
+     * and that a patient's impressions are only read back when asked for, and unloaded again afterwards.
+     */
+    @Test
+    public void unloadedPatients_onlyLoadedWhenAskedFor() throws IOException, InterruptedException, DukeException {
+        BinaryStorage binaryStorage = new BinaryStorage("data" + File.separator + "apiTest.bin");
+        try {
+            PatientData stored = new PatientData();
+            Patient alice = stored.addPatient(new Patient("Alice", "B1", "nuts", 0, 0, 0, 0, "address", "history"));
+            alice.addNewImpression(new Impression("Flu", "seasonal", alice));
+            binaryStorage.commit(stored);
+            core.patientData = new PatientData(binaryStorage, 0);
+            Patient patient = core.patientData.getPatientByBed("B1");
+            api.publish(core.patientData);
+            assertFalse(patient.isLoaded());
+
+            JsonObject summary = JsonParser.parseString(get("/api/patients").body()).getAsJsonArray().get(0)
+                    .getAsJsonObject();
+            assertEquals("Flu", summary.get("primaryDiagnosis").getAsString());
+            assertFalse(patient.isLoaded());
+
+            JsonObject impression = JsonParser.parseString(get("/api/patients/B1/impressions/flu").body())
+                    .getAsJsonObject();
+            assertEquals("seasonal", impression.get("description").getAsString());
+            assertFalse(patient.isLoaded());
+        } finally {
+            binaryStorage.resetAllData();
+        }
+    }
+
+    /**
+     * Checks that failing commands, and reads of missing patients, are answered with errors, and change nothing.
+     */
+    @Test
+    public void failingCommand_errorReturnedAndNothingChanged() throws IOException, InterruptedException {
+        HttpResponse<String> response = post("new -n \"Bob\" -b \"B2\" -a \"dust\"; frobnicate");
+        assertEquals(400, response.statusCode());
+        assertTrue(JsonParser.parseString(response.body()).getAsJsonObject().get("error").getAsString()
+                .contains("frobnicate"));
+        assertEquals(0, JsonParser.parseString(get("/api/patients").body()).getAsJsonArray().size());
+        assertEquals(404, get("/api/patients/B2").statusCode());
+        assertEquals(404, get("/api/nothing").statusCode());
+        assertEquals(400, get("/api/search").statusCode());
+    }
+
+    /**
+     * Reads events from a stream until one of the given type arrives, returning its data.
+     */
+    private static JsonObject nextEvent(Iterator<String> lines, String type) {
+        String eventType = null;
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith("event: ")) {
+                eventType = line.substring("event: ".length());
+            } else if (line.startsWith("data: ")) {
+                assertEquals(type, eventType);
+                return JsonParser.parseString(line.substring("data: ".length())).getAsJsonObject();
+            }
+        }
+        throw new AssertionError("Event stream ended before a " + type + " event");
+    }
+
+    /**
+     * Checks that the changes made by commands are streamed to dashboards in order, and that the changes made by a
+     * line of commands that is rolled back are not.
+     */
+    @Test
+    public void eventStream_changesStreamedInOrder_rolledBackChangesNot() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + api.getPort() + "/api/events"))
+                .build();
+        HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+        Iterator<String> lines = response.body().iterator();
+
+        assertEquals(400, post("new -n \"Bob\" -b \"B2\" -a \"dust\"; frobnicate").statusCode());
+        assertEquals(200, post("new -n \"Carol\" -b \"B3\" -a \"none\"; open -b \"B3\";"
+                + " new -n \"Flu\" -desc \"seasonal\"; open -im \"Flu\"; new -p -n \"Rest\" -pri 1;"
+                + " priority \"Rest\" -s 2; status \"Rest\" -s 1; up; up; discharge -b \"B3\"").statusCode());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            JsonObject admitted = nextEvent(lines, "admitted");
+            assertEquals("Carol", admitted.get("name").getAsString());
+            JsonObject priorityChanged = nextEvent(lines, "priorityChanged");
+            assertEquals("Rest", priorityChanged.get("name").getAsString());
+            assertEquals(1, priorityChanged.get("oldPriority").getAsInt());
+            assertEquals(2, priorityChanged.get("priority").getAsInt());
+            assertEquals(admitted.get("uid"), priorityChanged.get("patientUid"));
+            JsonObject statusChanged = nextEvent(lines, "statusChanged");
+            assertFalse(statusChanged.get("oldStatus").equals(statusChanged.get("status")));
+            assertEquals("B3", nextEvent(lines, "discharged").get("bedNo").getAsString());
+        });
+    }
+}
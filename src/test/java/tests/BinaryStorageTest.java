@@ -0,0 +1,371 @@
+package tests;
+
+import duke.data.Evidence;
+import duke.data.DukeObject;
+import duke.data.Impression;
+import duke.data.Medicine;
+import duke.data.Observation;
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.data.Plan;
+import duke.data.Result;
+import duke.data.Treatment;
+import duke.data.storage.BinaryStorage;
+import duke.data.storage.GsonStorage;
+import duke.data.storage.StorageConverter;
+import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JUnit class testing the class BinaryStorage.
+ */
+public class BinaryStorageTest {
+    private static final String snapshotPath = "data" + File.separator + "test.bin";
+    private static final String jsonPath = "data" + File.separator + "binaryTest.json";
+
+    private final Path journalPath = Paths.get("data", "test.binlog");
+    private BinaryStorage storage;
+
+    private Patient dummy1 = new Patient("dummy1", "A100", "nuts", 0, 0, 0, 0, "", "");
+    private Patient dummy2 = new Patient("dummy2", "A200", "", 0, 0, 0, 0, "", "");
+
+    @BeforeEach
+    public void setupStorage() throws DukeFatalException {
+        storage = new BinaryStorage(snapshotPath);
+    }
+
+    @AfterEach
+    public void clearTestData() throws IOException {
+        storage.resetAllData();
+    }
+
+    /**
+     * Creates a patient with an impression holding one of each type of evidence and treatment.
+     */
+    private Patient createComplexPatient() throws DukeException {
+        Patient patient = new Patient("Zo\u00eb", "C1", "penicillin", 170, -1, 42, 6582447, "address", null);
+        Impression impression1 = new Impression("imp 1", "description 1", patient);
+        Impression impression2 = new Impression("imp 2", "description 2", patient);
+        patient.addNewImpression(impression1);
+        patient.addNewImpression(impression2);
+        impression2.addNewEvidence(new Observation("obs", impression2, 1, "summary", true));
+        impression2.addNewEvidence(new Result("result", impression2, 4, "summary"));
+        impression2.addNewTreatment(new Plan("plan", impression2, 2, "1", "summary"));
+        impression2.addNewTreatment(new Medicine("medicine", impression2, 0, "2", "dose", "today", "a week"));
+        patient.setPrimaryDiagnosis("imp 2");
+        return patient;
+    }
+
+    /**
+     * Writes a snapshot of a patient using every type of data, and checks that it is loaded back identically, with
+     * each object linked to its parent and nothing marked as changed.
+     */
+    @Test
+    public void snapshotRoundTrip() throws DukeException {
+        PatientData patientData = new PatientData();
+        patientData.addPatient(createComplexPatient());
+        patientData.addPatient(dummy1);
+        storage.commit(patientData);
+
+        patientData = new PatientData(new BinaryStorage(snapshotPath));
+        assertEquals(2, patientData.getPatientList().size());
+        Patient patient = patientData.getPatientList().get(0);
+        assertEquals("Zo\u00eb", patient.getName());
+        assertEquals("penicillin", patient.getAllergies());
+        assertEquals(-1, (int) patient.getWeight());
+        assertEquals(6582447, (int) patient.getNumber());
+        assertNull(patient.getHistory());
+        assertFalse(patient.isDirty());
+
+        Impression primary = patient.getPrimaryDiagnosis();
+        assertTrue(primary == patient.getImpressionList().get(0));
+        assertEquals("imp 2", primary.getName());
+        assertEquals("description 2", primary.getDescription());
+        assertEquals(2, primary.getEvidences().size());
+        for (Evidence evidence : primary.getEvidences()) {
+            assertTrue(evidence.getParent() == primary);
+        }
+        Observation observation = (Observation) primary.getEvidence("obs");
+        assertTrue(observation.isObjective());
+        assertEquals(1, (int) observation.getPriority());
+        assertEquals(4, (int) primary.getEvidence("result").getPriority());
+        for (Treatment treatment : primary.getTreatments()) {
+            assertTrue(treatment.getParent() == primary);
+        }
+        assertEquals(1, (int) primary.getTreatment("plan").getStatusIdx());
+        Medicine medicine = (Medicine) primary.getTreatment("medicine");
+        assertEquals(2, (int) medicine.getStatusIdx());
+        assertEquals("a week", medicine.getDuration());
+        assertEquals("A100", patientData.getPatientList().get(1).getBedNo());
+    }
+
+    /**
+     * Commits changes after the first snapshot, and checks that they are journaled without rewriting the snapshot,
+     * and replayed when the data is loaded again.
+     */
+    @Test
+    public void journalReplay() throws IOException, DukeException {
+        PatientData patientData = new PatientData();
+        patientData.addPatient(dummy1);
+        patientData.addPatient(dummy2);
+        storage.commit(patientData);
+        byte[] snapshot = Files.readAllBytes(Paths.get(snapshotPath));
+
+        patientData.deletePatient("A100");
+        dummy2.setAllergies("dust");
+        patientData.addPatient(createComplexPatient());
+        storage.commit(patientData);
+        assertTrue(Files.exists(journalPath));
+        assertTrue(Arrays.equals(snapshot, Files.readAllBytes(Paths.get(snapshotPath))));
+
+        patientData = new PatientData(new BinaryStorage(snapshotPath));
+        assertEquals(2, patientData.getPatientList().size());
+        assertNull(patientData.getPatientByBed("A100"));
+        assertEquals("dust", patientData.getPatientByBed("A200").getAllergies());
+        assertEquals("imp 2", patientData.getPatientByBed("C1").getPrimaryDiagnosis().getName());
+    }
+
+    /**
+     * Checks that patients are loaded with only the details shown on their cards, and that their impressions are read
+     * back when first needed.
+     */
+    @Test
+    public void impressionsLoadedWhenNeeded() throws DukeException {
+        PatientData patientData = new PatientData();
+        patientData.addPatient(createComplexPatient());
+        storage.commit(patientData);
+
+        Patient patient = new PatientData(new BinaryStorage(snapshotPath)).getPatientByBed("C1");
+        assertFalse(patient.isLoaded());
+        assertEquals("imp 2", patient.getPrimaryDiagnosisName());
+        assertEquals("1 critical issue", patient.getCriticalCountStr());
+        assertFalse(patient.isLoaded());
+
+        assertEquals("summary", patient.getPrimaryDiagnosis().getEvidence("obs").getSummary());
+        assertTrue(patient.isLoaded());
+        assertTrue(patient.getImpression("imp 1").getParent() == patient);
+        assertEquals(1, patient.getCriticalList().size());
+        assertFalse(patient.isDirty());
+    }
+
+    /**
+     * Checks that the impressions of patients are read back from the snapshot, or from the journal if they were changed
+     * since the snapshot was written, rather than from copies of the patients kept in memory.
+     */
+    @Test
+    public void impressionsReadBackFromFiles() throws DukeException, IOException {
+        PatientData patientData = new PatientData();
+        patientData.addPatient(createComplexPatient());
+        patientData.addPatient(dummy1);
+        dummy1.addNewImpression(new Impression("other imp", "description", dummy1));
+        storage.commit(patientData);
+        dummy1.getImpression("other imp").setDescription("changed");
+        storage.commit(patientData);
+        assertTrue(Files.exists(journalPath));
+
+        patientData = new PatientData(storage, 0);
+        Patient patient = patientData.getPatientByBed("C1");
+        Patient other = patientData.getPatientByBed("A100");
+        assertEquals("changed", other.getImpression("other imp").getDescription());
+        assertEquals("summary", patient.getPrimaryDiagnosis().getEvidence("obs").getSummary());
+        assertEquals(2, patientData.evictUnused(List.of()));
+
+        Files.delete(Paths.get(snapshotPath));
+        assertEquals("changed", other.getImpression("other imp").getDescription());
+        assertThrows(UncheckedIOException.class, patient::getImpressionList);
+    }
+
+    /**
+     * Checks that once the journal has grown large enough, the snapshot is rewritten from the records in the files and
+     * the journal is cleared, keeping the patients that were never read in full.
+     */
+    @Test
+    public void journalCompacted() throws DukeException {
+        PatientData patientData = new PatientData();
+        patientData.addPatient(createComplexPatient());
+        patientData.addPatient(dummy1);
+        storage.commit(patientData);
+
+        patientData = new PatientData(storage, 0);
+        Patient patient = patientData.getPatientByBed("C1");
+        Patient other = patientData.getPatientByBed("A100");
+        String padding = "x".repeat(1024);
+        int commitCount = 0;
+        do {
+            other.setAllergies(padding + commitCount);
+            storage.commit(patientData);
+            ++commitCount;
+        } while (Files.exists(journalPath) && commitCount < 1000);
+        assertFalse(Files.exists(journalPath));
+        assertFalse(patient.isLoaded());
+        assertEquals("summary", patient.getPrimaryDiagnosis().getEvidence("obs").getSummary());
+
+        patientData = new PatientData(new BinaryStorage(snapshotPath));
+        assertEquals(padding + (commitCount - 1), patientData.getPatientByBed("A100").getAllergies());
+        assertEquals("imp 2", patientData.getPatientByBed("C1").getPrimaryDiagnosis().getName());
+    }
+
+    /**
+     * Checks that objects keep their uids when they are saved and read back, and are found by them whether the
+     * impressions of their patient have not been read yet or have been unloaded, and that uids of no object are
+     * answered without reading any patient.
+     */
+    @Test
+    public void uidsKeptWhenUnloaded() throws DukeException {
+        PatientData patientData = new PatientData();
+        Patient created = createComplexPatient();
+        patientData.addPatient(created);
+        int obsUid = created.getImpression("imp 2").getEvidence("obs").getUid();
+        storage.commit(patientData);
+
+        patientData = new PatientData(storage, 0);
+        Patient patient = patientData.getPatientByBed("C1");
+        assertEquals(created.getUid(), patient.getUid());
+        assertFalse(patient.isLoaded());
+        assertNull(patientData.getObject(Integer.MAX_VALUE));
+        assertFalse(patient.isLoaded());
+        DukeObject obs = patientData.getObject(obsUid);
+        assertEquals("obs", obs.getName());
+        assertTrue(obs.getParent() == patient.getPrimaryDiagnosis());
+
+        assertEquals(1, patientData.evictUnused(List.of()));
+        assertFalse(patient.isLoaded());
+        assertEquals("obs", patientData.getObject(obsUid).getName());
+        assertTrue(patient.isLoaded());
+        assertTrue(new Observation("new", null, 1, "", true).getUid() > obsUid);
+    }
+
+    /**
+     * Checks that the impressions of patients not in use are unloaded once they exceed the budget, unless they have
+     * unsaved changes, and that changes saved since the patients were loaded are read back.
+     */
+    @Test
+    public void unusedPatientsUnloaded() throws DukeException {
+        PatientData patientData = new PatientData();
+        patientData.addPatient(createComplexPatient());
+        patientData.addPatient(dummy1);
+        storage.commit(patientData);
+
+        patientData = new PatientData(storage, 0);
+        Patient patient = patientData.getPatientByBed("C1");
+        Patient other = patientData.getPatientByBed("A100");
+        patient.getImpression("imp 1").setDescription("changed");
+        other.getImpressionList();
+        assertEquals(0, patientData.evictUnused(Set.of(other)));
+        assertTrue(patient.isLoaded());
+        assertTrue(other.isLoaded());
+
+        storage.save(patientData);
+        assertEquals(1, patientData.evictUnused(List.of()));
+        assertFalse(patient.isLoaded());
+        assertEquals("changed", patient.getImpression("imp 1").getDescription());
+        assertEquals("imp 2", patient.getPrimaryDiagnosis().getName());
+    }
+
+    /**
+     * Checks that impressions which have not been loaded yet, or which have been unloaded, are still searched, and
+     * are only loaded if they can match, even the first time the ward is searched.
+     */
+    @Test
+    public void unloadedPatientsSearched() throws DukeException {
+        PatientData patientData = new PatientData();
+        patientData.addPatient(createComplexPatient());
+        patientData.addPatient(dummy1);
+        dummy1.addNewImpression(new Impression("other imp", "description", dummy1));
+        storage.commit(patientData);
+
+        patientData = new PatientData(storage, 0);
+        Patient patient = patientData.getPatientByBed("C1");
+        Patient other = patientData.getPatientByBed("A100");
+        assertEquals(0, patientData.searchAll("nothing like it").getCount());
+        assertFalse(patient.isLoaded());
+        assertFalse(other.isLoaded());
+        assertEquals(List.of(patient.getImpression("imp 1")), patientData.searchAll("imp 1").getSearchList());
+        assertFalse(other.isLoaded());
+        assertEquals(1, patientData.evictUnused(List.of()));
+        assertEquals(1, patientData.searchAll("other imp").getCount());
+        assertFalse(patient.isLoaded());
+        assertEquals(1, patientData.evictUnused(List.of()));
+
+        assertEquals(0, patientData.searchAll("nothing like it").getCount());
+        assertFalse(patient.isLoaded());
+        List<DukeObject> results = patientData.searchAll("imp 1").getSearchList();
+        assertTrue(patient.isLoaded());
+        assertFalse(other.isLoaded());
+        assertEquals(List.of(patient.getImpression("imp 1")), results);
+    }
+
+    /**
+     * Appends a partially written entry to the journal, and checks that the entries before it are still replayed.
+     */
+    @Test
+    public void tornJournalEntry() throws IOException, DukeException {
+        PatientData patientData = new PatientData();
+        patientData.addPatient(dummy1);
+        storage.commit(patientData);
+        patientData.addPatient(dummy2);
+        storage.commit(patientData);
+        byte[] journal = Files.readAllBytes(journalPath);
+        Files.write(journalPath, Arrays.copyOf(journal, journal.length - 3), StandardOpenOption.APPEND);
+
+        patientData = new PatientData(storage);
+        assertEquals(2, patientData.getPatientList().size());
+        patientData.getPatientByBed("A100").setAllergies("dust");
+        storage.commit(patientData);
+        assertFalse(Files.exists(journalPath));
+        patientData = new PatientData(new BinaryStorage(snapshotPath));
+        assertEquals("dust", patientData.getPatientByBed("A100").getAllergies());
+    }
+
+    /**
+     * Checks that a snapshot which is not valid is reported as corrupted rather than loaded.
+     */
+    @Test
+    public void corruptedSnapshotRejected() throws IOException {
+        Files.writeString(Paths.get(snapshotPath), "[{\"bedNo\":\"A100\"}]", StandardCharsets.UTF_8);
+        assertThrows(DukeFatalException.class, () -> storage.loadPatients());
+    }
+
+    /**
+     * Converts JSON data to a binary snapshot and back, and checks that the exported json file is unchanged.
+     */
+    @Test
+    public void convertedBothWays() throws IOException, DukeException {
+        String expected = new Scanner(new File("data" + File.separator + "expected.json"))
+                .useDelimiter("\\Z").next().replaceAll(System.lineSeparator(), "\n");
+        Files.writeString(Paths.get(jsonPath), expected, StandardCharsets.UTF_8);
+        GsonStorage jsonStorage = new GsonStorage(jsonPath);
+        try {
+            assertEquals(4, StorageConverter.convert(jsonStorage, storage));
+            assertTrue(Files.size(Paths.get(snapshotPath)) < expected.length() / 2);
+            jsonStorage.resetAllData();
+            assertEquals(4, StorageConverter.convert(new BinaryStorage(snapshotPath), jsonStorage));
+            assertEquals(expected, Files.readString(Paths.get(jsonPath), StandardCharsets.UTF_8));
+        } finally {
+            jsonStorage.resetAllData();
+            Files.deleteIfExists(Paths.get(jsonPath));
+        }
+    }
+}
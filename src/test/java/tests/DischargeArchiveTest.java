@@ -0,0 +1,121 @@
+package tests;
+
+import duke.data.Impression;
+import duke.data.Observation;
+import duke.data.Patient;
+import duke.data.storage.ArchiveEntry;
+import duke.data.storage.DischargeArchive;
+import duke.exception.DukeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JUnit class testing the class DischargeArchive.
+ */
+public class DischargeArchiveTest {
+    private static final String archivePath = "data" + File.separator + "archiveTest";
+    private static final Path indexPath = Paths.get(archivePath + ".idx");
+    private static final Path segmentPath = Paths.get(archivePath + ".0.seg");
+
+    @AfterEach
+    public void clearTestData() throws IOException {
+        Files.deleteIfExists(indexPath);
+        Files.deleteIfExists(segmentPath);
+    }
+
+    private Patient createPatient(String name, String bedNo) throws DukeException {
+        Patient patient = new Patient(name, bedNo, "dust", 170, 60, 40, 91234567, "address", "history");
+        Impression impression = new Impression("imp " + bedNo, "description", patient);
+        patient.addNewImpression(impression);
+        impression.addNewEvidence(new Observation("obs", impression, 1, "summary " + bedNo, true));
+        patient.setPrimaryDiagnosis("imp " + bedNo);
+        return patient;
+    }
+
+    private static void truncate(Path path, long bytesRemoved) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(file.length() - bytesRemoved);
+        }
+    }
+
+    /**
+     * Checks that archived patients are restored with all of their data, after the archive is reopened.
+     */
+    @Test
+    public void archivedPatientsRestored() throws DukeException {
+        DischargeArchive archive = new DischargeArchive(archivePath);
+        archive.archive(createPatient("John Doe", "A1"), LocalDate.of(2019, 11, 20));
+        archive.archive(createPatient("Jane Doe", "A2"), LocalDate.of(2019, 11, 21));
+
+        DischargeArchive reopened = new DischargeArchive(archivePath);
+        assertEquals(2, reopened.getEntries().size());
+        Patient patient = reopened.restore(reopened.find("john").get(0));
+        assertEquals("John Doe", patient.getName());
+        assertEquals("A1", patient.getBedNo());
+        assertEquals("dust", patient.getAllergies());
+        assertEquals(91234567, patient.getNumber());
+        assertEquals("summary A1", patient.getPrimaryDiagnosis().getEvidence("obs").getSummary());
+    }
+
+    /**
+     * Checks that patients are found by bed, discharge date or part of their name, most recently discharged first.
+     */
+    @Test
+    public void entriesFound() throws DukeException {
+        DischargeArchive archive = new DischargeArchive(archivePath);
+        archive.archive(createPatient("John Doe", "A1"), LocalDate.of(2019, 11, 20));
+        archive.archive(createPatient("Jane Roe", "A2"), LocalDate.of(2019, 11, 21));
+        archive.archive(createPatient("John Smith", "a1"), LocalDate.of(2019, 11, 22));
+
+        List<ArchiveEntry> results = archive.find("A1");
+        assertEquals(2, results.size());
+        assertEquals("John Smith", results.get(0).getName());
+        assertEquals("John Doe", results.get(1).getName());
+        assertEquals("Jane Roe", archive.find("2019-11-21").get(0).getName());
+        assertEquals("John Doe", archive.find("DOE").get(0).getName());
+        assertTrue(archive.find("nobody").isEmpty());
+        assertEquals("John Smith", archive.getEntries().get(0).getName());
+    }
+
+    /**
+     * Checks that patients archived without being indexed are found, and that partially written entries at the end of
+     * the index and segment are discarded and overwritten by the next patient archived.
+     */
+    @Test
+    public void interruptedWritesRecovered() throws DukeException, IOException {
+        DischargeArchive archive = new DischargeArchive(archivePath);
+        archive.archive(createPatient("first", "A1"), LocalDate.of(2019, 11, 20));
+        long indexSize = Files.size(indexPath);
+        archive.archive(createPatient("second", "A2"), LocalDate.of(2019, 11, 21));
+        truncate(indexPath, Files.size(indexPath) - indexSize + 1);
+
+        DischargeArchive reopened = new DischargeArchive(archivePath);
+        assertEquals(2, reopened.getEntries().size());
+        assertEquals("A2", reopened.restore(reopened.find("second").get(0)).getBedNo());
+
+        indexSize = Files.size(indexPath);
+        reopened.archive(createPatient("third", "A3"), LocalDate.of(2019, 11, 22));
+        truncate(indexPath, Files.size(indexPath) - indexSize);
+        truncate(segmentPath, 3);
+        reopened = new DischargeArchive(archivePath);
+        assertEquals(2, reopened.getEntries().size());
+        reopened.archive(createPatient("fourth", "A4"), LocalDate.of(2019, 11, 23));
+
+        reopened = new DischargeArchive(archivePath);
+        assertEquals(3, reopened.getEntries().size());
+        assertEquals("first", reopened.restore(reopened.find("A1").get(0)).getName());
+        assertEquals("fourth", reopened.restore(reopened.find("A4").get(0)).getName());
+    }
+}
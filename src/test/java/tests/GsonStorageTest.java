@@ -1,5 +1,7 @@
 package tests;
 
+import duke.data.DukeObject;
+import duke.data.Evidence;
 import duke.data.Help;
 import duke.data.Impression;
 import duke.data.Investigation;
@@ -9,7 +11,10 @@ import duke.data.Patient;
 import duke.data.PatientData;
 import duke.data.Plan;
 import duke.data.Result;
+import duke.data.Treatment;
+import duke.data.storage.ChangeSet;
 import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import templates.CommandTest;
@@ -19,11 +24,17 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -59,6 +70,11 @@ public class GsonStorageTest extends CommandTest {
      */
     private static String expected;
 
+    /**
+     * The journal of changes to the test data.
+     */
+    private final Path journalPath = Paths.get("data", "test.journal");
+
     /**
      * Loads the expected Json representation of the test patients from the data/expected.json file.
      */
@@ -171,6 +187,7 @@ public class GsonStorageTest extends CommandTest {
         core.patientData.addPatient(dummy2);
         core.patientData.addPatient(dummy3);
         core.patientData.addPatient(createComplexPatient());
+        numberObjects(core.patientData.getPatientList());
         core.storage.writeJsonFile(core.patientData.getPatientList());
         String json = Files.readString(Paths.get(testFilePath), StandardCharsets.US_ASCII);
         printDifferences(expected, json);
@@ -209,6 +226,424 @@ public class GsonStorageTest extends CommandTest {
         assertTrue(equals);
     }
 
+    /**
+     * Loads a UTF-8 encoded file with non-ASCII names, and checks that the names are preserved and that the primary
+     * diagnosis of each patient is relinked to the matching impression.
+     */
+    @Test
+    public void loadUtf8Patients() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        String name = "Zo\u00eb \u00d1\u00fa\u00f1ez";
+        Files.writeString(Paths.get(testFilePath), expected.replace("testCPatient", name), StandardCharsets.UTF_8);
+        core.patientData = new PatientData(core.storage);
+        Patient complexPatient = core.patientData.getPatientByBed("C1");
+        assertEquals(name, complexPatient.getName());
+        assertTrue(complexPatient.getPrimaryDiagnosis() == complexPatient.getImpressionList().get(0));
+        for (Impression impression : complexPatient.getImpressionList()) {
+            assertTrue(impression.getParent() == complexPatient);
+        }
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Loads the complex patient, and checks that every evidence and treatment is linked to its impression, and that
+     * nothing loaded is marked as changed.
+     */
+    @Test
+    public void loadedPatientsLinked() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        Files.writeString(Paths.get(testFilePath), expected, StandardCharsets.UTF_8);
+        core.patientData = new PatientData(core.storage);
+        Patient complexPatient = core.patientData.getPatientByBed("C1");
+        assertFalse(complexPatient.isDirty());
+        for (Impression impression : complexPatient.getImpressionList()) {
+            for (Evidence evidence : impression.getEvidences()) {
+                assertTrue(evidence.getParent() == impression);
+            }
+            for (Treatment treatment : impression.getTreatments()) {
+                assertTrue(treatment.getParent() == impression);
+            }
+        }
+        assertEquals(4, complexPatient.getImpressionList().get(1).getTreatments().size());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Loads a file saved before uids were stored, and checks that the primary diagnosis is linked by name, and that
+     * the patients are marked as changed, so that the uids they are given are kept once they are saved.
+     */
+    @Test
+    public void legacyPatientsGivenUids() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        String legacy = new Scanner(new File("data" + File.separator + "legacy.json"))
+                .useDelimiter("\\Z").next().replaceAll(System.lineSeparator(), "\n");
+        Files.writeString(Paths.get(testFilePath), legacy, StandardCharsets.UTF_8);
+        core.patientData = new PatientData(core.storage);
+        Patient complexPatient = core.patientData.getPatientByBed("C1");
+        assertTrue(complexPatient.isDirty());
+        assertEquals("test imp 1", complexPatient.getPrimaryDiagnosis().getName());
+        Evidence evidence = complexPatient.getImpression("test imp 1").getEvidence("test obs 1");
+        int uid = evidence.getUid();
+        core.storage.commit(core.patientData);
+
+        core.patientData = new PatientData(core.storage);
+        complexPatient = core.patientData.getPatientByBed("C1");
+        assertFalse(complexPatient.isDirty());
+        assertEquals("test obs 1", core.patientData.getObject(uid).getName());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Checks that objects are found by the uids they were saved with after being renamed, moved between impressions,
+     * and read back from storage.
+     */
+    @Test
+    public void objectsFoundByUid() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        Files.writeString(Paths.get(testFilePath), expected, StandardCharsets.UTF_8);
+        core.patientData = new PatientData(core.storage);
+        Patient complexPatient = core.patientData.getPatientByBed("C1");
+        assertEquals(complexPatient, core.patientData.getObject(4));
+        assertEquals(5, complexPatient.getPrimaryDiagnosis().getUid());
+        Treatment plan = (Treatment) core.patientData.getObject(10);
+        assertEquals("test plan 1", plan.getName());
+
+        plan.setName("renamed plan");
+        Impression impression2 = complexPatient.getImpression("test imp 2");
+        complexPatient.getImpression("test imp 1").deleteTreatment("renamed plan");
+        plan.setParent(impression2);
+        impression2.addNewTreatment(plan);
+        complexPatient.setPrimaryDiagnosis(impression2);
+        assertEquals(plan, core.patientData.getObject(10));
+        core.storage.commit(core.patientData);
+
+        core.patientData = new PatientData(core.storage);
+        complexPatient = core.patientData.getPatientByBed("C1");
+        assertEquals(12, complexPatient.getPrimaryDiagnosis().getUid());
+        DukeObject stored = core.patientData.getObject(10);
+        assertEquals("renamed plan", stored.getName());
+        assertTrue(stored.getParent() == complexPatient.getImpression("test imp 2"));
+        core.patientData.deletePatient("C1");
+        assertNull(core.patientData.getObject(10));
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Gives the patients, and everything in them, uids in the order they are written, so that they are written the
+     * same way whichever tests have run before.
+     */
+    private void numberObjects(List<Patient> patients) {
+        int uid = 0;
+        for (Patient patient : patients) {
+            patient.setUid(++uid);
+            for (Impression impression : patient.getImpressionList()) {
+                impression.setUid(++uid);
+                for (Evidence evidence : impression.getEvidences()) {
+                    evidence.setUid(++uid);
+                }
+                for (Treatment treatment : impression.getTreatments()) {
+                    treatment.setUid(++uid);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a file with an evidence of a type that does not exist, and checks that it is treated as corrupted.
+     */
+    @Test
+    public void unknownDataTypeRejected() throws IOException {
+        core.patientData = core.storage.resetAllData();
+        Files.writeString(Paths.get(testFilePath), expected.replace("\"type\":\"Result\"", "\"type\":\"Rumour\""),
+                StandardCharsets.UTF_8);
+        assertThrows(DukeFatalException.class, () -> new PatientData(core.storage));
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Writes a patient with a non-ASCII name and reads it back, checking that the name survives the round trip and
+     * that no temporary file is left behind.
+     */
+    @Test
+    public void writeUtf8Patients() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        String name = "Zo\u00eb \u00d1\u00fa\u00f1ez";
+        core.patientData.addPatient(new Patient(name, "A100", "", 0, 0, 0, 0, "", ""));
+        core.storage.writeJsonFile(core.patientData.getPatientList());
+        core.patientData = new PatientData(core.storage);
+        assertEquals(name, core.patientData.getPatientByBed("A100").getName());
+        assertFalse(new File(testFilePath + ".tmp").exists());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Commits a mix of additions, changes and deletions after the first full write, and checks that they are journaled
+     * without rewriting any shards, and replayed when the data is loaded again.
+     */
+    @Test
+    public void journalReplay() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        core.patientData.addPatient(dummy1);
+        core.patientData.addPatient(dummy2);
+        core.storage.commit(core.patientData);
+        String shard = Files.readString(shardPath(dummy2), StandardCharsets.UTF_8);
+
+        core.patientData.addPatient(dummy3);
+        core.patientData.deletePatient("A100");
+        dummy2.setAllergies("dust");
+        core.storage.commit(core.patientData);
+        assertTrue(Files.exists(journalPath));
+        assertTrue(Files.exists(shardPath(dummy1)));
+        assertEquals(shard, Files.readString(shardPath(dummy2), StandardCharsets.UTF_8));
+
+        core.patientData = new PatientData(core.storage);
+        assertEquals(2, core.patientData.getPatientList().size());
+        assertNull(core.patientData.getPatientByBed("A100"));
+        assertEquals("dust", core.patientData.getPatientByBed("A200").getAllergies());
+        assertTrue(identical(core.patientData.getPatientByBed("A300"), dummy3));
+        assertEquals("A300", core.patientData.getPatientList().get(1).getBedNo());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Changes a medicine of a stored patient, and checks that only the objects changed are journaled, with the rest
+     * referred to by uid. Then moves an evidence to another impression and deletes a plan, and checks that the
+     * patient replayed from the journal has the same impressions.
+     */
+    @Test
+    public void journalHoldsOnlyChanges() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        Patient patient = createComplexPatient();
+        core.patientData.addPatient(patient);
+        core.storage.commit(core.patientData);
+
+        Impression impression1 = patient.getImpression("test imp 1");
+        Impression impression2 = patient.getImpression("test imp 2");
+        ((Medicine) impression2.getTreatment("test medicine 1")).setDose("changed dose");
+        core.storage.commit(core.patientData);
+        String journal = Files.readString(journalPath, StandardCharsets.UTF_8);
+        assertTrue(journal.contains("changed dose"));
+        assertFalse(journal.contains("test imp 1"));
+        assertFalse(journal.contains("test plan 2"));
+
+        Evidence evidence = impression1.getEvidence("test obs 1");
+        impression2.addNewEvidence(evidence);
+        impression1.deleteEvidence("test obs 1");
+        impression2.deleteTreatment("test plan 2");
+        core.storage.commit(core.patientData);
+
+        core.patientData = new PatientData(core.storage);
+        Patient loaded = core.patientData.getPatientByBed("C1");
+        assertTrue(identical(loaded, patient));
+        assertEquals("test imp 1", loaded.getPrimaryDiagnosis().getName());
+        assertEquals(3, loaded.getImpression("test imp 1").getEvidences().size());
+        assertEquals(2, loaded.getImpression("test imp 1").getTreatments().size());
+        assertEquals(1, loaded.getImpression("test imp 2").getEvidences().size());
+        assertEquals(3, loaded.getImpression("test imp 2").getTreatments().size());
+        assertEquals(evidence.getUid(), loaded.getImpression("test imp 2").getEvidence("test obs 1").getUid());
+        assertNull(loaded.getImpression("test imp 2").getTreatment("test plan 2"));
+        assertEquals("changed dose",
+                ((Medicine) loaded.getImpression("test imp 2").getTreatment("test medicine 1")).getDose());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Checks that patients unloaded to stay within the budget are read back from their shards, or from the journal if
+     * they have been changed since.
+     */
+    @Test
+    public void unloadedPatientsReadBack() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        core.patientData.addPatient(createComplexPatient());
+        core.patientData.addPatient(dummy1);
+        core.storage.commit(core.patientData);
+
+        core.patientData = new PatientData(core.storage, 0);
+        Patient patient = core.patientData.getPatientByBed("C1");
+        assertEquals(1, core.patientData.evictUnused(List.of()));
+        assertFalse(patient.isLoaded());
+        assertEquals("test imp 1", patient.getPrimaryDiagnosisName());
+        assertEquals("test summary 2", patient.getImpression("test imp 1").getEvidence("test obs 2").getSummary());
+
+        patient.getPrimaryDiagnosis().setDescription("changed");
+        core.storage.commit(core.patientData);
+        core.patientData.evictUnused(List.of());
+        assertFalse(patient.isLoaded());
+        assertEquals("changed", patient.getPrimaryDiagnosis().getDescription());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Simulates a compaction that was interrupted after the shards and manifest were written but before the journal
+     * was cleared, and checks that replaying the journal again gives the same patients.
+     */
+    @Test
+    public void interruptedCompaction() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        core.patientData.addPatient(dummy1);
+        core.patientData.addPatient(dummy2);
+        core.storage.commit(core.patientData);
+        core.patientData.deletePatient("A100");
+        core.patientData.addPatient(dummy3);
+        dummy2.setAllergies("dust");
+        core.storage.commit(core.patientData);
+        byte[] journal = Files.readAllBytes(journalPath);
+
+        core.patientData.setJournaled(false);
+        core.storage.commit(core.patientData);
+        assertFalse(Files.exists(journalPath));
+        Files.write(journalPath, journal);
+
+        core.patientData = new PatientData(core.storage);
+        assertEquals(2, core.patientData.getPatientList().size());
+        assertEquals("A200", core.patientData.getPatientList().get(0).getBedNo());
+        assertEquals("dust", core.patientData.getPatientList().get(0).getAllergies());
+        assertEquals("A300", core.patientData.getPatientList().get(1).getBedNo());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Grows the journal past its compaction threshold, and checks that the compaction only rewrites the shards of the
+     * patients that were changed.
+     */
+    @Test
+    public void compactionOnlyWritesChangedShards() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        core.patientData.addPatient(dummy1);
+        core.patientData.addPatient(dummy2);
+        core.storage.commit(core.patientData);
+        Path untouchedShard = shardPath(dummy1);
+        Files.writeString(untouchedShard, Files.readString(untouchedShard).replace("nuts", "peanuts"));
+
+        dummy2.setHistory("x".repeat(100 * 1024));
+        core.storage.commit(core.patientData);
+        dummy2.setAllergies("dust");
+        core.storage.commit(core.patientData);
+        assertFalse(Files.exists(journalPath));
+
+        core.patientData = new PatientData(core.storage);
+        assertEquals("peanuts", core.patientData.getPatientByBed("A100").getAllergies());
+        assertEquals("dust", core.patientData.getPatientByBed("A200").getAllergies());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Loads patients from a json file written by an older version, and checks that they are written to shards, in
+     * order, by the first commit.
+     */
+    @Test
+    public void jsonFileMigratedToShards() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        Files.writeString(Paths.get(testFilePath), expected, StandardCharsets.UTF_8);
+        core.patientData = new PatientData(core.storage);
+        core.storage.commit(core.patientData);
+        Files.writeString(Paths.get(testFilePath), "");
+
+        core.patientData = new PatientData(core.storage);
+        assertEquals(4, core.patientData.getPatientList().size());
+        assertEquals("A100", core.patientData.getPatientList().get(0).getBedNo());
+        assertTrue(identical(core.patientData.getPatientByBed("C1"), createComplexPatient()));
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Appends a partially written entry to the journal, and checks that the entries before it are still replayed.
+     */
+    @Test
+    public void tornJournalEntry() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        core.patientData.addPatient(dummy1);
+        core.storage.commit(core.patientData);
+        core.patientData.addPatient(dummy2);
+        core.storage.commit(core.patientData);
+        Files.writeString(journalPath, "{\"op\":\"PUT\",\"id\":\"9\",\"patient\":{\"bedNo\":",
+                StandardOpenOption.APPEND);
+
+        core.patientData = new PatientData(core.storage);
+        assertEquals(2, core.patientData.getPatientList().size());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Saves several changes in the background without waiting for them, and checks that the latest state of each
+     * patient is written once they are flushed.
+     */
+    @Test
+    public void backgroundSavesFlushed() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        core.patientData.addPatient(dummy1);
+        core.storage.save(core.patientData);
+        for (int i = 0; i < 10; ++i) {
+            dummy1.setAllergies("allergy " + i);
+            core.storage.save(core.patientData);
+        }
+        core.patientData.addPatient(dummy2);
+        core.storage.save(core.patientData);
+        core.storage.flush();
+
+        core.patientData = new PatientData(core.storage);
+        assertEquals(2, core.patientData.getPatientList().size());
+        assertEquals("allergy 9", core.patientData.getPatientByBed("A100").getAllergies());
+        core.patientData = core.storage.resetAllData();
+    }
+
+    /**
+     * Checks that a later change set is combined with a pending one, keeping only the latest state of each patient
+     * while preserving the order of additions and removals.
+     */
+    @Test
+    public void changeSetsCombined() {
+        ChangeSet<String> changes = new ChangeSet<>(false);
+        changes.put("1", "a");
+        changes.put("2", "b");
+        ChangeSet<String> later = new ChangeSet<>(false);
+        later.put("1", "c");
+        later.remove("2");
+        later.put("2", "d");
+        later.setNextId(3);
+        changes.append(later);
+
+        assertEquals(4, changes.size());
+        assertEquals("c", changes.getShard(0));
+        assertTrue(changes.isRemoval(2));
+        assertEquals("2", changes.getId(3));
+        assertEquals("d", changes.getShard(3));
+        assertEquals(3, changes.getNextId());
+    }
+
+    /**
+     * Makes a background save fail, and checks that the failure is reported, and that the next save writes every
+     * patient once the problem is fixed.
+     */
+    @Test
+    public void failedSaveReported() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        Path shardDir = Paths.get("data", "test");
+        Files.writeString(shardDir, "");
+        List<DukeException> failures = new ArrayList<>();
+        core.storage.setFailureListener(failures::add);
+        try {
+            core.patientData.addPatient(dummy1);
+            core.storage.save(core.patientData);
+            assertThrows(DukeFatalException.class, () -> core.storage.flush());
+            assertEquals(1, failures.size());
+
+            Files.delete(shardDir);
+            core.patientData.addPatient(dummy2);
+            core.storage.commit(core.patientData);
+            core.patientData = new PatientData(core.storage);
+            assertEquals(2, core.patientData.getPatientList().size());
+        } finally {
+            core.storage.setFailureListener(null);
+            core.patientData = core.storage.resetAllData();
+            Files.deleteIfExists(shardDir);
+        }
+    }
+
+    private Path shardPath(Patient patient) {
+        return Paths.get("data", "test", patient.getId() + ".json");
+    }
+
     /**
      * Function to print out the characters that differ between two strings that should be identical.
      */
@@ -232,6 +667,6 @@ public class GsonStorageTest extends CommandTest {
     @Test
     public void testLoadHelpList_noInputs_success() {
         List<Help> helpList = core.storage.loadHelpList("/data/helpDetails.json");
-        assertEquals(53, helpList.size());
+        assertEquals(63, helpList.size());
     }
 }
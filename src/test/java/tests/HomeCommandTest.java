@@ -1,19 +1,36 @@
 package tests;
 
 import duke.command.ArgCommand;
+import duke.command.Command;
+import duke.command.Executor;
 import duke.command.ObjCommand;
+import duke.command.Parser;
 import duke.command.home.HomeNewSpec;
 import duke.command.home.HomeReportSpec;
+import duke.data.Impression;
 import duke.data.Patient;
+import duke.data.PatientData;
 import duke.exception.DukeException;
+import duke.ui.context.Context;
 import org.junit.jupiter.api.Test;
 import templates.CommandTest;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -38,6 +55,138 @@ public class HomeCommandTest extends CommandTest {
         }
     }
 
+    /**
+     * Runs a script that fails partway through, and checks that the commands before the failure are run and saved,
+     * and that the failing line is reported.
+     */
+    @Test
+    public void runCommand_failingScript_earlierCommandsSaved() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        Path scriptPath = Paths.get("data", "test-script.txt");
+        Files.writeString(scriptPath, "# admissions\nnew -n \"Alice\" -b \"B1\" -a \"nuts\"\n\n"
+                + "new -n \"Bob\" -b \"B2\" -a \"dust\"\nnew -n \"Carol\" -b \"B1\" -a \"none\"\n"
+                + "new -n \"Dan\" -b \"B3\" -a \"none\"\n", StandardCharsets.UTF_8);
+        try {
+            Command runCmd = new Parser(core.uiContext).parse("run \"" + scriptPath + "\"");
+            DukeException excp = assertThrows(DukeException.class, () -> new Executor(core).execute(runCmd));
+            assertTrue(excp.getMessage().contains("already a patient at that bed"));
+            assertEquals(2, core.patientData.getPatientList().size());
+            assertTrue(core.patientData.getDirtyPatients().isEmpty());
+
+            core.storage.flush();
+            PatientData reloaded = new PatientData(core.storage);
+            assertEquals("Bob", reloaded.getPatientByBed("B2").getName());
+            assertNull(reloaded.getPatientByBed("B3"));
+        } finally {
+            Files.deleteIfExists(scriptPath);
+            core.patientData = core.storage.resetAllData();
+        }
+    }
+
+    /**
+     * Enters several commands on one line, the last of which fails, and checks that the patients and the context are
+     * rolled back to how they were before the line, then enters a line that succeeds and checks that it is saved.
+     */
+    @Test
+    public void executeLine_failingCommand_allChangesRolledBack() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        try {
+            Patient alice = core.patientData.addPatient(new Patient("Alice", "B1", "nuts", 0, 0, 0, 0,
+                    "address", "history"));
+            core.writeJsonFile();
+            Parser parser = new Parser(core.uiContext);
+            Executor executor = new Executor(core);
+            DukeException excp = assertThrows(DukeException.class, () -> executor.executeLine(parser,
+                    "new -n \"Bob\" -b \"B2\" -a \"dust; mites\"; open -b \"B1\"; edit -a \"pollen\" -b \"B3\";"
+                    + " frobnicate"));
+            assertTrue(excp.getMessage().contains("frobnicate"));
+            assertEquals(Context.HOME, core.uiContext.getContext());
+            assertEquals(1, core.patientData.getPatientList().size());
+            assertNull(core.patientData.getPatientByBed("B2"));
+            assertNull(core.patientData.getPatientByBed("B3"));
+            Patient restored = core.patientData.getPatientByBed("B1");
+            assertEquals("nuts", restored.getAllergies());
+            assertEquals(alice.getUid(), restored.getUid());
+            assertTrue(core.patientData.getDirtyPatients().isEmpty());
+
+            executor.executeLine(parser, "new -n \"Bob\" -b \"B2\" -a \"dust\\; mites\";new -n Carol -b B3 -a none");
+            assertEquals(3, core.patientData.getPatientList().size());
+            assertTrue(core.patientData.getDirtyPatients().isEmpty());
+            core.storage.flush();
+            PatientData reloaded = new PatientData(core.storage);
+            assertEquals("dust; mites", reloaded.getPatientByBed("B2").getAllergies());
+            assertEquals("Carol", reloaded.getPatientByBed("B3").getName());
+        } finally {
+            core.patientData = core.storage.resetAllData();
+        }
+    }
+
+    /**
+     * Discharges a patient in a line that then fails, and checks that no report or discharge archive entry is left
+     * behind for the patient returned to the ward, and that they are written once a line discharging the patient
+     * succeeds.
+     */
+    @Test
+    public void executeLine_failingDischarge_nothingArchived() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        Path reportPath = Paths.get("data", "reports", "Alice-B1.txt");
+        Files.deleteIfExists(reportPath);
+        try {
+            core.patientData.addPatient(new Patient("Alice", "B1", "nuts", 0, 0, 0, 0, "address", "history"));
+            core.writeJsonFile();
+            int archivedCount = core.archive.getEntries().size();
+            Parser parser = new Parser(core.uiContext);
+            Executor executor = new Executor(core);
+            assertThrows(DukeException.class, () -> executor.executeLine(parser, "discharge -b \"B1\"; frobnicate"));
+            assertEquals("Alice", core.patientData.getPatientByBed("B1").getName());
+            assertEquals(archivedCount, core.archive.getEntries().size());
+            assertFalse(Files.exists(reportPath));
+
+            executor.executeLine(parser, "discharge -b \"B1\"; new -n \"Bob\" -b \"B1\" -a \"dust\"");
+            assertEquals("Bob", core.patientData.getPatientByBed("B1").getName());
+            assertEquals(archivedCount + 1, core.archive.getEntries().size());
+            assertEquals("Alice", core.archive.getEntries().get(0).getName());
+            assertTrue(Files.exists(reportPath));
+        } finally {
+            Files.deleteIfExists(reportPath);
+            core.patientData = core.storage.resetAllData();
+        }
+    }
+
+    /**
+     * Restores the same discharged patient twice, into two beds, and checks that the two copies share no uid with each
+     * other or with the patient discharged, so that each uid still finds the object of its own copy.
+     */
+    @Test
+    public void restoreTwice_copiesGivenTheirOwnUids() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        Path reportPath = Paths.get("data", "reports", "Alice-B1.txt");
+        try {
+            Patient alice = core.patientData.addPatient(new Patient("Alice", "B1", "nuts", 0, 0, 0, 0, "address",
+                    "history"));
+            alice.addNewImpression(new Impression("Flu", "seasonal", alice));
+            core.writeJsonFile();
+            Set<Integer> uids = new HashSet<>(List.of(alice.getUid(), alice.getImpression("Flu").getUid()));
+            Parser parser = new Parser(core.uiContext);
+            Executor executor = new Executor(core);
+            executor.executeLine(parser, "discharge -b \"B1\"");
+            executor.executeLine(parser, "restore \"B1\"");
+            executor.executeLine(parser, "restore \"B1\" -b \"C3\"");
+
+            for (String bed : List.of("B1", "C3")) {
+                Patient restored = core.patientData.getPatientByBed(bed);
+                Impression flu = restored.getImpression("Flu");
+                assertTrue(uids.add(restored.getUid()));
+                assertTrue(uids.add(flu.getUid()));
+                assertSame(restored, core.patientData.getObject(restored.getUid()));
+                assertSame(flu, core.patientData.getObject(flu.getUid()));
+            }
+        } finally {
+            Files.deleteIfExists(reportPath);
+            core.patientData = core.storage.resetAllData();
+        }
+    }
+
     /**
      * Tests HomeReport Command with the summary switch present.
      */
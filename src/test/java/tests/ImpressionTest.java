@@ -15,8 +15,13 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -94,6 +99,86 @@ public class ImpressionTest {
         assertEquals("2 follow-ups", impression.getFollowUpCountStr());
     }
 
+    /**
+     * Tests that data is kept in display order as it is added, deleted and reprioritised, with items ordered equally
+     * kept in the order they were added, and that deleting a treatment leaves the evidences in place.
+     */
+    @Test
+    public void orderKeptOnChange() throws DukeException {
+        setupEvidences("order", "order");
+        Evidence lowPriority = impression.addNewEvidence(new Result("low", impression, 0, "summary"));
+        Evidence laterCritical = impression.addNewEvidence(new Result("critical", impression, 1, "summary"));
+        assertEquals(List.of(impression.getEvidence("obs order"), laterCritical, impression.getEvidence("res order"),
+                lowPriority), impression.getEvidences());
+
+        setupTreatments("order", "order", "order");
+        Treatment done = impression.addNewTreatment(new Plan("done", impression, 3, "2", "summary"));
+        Treatment notStarted = impression.addNewTreatment(new Plan("not started", impression, 3, "0", "summary"));
+        List<Evidence> evidences = List.copyOf(impression.getEvidences());
+        impression.deleteTreatment("inv order");
+        assertEquals(evidences, impression.getEvidences());
+        assertEquals(List.of(notStarted, impression.getTreatment("plan order"), done,
+                impression.getTreatment("med order")), impression.getTreatments());
+
+        lowPriority.setPriority(2);
+        assertEquals(lowPriority, impression.getEvidenceAtIdx(3));
+        assertEquals(impression.getEvidence("res order"), impression.getEvidenceAtIdx(2));
+        done.setStatus(0);
+        assertEquals(List.of(notStarted, done, impression.getTreatment("plan order"),
+                impression.getTreatment("med order")), impression.getTreatments());
+        impression.deleteEvidence("critical");
+        impression.deleteTreatment("done");
+        assertEquals(3, impression.getEvidences().size());
+        assertEquals(List.of(notStarted, impression.getTreatment("plan order"), impression.getTreatment("med order")),
+                impression.getTreatments());
+    }
+
+    /**
+     * Fills the evidences of an impression directly, as storage does, with two evidences sharing a name, as data saved
+     * before names were checked may have, and checks that both are indexed once the impression is initialised, so the
+     * second is found once the first is deleted.
+     */
+    @Test
+    public void duplicateNamesIndexed() throws DukeException {
+        Observation first = new Observation("same", impression, 1, "first", true);
+        Observation second = new Observation("same", impression, 1, "second", true);
+        impression.getEvidences().add(first);
+        impression.getEvidences().add(second);
+        impression.initChildren();
+        assertSame(first, impression.getEvidence("SAME"));
+
+        impression.deleteEvidence("same");
+        assertSame(second, impression.getEvidence("same"));
+        impression.deleteEvidence("same");
+        assertNull(impression.getEvidence("same"));
+        assertTrue(impression.getEvidences().isEmpty());
+    }
+
+    @Test
+    public void namesFoundAfterRename() throws DukeException {
+        setupEvidences("name", "name");
+        setupTreatments("name", "name", "name");
+        Evidence observation = impression.getEvidence("OBS NAME");
+        observation.setName("Renamed Obs");
+        assertNull(impression.getEvidence("obs name"));
+        assertEquals(observation, impression.getEvidence("renamed obs"));
+        assertThrows(DukeException.class, () -> observation.edit("res NAME", -1, Map.of(), false));
+        assertEquals("Renamed Obs", observation.getName());
+
+        Treatment plan = impression.getTreatment("plan name");
+        plan.edit("Medicated", -1, Map.of(), false);
+        assertEquals(plan, impression.getTreatment("MEDICATED"));
+        assertNull(impression.getTreatment("plan name"));
+        impression.addNewTreatment(createPlan("name"));
+        assertThrows(DukeException.class, () -> plan.edit("INV name", -1, Map.of(), false));
+        assertEquals("Medicated", plan.getName());
+
+        patient.addNewImpression(impression);
+        impression.setName("Renamed");
+        assertEquals(impression, patient.getImpression("RENAMED"));
+        assertNull(patient.getImpression("testImpression"));
+    }
+
     /**
      * Helper method to create treatments.
      *
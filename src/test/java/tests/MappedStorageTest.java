@@ -0,0 +1,117 @@
+package tests;
+
+import duke.command.Commands;
+import duke.data.Impression;
+import duke.data.Observation;
+import duke.data.Patient;
+import duke.data.PatientData;
+import duke.data.storage.BinaryStorage;
+import duke.data.storage.MappedStorage;
+import duke.exception.DukeException;
+import duke.exception.DukeFatalException;
+import duke.ui.context.Context;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JUnit class testing the class MappedStorage.
+ */
+public class MappedStorageTest {
+    private static final String snapshotPath = "data" + File.separator + "mappedTest.bin";
+
+    private BinaryStorage storage;
+
+    @BeforeEach
+    public void setupStorage() throws DukeFatalException {
+        storage = new BinaryStorage(snapshotPath);
+    }
+
+    @AfterEach
+    public void clearTestData() throws IOException {
+        storage.resetAllData();
+    }
+
+    private Patient createPatient(String name, String bedNo) throws DukeException {
+        Patient patient = new Patient(name, bedNo, "", 0, 0, 0, 0, "", "");
+        Impression impression = new Impression("imp " + bedNo, "description", patient);
+        patient.addNewImpression(impression);
+        impression.addNewEvidence(new Observation("obs", impression, 1, "summary " + bedNo, true));
+        return patient;
+    }
+
+    /**
+     * Checks that the patients in the snapshot, with the changes journaled since, are viewed in the same order as the
+     * binary storage would load them, and that their impressions are read from the snapshot when first needed.
+     */
+    @Test
+    public void snapshotViewedWithJournal() throws DukeException {
+        PatientData patientData = new PatientData();
+        patientData.addPatient(createPatient("first", "A1"));
+        patientData.addPatient(createPatient("second", "A2"));
+        patientData.addPatient(createPatient("third", "A3"));
+        storage.commit(patientData);
+        patientData.getPatientByBed("A2").setAllergies("dust");
+        patientData.deletePatient("A1");
+        patientData.addPatient(createPatient("fourth", "A4"));
+        storage.commit(patientData);
+
+        PatientData viewed = new PatientData(new MappedStorage(snapshotPath));
+        PatientData loaded = new PatientData(new BinaryStorage(snapshotPath));
+        assertEquals(3, viewed.getPatientList().size());
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(loaded.getPatientList().get(i).getBedNo(), viewed.getPatientList().get(i).getBedNo());
+        }
+        assertNull(viewed.getPatientByBed("A1"));
+        assertEquals("dust", viewed.getPatientByBed("A2").getAllergies());
+
+        Patient patient = viewed.getPatientByBed("A3");
+        assertFalse(patient.isLoaded());
+        assertEquals("1 critical issue", patient.getCriticalCountStr());
+        assertEquals("summary A3", patient.getPrimaryDiagnosis().getEvidence("obs").getSummary());
+        assertEquals("summary A4", viewed.getPatientByBed("A4").getImpression("imp A4").getEvidence("obs")
+                .getSummary());
+    }
+
+    /**
+     * Checks that changes cannot be written, and that viewing fails if there is no snapshot.
+     */
+    @Test
+    public void changesRefused() throws DukeException {
+        MappedStorage viewer = new MappedStorage(snapshotPath);
+        assertThrows(DukeFatalException.class, viewer::loadPatients);
+
+        PatientData patientData = new PatientData();
+        patientData.addPatient(createPatient("first", "A1"));
+        storage.commit(patientData);
+        PatientData viewed = new PatientData(viewer);
+        viewer.commit(viewed);
+        viewed.getPatientByBed("A1").setAllergies("dust");
+        assertThrows(DukeFatalException.class, () -> viewer.commit(viewed));
+        assertTrue(viewer.isReadOnly());
+        assertFalse(storage.isReadOnly());
+    }
+
+    /**
+     * Checks that only commands which view the patients are allowed while they are open read-only.
+     */
+    @Test
+    public void readOnlyCommands() {
+        Commands commands = new Commands();
+        assertTrue(commands.getCommand("find", Context.HOME).isReadOnly());
+        assertTrue(commands.getCommand("open", Context.PATIENT).isReadOnly());
+        assertTrue(commands.getCommand("back", Context.IMPRESSION).isReadOnly());
+        assertFalse(commands.getCommand("new", Context.HOME).isReadOnly());
+        assertFalse(commands.getCommand("edit", Context.PATIENT).isReadOnly());
+        assertFalse(commands.getCommand("priority", Context.IMPRESSION).isReadOnly());
+    }
+}
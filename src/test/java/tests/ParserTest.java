@@ -10,6 +10,9 @@ import mocks.TestCommands;
 import mocks.ValidEmptySpec;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -32,6 +35,13 @@ public class ParserTest {
         }
     }
 
+    @Test
+    public void splitCommands_semicolons_splitOutsideStrings() {
+        List<String> commandStrs = uut.splitCommands("doctor \"a;b\" -switch c\\;d ;; doctor -none;  ");
+        assertEquals(List.of("doctor \"a;b\" -switch c;d ", " doctor -none"), commandStrs);
+        assertEquals(List.of(" ; "), uut.splitCommands(" ; "));
+    }
+
     @Test
     public void parseCommand_switchesChained_argumentsExtracted() {
         try {
@@ -1,10 +1,17 @@
 package tests;
 
+import duke.data.Impression;
 import duke.data.Patient;
 import duke.data.PatientData;
 import duke.exception.DukeException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -56,4 +63,71 @@ public class PatientDataTest {
             fail("Exception thrown while deleting patient: " + excp.getMessage());
         }
     }
+
+    /**
+     * Checks that only the patients changed since they were last saved, directly or through their impressions, are
+     * listed as dirty, in the order they were changed, and that deleted patients are not.
+     */
+    @Test
+    public void dirtyPatientsTracked() throws DukeException {
+        Patient other = patientData.addPatient(new Patient("john", "A1", "a", 0, 0, 0, 0, "", ""));
+        patient.addNewImpression(new Impression("imp", "description", patient));
+        assertEquals(List.of(patient, other), patientData.getDirtyPatients());
+        patient.clearDirty();
+        other.clearDirty();
+        assertTrue(patientData.getDirtyPatients().isEmpty());
+
+        other.setAllergies("dust");
+        patient.getImpression("imp").setDescription("changed");
+        assertEquals(List.of(other, patient), patientData.getDirtyPatients());
+        patientData.deletePatient("A1");
+        assertEquals(List.of(patient), patientData.getDirtyPatients());
+    }
+
+    /**
+     * Checks that patients are found by bed after being added, moved and deleted, and that moving a patient to an
+     * occupied bed is refused.
+     */
+    @Test
+    public void bedIndexKeptInSync() throws DukeException {
+        Patient other = patientData.addPatient(new Patient("john", "A1", "a", 0, 0, 0, 0, "", ""));
+        assertSame(other, patientData.getPatientByBed("A1"));
+        assertThrows(DukeException.class, () -> patientData.moveToBed(other, duplicateBed));
+
+        patientData.moveToBed(other, "A2");
+        assertEquals("A2", other.getBedNo());
+        assertNull(patientData.getPatientByBed("A1"));
+        assertSame(other, patientData.getPatientByBed("A2"));
+        patientData.moveToBed(other, "A2");
+        assertEquals(2, patientData.getPatientsByBed().size());
+
+        patientData.deletePatient("A2");
+        assertNull(patientData.getPatientByBed("A2"));
+        assertEquals(List.of(patient), patientData.getPatientsByBed());
+    }
+
+    /**
+     * Checks that the patients are kept in natural bed order, with numbers compared by value, as they are added,
+     * moved and deleted.
+     */
+    @Test
+    public void patientsOrderedByBed() throws DukeException {
+        patientData.deletePatient(duplicateBed);
+        for (String bedNo : List.of("B1", "A10", "a3", "A2", "A02", "C")) {
+            patientData.addPatient(new Patient("name " + bedNo, bedNo, "", 0, 0, 0, 0, "", ""));
+        }
+        assertBedOrder("A02", "A2", "a3", "A10", "B1", "C");
+
+        patientData.moveToBed(patientData.getPatientByBed("C"), "A9");
+        patientData.deletePatient("a3");
+        assertBedOrder("A02", "A2", "A9", "A10", "B1");
+    }
+
+    private void assertBedOrder(String... bedNos) {
+        List<Patient> patients = patientData.getPatientsByBed();
+        assertEquals(bedNos.length, patients.size());
+        for (int i = 0; i < bedNos.length; ++i) {
+            assertEquals(bedNos[i], patients.get(i).getBedNo());
+        }
+    }
 }
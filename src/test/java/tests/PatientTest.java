@@ -1,12 +1,17 @@
 package tests;
 
 import duke.data.Impression;
+import duke.data.Observation;
 import duke.data.Patient;
+import duke.data.Plan;
 import duke.exception.DukeException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -193,4 +198,100 @@ public class PatientTest {
         assertEquals("Heart attack 5 years ago\n\nTest Append",
                 validPatient.getHistory());
     }
+
+    /**
+     * Tests that changing data held by a saved Patient object marks the data, its impression and the Patient object as
+     * dirty, while leaving the Patient object's other impressions clean.
+     */
+    @Test
+    public void editData_savedPatient_patientMarkedDirty() throws DukeException {
+        Impression impressionOne = new Impression("Impression 1", "Description 1", validPatient);
+        Impression impressionTwo = new Impression("Impression 2", "Description 2", validPatient);
+        validPatient.addNewImpression(impressionOne);
+        validPatient.addNewImpression(impressionTwo);
+        Observation observation = new Observation("Observation", impressionOne, 0, "Summary", false);
+        impressionOne.addNewEvidence(observation);
+        assertTrue(validPatient.isDirty());
+
+        validPatient.clearDirty();
+        assertFalse(validPatient.isDirty());
+        assertFalse(impressionOne.isDirty());
+        assertFalse(observation.isDirty());
+
+        observation.setPriority(1);
+        assertTrue(observation.isDirty());
+        assertTrue(impressionOne.isDirty());
+        assertTrue(validPatient.isDirty());
+        assertFalse(impressionTwo.isDirty());
+    }
+
+    /**
+     * Tests that the critical and follow-up lists of a Patient object follow changes to the priority and status of
+     * its data, data added, deleted and moved between impressions, and impressions added and deleted.
+     */
+    @Test
+    public void changeData_patientWithLists_listsKeptUpToDate() throws DukeException {
+        Impression impressionOne = new Impression("Impression 1", "Description 1", validPatient);
+        validPatient.addNewImpression(impressionOne);
+        Observation observation = new Observation("Observation", impressionOne, 1, "Summary", false);
+        impressionOne.addNewEvidence(observation);
+        assertEquals(List.of(observation), validPatient.getCriticalList());
+
+        Plan plan = new Plan("Plan", impressionOne, 0, "0", "Summary");
+        assertEquals(List.of(), validPatient.getFollowUpList());
+        impressionOne.addNewTreatment(plan);
+        assertEquals(List.of(plan), validPatient.getFollowUpList());
+        plan.setPriority(1);
+        observation.setPriority(2);
+        assertEquals(List.of(plan), validPatient.getCriticalList());
+        plan.setStatus("Completed");
+        assertEquals(List.of(), validPatient.getFollowUpList());
+        plan.setStatus(1);
+        assertEquals(List.of(plan), validPatient.getFollowUpList());
+
+        Impression impressionTwo = new Impression("Impression 2", "Description 2", validPatient);
+        validPatient.addNewImpression(impressionTwo);
+        impressionTwo.addNewTreatment(plan);
+        impressionOne.deleteTreatment(plan.getName());
+        assertEquals(List.of(plan), validPatient.getCriticalList());
+        assertEquals(List.of(plan), validPatient.getFollowUpList());
+        assertEquals("1 critical issue", validPatient.getCriticalCountStr());
+
+        validPatient.deleteImpression(impressionTwo.getName());
+        assertEquals(List.of(), validPatient.getCriticalList());
+        assertEquals(List.of(), validPatient.getFollowUpList());
+        plan.setPriority(1);
+        assertEquals(List.of(), validPatient.getCriticalList());
+        validPatient.addNewImpression(impressionTwo);
+        assertEquals(List.of(plan), validPatient.getCriticalList());
+    }
+
+    /**
+     * Tests that the critical and follow-up lists of a Patient object stay in the order the items are shown in the
+     * impressions after their priorities change.
+     */
+    @Test
+    public void changePriority_patientWithLists_listsKeptInChartOrder() throws DukeException {
+        Impression impressionOne = new Impression("Impression 1", "Description 1", validPatient);
+        validPatient.addNewImpression(impressionOne);
+        Impression impressionTwo = new Impression("Impression 2", "Description 2", validPatient);
+        validPatient.addNewImpression(impressionTwo);
+        Observation first = new Observation("First", impressionOne, 1, "Summary", false);
+        impressionOne.addNewEvidence(first);
+        Observation second = new Observation("Second", impressionOne, 2, "Summary", false);
+        impressionOne.addNewEvidence(second);
+        Plan urgent = new Plan("Urgent", impressionOne, 2, "0", "Summary");
+        impressionOne.addNewTreatment(urgent);
+        Plan routine = new Plan("Routine", impressionOne, 3, "0", "Summary");
+        impressionOne.addNewTreatment(routine);
+        Plan other = new Plan("Other", impressionTwo, 1, "0", "Summary");
+        impressionTwo.addNewTreatment(other);
+        assertEquals(List.of(first, other), validPatient.getCriticalList());
+        assertEquals(List.of(urgent, routine, other), validPatient.getFollowUpList());
+
+        second.setPriority(1);
+        routine.setPriority(1);
+        assertEquals(List.of(first, second, routine, other), validPatient.getCriticalList());
+        assertEquals(List.of(routine, urgent, other), validPatient.getFollowUpList());
+    }
 }
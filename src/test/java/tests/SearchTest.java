@@ -1,6 +1,7 @@
 package tests;
 
 import duke.data.Impression;
+import duke.data.DukeObject;
 import duke.data.Investigation;
 import duke.data.Medicine;
 import duke.data.Observation;
@@ -8,14 +9,21 @@ import duke.data.Patient;
 import duke.data.PatientData;
 import duke.data.Plan;
 import duke.data.Result;
+import duke.data.SearchResults;
 import duke.exception.DukeException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class SearchTest {
@@ -91,6 +99,116 @@ public class SearchTest {
         assertEquals(imp.findByName(pattern3).getSearchList().size(), 2);
     }
 
+    /**
+     * Checks that searches through the index find the same objects, in the same order, as checking every object,
+     * after the objects have been changed, added and deleted.
+     */
+    @Test
+    public void indexedSearchMatchesFullScan() throws DukeException {
+        List<String> searchTerms = List.of("knight", "KNIGHT", "sum of", "s of psst", "blah", "med ", "allergies",
+                "cooler", "nothing", "i", "14", "nigh", "ves, i'm th", "ly comp", "kn", "ghtx", "'re");
+        assertSearchesMatchFullScan(searchTerms);
+
+        Patient patient = patientData.getPatientByBed(duplicateBed + 1);
+        Impression impression = patient.getImpression(pattern3);
+        impression.getEvidence("obs " + pattern3).setName("renamed observation");
+        impression.deleteTreatment("plan " + pattern4);
+        impression.setDescription("a knight's description");
+        patient.setHistory("knightly history");
+        patientData.addPatient(setupPatient(pattern4, 2));
+        Patient added = patientData.getPatientByBed(duplicateBed + 2);
+        added.addNewImpression(setUpComplexImpression("other", added));
+        patientData.deletePatient(duplicateBed + 0);
+        assertSearchesMatchFullScan(searchTerms);
+        assertEquals(1, patientData.searchAll("renamed").getCount());
+    }
+
+    /**
+     * Checks that fuzzy searches find misspelled words, and rank matches in names above matches in other fields,
+     * whether they are answered by the index or by the patient or impression searched.
+     */
+    @Test
+    public void fuzzySearchToleratesTypos() throws DukeException {
+        Patient patient = patientData.getPatientByBed(duplicateBed + 1);
+        Impression impression = patient.getImpression(pattern3);
+        impression.addNewTreatment(new Plan("rest", impression, 3, "1", "after paracetamol wears off"));
+        impression.addNewMedicine(new Medicine("paracetamol", impression, 0, "1", "500mg",
+                LocalDate.now().format(DateTimeFormatter.ofPattern("dd MMM yyyy")), "7"));
+        assertEquals(0, patientData.searchAll("paracetmol").getCount());
+
+        List<DukeObject> expected = List.of(impression.getTreatment("paracetamol"), impression.getTreatment("rest"));
+        assertEquals(expected, patientData.fuzzySearchAll("paracetmol").getSearchList());
+        assertEquals(expected, patient.fuzzySearchAll("paracetmol").getSearchList());
+        assertEquals(expected, impression.fuzzySearchAll("paracetmol").getSearchList());
+        assertEquals(List.of(impression.getTreatment("rest")),
+                patientData.fuzzySearchAll("paracetmol wers").getSearchList());
+        assertEquals(2, patientData.fuzzyFindPatients("nme").getCount());
+        assertTrue(patientData.fuzzySearchAll("knight").getSearchList()
+                .containsAll(patientData.searchAll("knight").getSearchList()));
+    }
+
+    /**
+     * Checks that searches and allergy checks see changes made through setters and edits, as the lower-case copies of
+     * the searched fields are cached.
+     */
+    @Test
+    public void searchKeysFollowChanges() throws DukeException {
+        Patient patient = patientData.getPatientByBed(duplicateBed + 0);
+        assertTrue(patient.isAllergic("ALLERGIES"));
+        patient.setAllergies("Penicillin");
+        assertFalse(patient.isAllergic("allergies"));
+        assertTrue(patient.isAllergic("penicillin"));
+        assertTrue(patient.contains("PENIC"));
+
+        Impression impression = patientData.getPatientByBed(duplicateBed + 1).getImpression(pattern3);
+        assertEquals(0, impression.findEvidences("Wheezing").getCount());
+        impression.getEvidence("res " + pattern1).edit(null, -1, Map.of("summary", " and wheezing"), true);
+        assertEquals(1, impression.findEvidences("Wheezing").getCount());
+        impression.getTreatment("med blah").edit("Salbutamol", -1, Map.of(), false);
+        assertEquals(1, impression.findTreatmentsByName("SALBUT").getCount());
+        assertEquals(0, impression.findTreatmentsByName("blah").getCount());
+    }
+
+    /**
+     * Checks that results are numbered in the order they were added, that repeated objects are left out, and that
+     * each type of result is counted separately.
+     */
+    @Test
+    public void searchResultsDedupedAndSplitByType() throws DukeException {
+        Patient patient = patientData.getPatientByBed(duplicateBed + 1);
+        SearchResults results = patient.searchAll(pattern3);
+        int count = results.getCount();
+        results.addAll(patient.searchAll(pattern3));
+        results.addAll(patientData.findPatients(pattern2));
+        assertEquals(count + 1, results.getCount());
+        assertEquals(patient, results.getResult(count));
+        assertTrue(results.hasResult(patient));
+
+        assertEquals(List.of(patient), results.getPatients());
+        assertEquals(results.getCount(), results.getPatients().size() + results.getImpressions().size()
+                + results.getEvidences().size() + results.getTreatments().size());
+        for (int i = 0; i < results.getCount(); ++i) {
+            assertEquals(results.getSearchList().get(i), results.getResult(i));
+        }
+        assertTrue(results.toString().startsWith("There are " + results.getCount() + " result(s)."));
+        assertThrows(DukeException.class, () -> results.getResult(results.getCount()));
+    }
+
+    private void assertSearchesMatchFullScan(List<String> searchTerms) throws DukeException {
+        for (String searchTerm : searchTerms) {
+            List<DukeObject> expected = new ArrayList<>();
+            for (Patient patient : patientData.getPatientsByBed()) {
+                if (patient.contains(searchTerm)) {
+                    expected.add(patient);
+                }
+            }
+            for (Patient patient : patientData.getPatientsByBed()) {
+                expected.addAll(patient.searchAll(searchTerm).getSearchList());
+            }
+            assertEquals(expected, patientData.searchAll(searchTerm).getSearchList(), searchTerm);
+        }
+    }
+
     public Impression setupImpressionSimple(String pattern, Patient parent) {
         return new Impression("testImpression", pattern, parent);
     }
@@ -0,0 +1,55 @@
+package tests;
+
+import duke.data.PatientData;
+import duke.exception.DukeException;
+import duke.ui.TerminalUi;
+import duke.ui.Ui;
+import duke.ui.commons.UiStrings;
+import org.junit.jupiter.api.Test;
+import templates.CommandTest;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TerminalUiTest extends CommandTest {
+
+    /**
+     * Runs a session on the terminal UI, checking that the commands read are run, that the ward and the patient opened
+     * are printed, that errors are shown without ending the session, and that the changes are saved on bye.
+     */
+    @Test
+    public void run_commandsThenBye_outputPrintedAndSaved() throws IOException, DukeException {
+        core.patientData = core.storage.resetAllData();
+        Ui oldUi = core.ui;
+        ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+        String input = "new -n \"Alice\" -b \"B1\" -a \"nuts\"\n\nfrobnicate\nopen -b \"B1\"\nup\nbye\n"
+                + "new -n Bob -b B2\n";
+        TerminalUi terminalUi = new TerminalUi(core, new BufferedReader(new StringReader(input)),
+                new PrintStream(outBytes, true, StandardCharsets.UTF_8), false);
+        try {
+            core.ui = terminalUi;
+            terminalUi.run();
+
+            String output = outBytes.toString(StandardCharsets.UTF_8);
+            assertTrue(output.startsWith(UiStrings.MESSAGE_WELCOME_GREET));
+            assertTrue(output.contains("I'm sorry, but I don't recognise this command: frobnicate"));
+            assertTrue(output.contains("Allergies: nuts"));
+            assertTrue(output.contains("B1: Alice"));
+            assertTrue(output.stripTrailing().endsWith(UiStrings.MESSAGE_GOODBYE));
+
+            PatientData reloaded = new PatientData(core.storage);
+            assertEquals(1, reloaded.getPatientList().size());
+            assertEquals("Alice", reloaded.getPatientByBed("B1").getName());
+        } finally {
+            core.ui = oldUi;
+            core.patientData = core.storage.resetAllData();
+        }
+    }
+}